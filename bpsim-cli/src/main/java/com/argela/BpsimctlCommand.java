@@ -26,8 +26,13 @@ import java.util.Objects;
         mixinStandardHelpOptions = true,
         subcommands = {
                 BpsimctlCommand.DhcpCommand.class,
+                BpsimctlCommand.BatchCommand.class,
                 BpsimctlCommand.DhcpListCommand.class,
+                BpsimctlCommand.ExportCommand.class,
+                BpsimctlCommand.StatsCommand.class,
                 BpsimctlCommand.DhcpStormCommand.class,
+                BpsimctlCommand.StormListCommand.class,
+                BpsimctlCommand.StormReportCommand.class,
                 BpsimctlCommand.InfoCommand.class,
                 BpsimctlCommand.StopCommand.class,
                 BpsimctlCommand.ClearCommand.class,
@@ -74,6 +79,15 @@ class BpsimctlCommand implements Runnable {
         @Option(names = {"-s","--state"}, description = "Filter by DHCP state")
         String state;
 
+        @Option(names = "--sort", description = "Sort by id, ip, state, pon or duration; prefix with - for descending (default: id)")
+        String sort;
+
+        @Option(names = {"-n", "--limit"}, description = "Show at most this many devices (default: all)")
+        Integer maxRows;
+
+        @Option(names = "--page-size", description = "Devices fetched per request (default: 1000)")
+        int pageSize = 1000;
+
         @Option(names = {"-U", "--url"}, description = "Server URL (default: http://localhost:8080)")
         String serverUrl = "http://localhost:8080";
 
@@ -84,7 +98,6 @@ class BpsimctlCommand implements Runnable {
         public void run() {
             try(HttpClient client = HttpClient.newHttpClient()) {
                 // Build URL with query parameters
-                StringBuilder urlBuilder = new StringBuilder(serverUrl + "/dhcp/list?");
                 List<String> queryParams = new ArrayList<>();
 
                 if (filter != null && !filter.trim().isEmpty()) {
@@ -108,34 +121,43 @@ class BpsimctlCommand implements Runnable {
                 if (state != null && !state.trim().isEmpty()) {
                     queryParams.add("state=" + java.net.URLEncoder.encode(state, StandardCharsets.UTF_8));
                 }
-
-                String finalUrl;
-                if (!queryParams.isEmpty()) {
-                    finalUrl = urlBuilder + "?" + String.join("&", queryParams);
-                } else {
-                    finalUrl = urlBuilder.toString();
+                if (sort != null && !sort.trim().isEmpty()) {
+                    queryParams.add("sort=" + java.net.URLEncoder.encode(sort.trim(), StandardCharsets.UTF_8));
                 }
 
-                HttpRequest httpRequest = HttpRequest.newBuilder()
-                        .uri(URI.create(finalUrl))
-                        .header("Accept", "application/json")
-                        .GET()
-                        .build();
+                // Page through the list; the server sends the cursor of the next page in X-Next-Cursor
+                ObjectMapper mapper = new ObjectMapper();
+                List<Map<String, Object>> list = new ArrayList<>();
+                String cursor = null;
+                do {
+                    List<String> pageParams = new ArrayList<>(queryParams);
+                    int limit = maxRows == null ? pageSize : Math.min(pageSize, maxRows - list.size());
+                    pageParams.add("limit=" + Math.max(limit, 1));
+                    if (cursor != null) {
+                        pageParams.add("cursor=" + cursor);
+                    }
 
-                HttpResponse<String> response = client.send(httpRequest,
-                        HttpResponse.BodyHandlers.ofString());
+                    HttpRequest httpRequest = HttpRequest.newBuilder()
+                            .uri(URI.create(serverUrl + "/dhcp/list?" + String.join("&", pageParams)))
+                            .header("Accept", "application/json")
+                            .GET()
+                            .build();
 
-                if (response.statusCode() != 200) {
-                    System.err.println("Error: HTTP " + response.statusCode());
-                    return;
-                }
+                    HttpResponse<String> response = client.send(httpRequest,
+                            HttpResponse.BodyHandlers.ofString());
 
-                // JSON parse
-                ObjectMapper mapper = new ObjectMapper();
-                List<Map<String, Object>> list = mapper.readValue(
-                        response.body(),
-                        mapper.getTypeFactory().constructCollectionType(List.class, Map.class)
-                );
+                    if (response.statusCode() != 200) {
+                        System.err.println("Error: HTTP " + response.statusCode() + " " + response.body());
+                        return;
+                    }
+
+                    // JSON parse
+                    list.addAll(mapper.readValue(
+                            response.body(),
+                            mapper.getTypeFactory().constructCollectionType(List.class, Map.class)
+                    ));
+                    cursor = response.headers().firstValue("X-Next-Cursor").orElse(null);
+                } while (cursor != null && (maxRows == null || list.size() < maxRows));
 
                 if (list.isEmpty()) {
                     System.out.println("No data available.");
@@ -397,6 +419,24 @@ class BpsimctlCommand implements Runnable {
         @Parameters(index = "1", description = "Interval in seconds - use either rate or intervalSec", arity = "0..1")
         Double intervalSec;
 
+        @Option(names = {"-n", "--name"}, description = "Storm name (default: auto-generated)")
+        String name;
+
+        @Option(names = {"-p", "--pon"}, description = "Target PON port or range (e.g. 3 or 0-7)")
+        String ponRange;
+
+        @Option(names = {"-o", "--onu"}, description = "Target ONU ID or range (e.g. 5 or 0-63)")
+        String onuRange;
+
+        @Option(names = {"-v", "--vlan"}, split = ",", description = "Target VLAN IDs (comma-separated)")
+        List<Integer> vlanIds;
+
+        @Option(names = {"-s", "--state"}, description = "Target device state (default: IDLE, ACKNOWLEDGED for renew/rebind)")
+        String state;
+
+        @Option(names = {"-t", "--type"}, description = "Storm type: discover, renew (unicast REQUEST) or rebind (broadcast REQUEST) (default: discover)")
+        String type;
+
         @Option(names = {"-U", "--url"}, description = "Server URL (default: http://localhost:8080)")
         String serverUrl = "http://localhost:8080";
 
@@ -422,6 +462,20 @@ class BpsimctlCommand implements Runnable {
 
                 // Create request payload
                 DhcpStormRequest request = new DhcpStormRequest(rate, intervalSec);
+                request.setName(name);
+                request.setVlanIds(vlanIds);
+                request.setState(state);
+                request.setType(type);
+                if (ponRange != null) {
+                    int[] range = parseRange(ponRange);
+                    request.setPonPortStart(range[0]);
+                    request.setPonPortEnd(range[1]);
+                }
+                if (onuRange != null) {
+                    int[] range = parseRange(onuRange);
+                    request.setOnuIdStart(range[0]);
+                    request.setOnuIdEnd(range[1]);
+                }
                 String jsonPayload = objectMapper.writeValueAsString(request);
 
                 HttpRequest httpRequest = HttpRequest.newBuilder()
@@ -441,6 +495,185 @@ class BpsimctlCommand implements Runnable {
                 System.err.println("Error sending DHCP Storm request: " + e.getMessage());
             }
         }
+
+        private int[] parseRange(String range) {
+            String[] parts = range.trim().split("-");
+            int start = Integer.parseInt(parts[0].trim());
+            int end = parts.length > 1 ? Integer.parseInt(parts[1].trim()) : start;
+            return new int[]{start, end};
+        }
+    }
+
+    @Command(name = "storms",
+            mixinStandardHelpOptions = true,
+            description = "List running and recently finished DHCP storms")
+    static class StormListCommand implements Runnable {
+
+        @Option(names = {"-U", "--url"}, description = "Server URL (default: http://localhost:8080)")
+        String serverUrl = "http://localhost:8080";
+
+        @Override
+        public void run() {
+            try (HttpClient client = HttpClient.newHttpClient()) {
+                HttpRequest httpRequest = HttpRequest.newBuilder()
+                        .uri(URI.create(serverUrl + "/dhcp/storm"))
+                        .header("Accept", "application/json")
+                        .GET()
+                        .build();
+
+                HttpResponse<String> response = client.send(httpRequest,
+                        HttpResponse.BodyHandlers.ofString());
+
+                if (response.statusCode() != 200) {
+                    System.err.println("Error: HTTP " + response.statusCode());
+                    return;
+                }
+
+                ObjectMapper mapper = new ObjectMapper();
+                List<Map<String, Object>> storms = mapper.readValue(response.body(), new TypeReference<>() { });
+
+                if (storms.isEmpty()) {
+                    System.out.println("No storms.");
+                    return;
+                }
+
+                AsciiTable at = new AsciiTable();
+                at.addRule();
+                at.addRow("Name", "Status", "Rate", "Selector", "Target", "Sent", "Failed", "Skipped");
+                at.addRule();
+                for (Map<String, Object> storm : storms) {
+                    Object rate = storm.get("rate") != null ? storm.get("rate") + "/s"
+                            : "1 per " + storm.get("intervalSec") + "s";
+                    at.addRow(storm.get("name"), storm.get("status"), rate, formatSelector(storm),
+                            storm.get("targetCount"), storm.get("sentCount"),
+                            storm.get("failureCount"), storm.get("skippedCount"));
+                    at.addRule();
+                }
+                at.getRenderer().setCWC(new CWC_LongestLine());
+                System.out.println(at.render());
+
+            } catch (Exception e) {
+                System.err.println("Error getting storms: " + e.getMessage());
+            }
+        }
+
+        private String formatSelector(Map<String, Object> storm) {
+            List<String> parts = new ArrayList<>();
+            if (storm.get("ponPortStart") != null || storm.get("ponPortEnd") != null) {
+                parts.add("PON " + Objects.requireNonNullElse(storm.get("ponPortStart"), "*") + "-" +
+                        Objects.requireNonNullElse(storm.get("ponPortEnd"), "*"));
+            }
+            if (storm.get("onuIdStart") != null || storm.get("onuIdEnd") != null) {
+                parts.add("ONU " + Objects.requireNonNullElse(storm.get("onuIdStart"), "*") + "-" +
+                        Objects.requireNonNullElse(storm.get("onuIdEnd"), "*"));
+            }
+            if (storm.get("vlanIds") != null) {
+                parts.add("VLAN " + storm.get("vlanIds"));
+            }
+            parts.add(String.valueOf(storm.get("state")));
+            return String.join(", ", parts);
+        }
+    }
+
+    @Command(name = "report",
+            mixinStandardHelpOptions = true,
+            description = "Show latency percentiles and achieved throughput of a DHCP storm")
+    static class StormReportCommand implements Runnable {
+        @Parameters(index = "0", description = "Storm name")
+        String name;
+
+        @Option(names = {"-t", "--timeline"}, description = "Also print the per-second sent/completed timeline")
+        boolean showTimeline;
+
+        @Option(names = {"-j", "--json"}, description = "Print the raw JSON report")
+        boolean json;
+
+        @Option(names = {"-U", "--url"}, description = "Server URL (default: http://localhost:8080)")
+        String serverUrl = "http://localhost:8080";
+
+        @Override
+        public void run() {
+            try (HttpClient client = HttpClient.newHttpClient()) {
+                HttpRequest httpRequest = HttpRequest.newBuilder()
+                        .uri(URI.create(serverUrl + "/dhcp/storm/" +
+                                java.net.URLEncoder.encode(name, StandardCharsets.UTF_8).replace("+", "%20") + "/report"))
+                        .header("Accept", "application/json")
+                        .GET()
+                        .build();
+
+                HttpResponse<String> response = client.send(httpRequest,
+                        HttpResponse.BodyHandlers.ofString());
+
+                if (response.statusCode() != 200) {
+                    System.err.println("Error: HTTP " + response.statusCode() + " " + response.body());
+                    return;
+                }
+
+                ObjectMapper mapper = new ObjectMapper();
+                Map<String, Object> report = mapper.readValue(response.body(), new TypeReference<>() { });
+
+                if (json) {
+                    System.out.println(mapper.writerWithDefaultPrettyPrinter().writeValueAsString(report));
+                    return;
+                }
+
+                System.out.println("Storm " + report.get("name") + " (" + report.get("type") + ", " +
+                        report.get("status") + ") - " + report.get("durationSec") + "s");
+                System.out.println("Target: " + report.get("targetCount") +
+                        "  Sent: " + report.get("sentCount") +
+                        "  Completed: " + report.get("completedCount") +
+                        "  Failed: " + report.get("failureCount") +
+                        "  Skipped: " + report.get("skippedCount") +
+                        "  Retransmissions: " + report.get("retransmissionCount") +
+                        "  Timeouts: " + report.get("timeoutCount"));
+                System.out.println("Rate: requested " + Objects.requireNonNullElse(report.get("requestedRate"), "-") +
+                        "/s, achieved send " + report.get("achievedSendRate") +
+                        "/s, completion " + report.get("achievedCompletionRate") + "/s");
+                System.out.println();
+
+                System.out.println(renderLatency("Phase", castMap(report.get("latency"))));
+                System.out.println(renderLatency("PON", castMap(report.get("byPon"))));
+                System.out.println(renderLatency("VLAN", castMap(report.get("byVlan"))));
+
+                if (showTimeline) {
+                    List<Map<String, Object>> timeline = mapper.convertValue(report.get("timeline"),
+                            new TypeReference<>() { });
+                    AsciiTable at = new AsciiTable();
+                    at.addRule();
+                    at.addRow("Second", "Sent", "Completed");
+                    at.addRule();
+                    for (Map<String, Object> point : timeline) {
+                        at.addRow(point.get("second"), point.get("sent"), point.get("completed"));
+                    }
+                    at.addRule();
+                    at.getRenderer().setCWC(new CWC_LongestLine());
+                    System.out.println(at.render());
+                }
+
+            } catch (Exception e) {
+                System.err.println("Error getting storm report: " + e.getMessage());
+            }
+        }
+
+        private String renderLatency(String keyTitle, Map<String, Object> histograms) {
+            AsciiTable at = new AsciiTable();
+            at.addRule();
+            at.addRow(keyTitle, "Count", "Min ms", "Mean ms", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "Max ms");
+            at.addRule();
+            for (Map.Entry<String, Object> entry : histograms.entrySet()) {
+                Map<String, Object> h = castMap(entry.getValue());
+                at.addRow(entry.getKey(), h.get("count"), h.get("minMs"), h.get("meanMs"), h.get("p50Ms"),
+                        h.get("p90Ms"), h.get("p99Ms"), h.get("p999Ms"), h.get("maxMs"));
+            }
+            at.addRule();
+            at.getRenderer().setCWC(new CWC_LongestLine());
+            return at.render();
+        }
+
+        @SuppressWarnings("unchecked")
+        private Map<String, Object> castMap(Object value) {
+            return value instanceof Map ? (Map<String, Object>) value : Map.of();
+        }
     }
 
     @Command(name = "dhcp",
@@ -618,6 +851,290 @@ class BpsimctlCommand implements Runnable {
         }
     }
 
+    @Command(name = "batch",
+            mixinStandardHelpOptions = true,
+            description = "Send a file of DHCP simulation requests (JSON array or NDJSON) in one batch")
+    static class BatchCommand implements Runnable {
+
+        @Parameters(index = "0", description = "Request file, JSON array or one JSON request per line ('-' for standard input)")
+        String file;
+
+        @Option(names = {"-j", "--json"}, description = "Print every per-request result as NDJSON")
+        boolean json = false;
+
+        @Option(names = {"-U", "--url"}, description = "Server URL (default: http://localhost:8080)")
+        String serverUrl = "http://localhost:8080";
+
+        @Override
+        public void run() {
+            try (HttpClient client = HttpClient.newHttpClient()) {
+                byte[] payload = "-".equals(file) ? System.in.readAllBytes()
+                        : java.nio.file.Files.readAllBytes(java.nio.file.Path.of(file));
+                String text = new String(payload, StandardCharsets.UTF_8).stripLeading();
+                HttpRequest httpRequest = HttpRequest.newBuilder()
+                        .uri(URI.create(serverUrl + "/dhcp/batch"))
+                        .header("Content-Type", text.startsWith("[") ? "application/json" : "application/x-ndjson")
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(payload))
+                        .build();
+
+                // Results arrive while the batch runs, one line per request
+                HttpResponse<java.util.stream.Stream<String>> response = client.send(httpRequest,
+                        HttpResponse.BodyHandlers.ofLines());
+
+                if (response.statusCode() != 200) {
+                    String body = String.join("\n", response.body().toList());
+                    System.err.println("Error: HTTP " + response.statusCode() + " " + formatBatchError(body));
+                    return;
+                }
+
+                ObjectMapper mapper = new ObjectMapper();
+                int ok = 0;
+                int failed = 0;
+                for (String line : (Iterable<String>) response.body()::iterator) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    if (json) {
+                        System.out.println(line);
+                    }
+                    Map<String, Object> result = mapper.readValue(line, new TypeReference<>() { });
+                    if ("ok".equals(result.get("status"))) {
+                        ok++;
+                    } else {
+                        failed++;
+                        if (!json) {
+                            System.err.println("Request " + result.get("index") + " failed: " + result.get("message"));
+                        }
+                    }
+                }
+                System.err.println("Batch completed: " + ok + " succeeded, " + failed + " failed");
+
+            } catch (Exception e) {
+                System.err.println("Error sending batch: " + e.getMessage());
+            }
+        }
+
+        private String formatBatchError(String body) {
+            try {
+                Map<String, Object> error = new ObjectMapper().readValue(body, new TypeReference<>() { });
+                StringBuilder message = new StringBuilder(String.valueOf(error.get("message")));
+                if (error.get("items") instanceof List<?> items) {
+                    for (Object item : items) {
+                        if (item instanceof Map<?, ?> invalid) {
+                            message.append("\n  request ").append(invalid.get("index")).append(": ").append(invalid.get("message"));
+                        }
+                    }
+                }
+                return message.toString();
+            } catch (Exception e) {
+                return body;
+            }
+        }
+    }
+
+    @Command(name = "export",
+            mixinStandardHelpOptions = true,
+            description = "Export all devices as NDJSON or CSV to a file or standard output")
+    static class ExportCommand implements Runnable {
+
+        @Option(names = {"-F", "--format"}, description = "Output format: ndjson or csv (default: ndjson)")
+        String format = "ndjson";
+
+        @Option(names = {"-z", "--gzip"}, description = "Gzip-compress the output")
+        boolean gzip = false;
+
+        @Option(names = {"-o", "--output"}, description = "Output file (default: standard output)")
+        java.nio.file.Path output;
+
+        @Option(names = {"-v", "--vlan"}, description = "Filter by VLAN ID")
+        Integer vlanId;
+
+        @Option(names = {"-p", "--pon"}, description = "Filter by PON Port")
+        Integer ponPort;
+
+        @Option(names = {"-s", "--state"}, description = "Filter by DHCP state")
+        String state;
+
+        @Option(names = {"-U", "--url"}, description = "Server URL (default: http://localhost:8080)")
+        String serverUrl = "http://localhost:8080";
+
+        @Override
+        public void run() {
+            List<String> queryParams = new ArrayList<>();
+            queryParams.add("format=" + java.net.URLEncoder.encode(format, StandardCharsets.UTF_8));
+            if (gzip) {
+                queryParams.add("compress=gzip");
+            }
+            if (vlanId != null) {
+                queryParams.add("vlanId=" + vlanId);
+            }
+            if (ponPort != null) {
+                queryParams.add("ponPort=" + ponPort);
+            }
+            if (state != null && !state.trim().isEmpty()) {
+                queryParams.add("state=" + java.net.URLEncoder.encode(state.trim(), StandardCharsets.UTF_8));
+            }
+
+            try (HttpClient client = HttpClient.newHttpClient()) {
+                HttpRequest httpRequest = HttpRequest.newBuilder()
+                        .uri(URI.create(serverUrl + "/dhcp/export?" + String.join("&", queryParams)))
+                        .GET()
+                        .build();
+
+                // Streamed straight through, the export is never held in memory
+                HttpResponse<java.io.InputStream> response = client.send(httpRequest,
+                        HttpResponse.BodyHandlers.ofInputStream());
+
+                try (java.io.InputStream body = response.body()) {
+                    if (response.statusCode() != 200) {
+                        System.err.println("Error: HTTP " + response.statusCode() + " "
+                                + new String(body.readAllBytes(), StandardCharsets.UTF_8));
+                        return;
+                    }
+                    if (output == null) {
+                        body.transferTo(System.out);
+                        System.out.flush();
+                    } else {
+                        try (java.io.OutputStream file = java.nio.file.Files.newOutputStream(output)) {
+                            long bytes = body.transferTo(file);
+                            System.err.println("Exported " + bytes + " bytes to " + output);
+                        }
+                    }
+                }
+
+            } catch (Exception e) {
+                System.err.println("Error exporting devices: " + e.getMessage());
+            }
+        }
+    }
+
+    @Command(name = "stats",
+            mixinStandardHelpOptions = true,
+            description = "Show device, DHCP and IP pool statistics, with PON and VLAN breakdowns")
+    static class StatsCommand implements Runnable {
+
+        @Option(names = {"-H", "--history"}, description = "Also show the latest N history samples")
+        int history = 0;
+
+        @Option(names = {"-w", "--watch"}, description = "Refresh every N milliseconds until interrupted")
+        Long watchMs;
+
+        @Option(names = {"-j", "--json"}, description = "Print the raw JSON statistics")
+        boolean json;
+
+        @Option(names = {"-U", "--url"}, description = "Server URL (default: http://localhost:8080)")
+        String serverUrl = "http://localhost:8080";
+
+        @Override
+        public void run() {
+            try (HttpClient client = HttpClient.newHttpClient()) {
+                ObjectMapper mapper = new ObjectMapper();
+                String etag = null;
+
+                while (true) {
+                    HttpRequest.Builder httpRequest = HttpRequest.newBuilder()
+                            .uri(URI.create(serverUrl + "/dhcp/stats?history=" + Math.max(0, history)))
+                            .header("Accept", "application/json")
+                            .GET();
+                    if (etag != null) {
+                        // Unchanged statistics come back as an empty 304 and are not printed again
+                        httpRequest.header("If-None-Match", etag);
+                    }
+                    HttpResponse<String> response = client.send(httpRequest.build(),
+                            HttpResponse.BodyHandlers.ofString());
+
+                    if (response.statusCode() == 304) {
+                        Thread.sleep(Math.max(100, watchMs));
+                        continue;
+                    }
+                    if (response.statusCode() != 200) {
+                        System.err.println("Error: HTTP " + response.statusCode() + " " + response.body());
+                        return;
+                    }
+
+                    etag = response.headers().firstValue("ETag").orElse(null);
+                    Map<String, Object> stats = mapper.readValue(response.body(), new TypeReference<>() { });
+                    if (json) {
+                        System.out.println(mapper.writeValueAsString(stats));
+                    } else {
+                        printStats(stats);
+                    }
+                    if (watchMs == null) {
+                        return;
+                    }
+                    Thread.sleep(Math.max(100, watchMs));
+                }
+
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                System.err.println("Error getting statistics: " + e.getMessage());
+            }
+        }
+
+        private void printStats(Map<String, Object> stats) {
+            Map<String, Object> pool = castMap(stats.get("pool"));
+            System.out.println("Statistics at " + stats.get("timestamp"));
+            System.out.println("Devices: " + stats.get("totalDevices") +
+                    "  Completed exchanges: " + stats.get("completedExchanges") +
+                    " (" + stats.get("completedPerSecond") + "/s)" +
+                    "  IPs: " + pool.get("usedIPs") + "/" + pool.get("usableIPs") +
+                    " (" + pool.get("utilizationPercent") + "%)");
+            System.out.println("States: " + castMap(stats.get("stateCount")));
+
+            AsciiTable pons = new AsciiTable();
+            pons.addRule();
+            pons.addRow("PON", "Devices", "States");
+            pons.addRule();
+            castMap(stats.get("ponPorts")).forEach((pon, value) -> {
+                Map<String, Object> row = castMap(value);
+                pons.addRow(pon, row.get("devices"), formatStates(castMap(row.get("stateCount"))));
+            });
+            pons.addRule();
+            pons.getRenderer().setCWC(new CWC_LongestLine());
+            System.out.println(pons.render());
+
+            AsciiTable vlans = new AsciiTable();
+            vlans.addRule();
+            vlans.addRow("VLAN", "Devices", "Used IPs", "Usable IPs", "Utilization %", "States");
+            vlans.addRule();
+            castMap(stats.get("vlans")).forEach((vlan, value) -> {
+                Map<String, Object> row = castMap(value);
+                vlans.addRow(vlan, row.get("devices"), row.get("usedIPs"), row.get("usableIPs"),
+                        row.get("utilizationPercent"), formatStates(castMap(row.get("stateCount"))));
+            });
+            vlans.addRule();
+            vlans.getRenderer().setCWC(new CWC_LongestLine());
+            System.out.println(vlans.render());
+
+            if (stats.get("history") instanceof List<?> samples && !samples.isEmpty()) {
+                AsciiTable at = new AsciiTable();
+                at.addRule();
+                at.addRow("Time", "Devices", "Completed", "Completed/s", "Used IPs");
+                at.addRule();
+                for (Object sample : samples) {
+                    Map<String, Object> row = castMap(sample);
+                    at.addRow(row.get("timestamp"), row.get("totalDevices"), row.get("completedExchanges"),
+                            row.get("completedPerSecond"), row.get("usedIPs"));
+                }
+                at.addRule();
+                at.getRenderer().setCWC(new CWC_LongestLine());
+                System.out.println(at.render());
+            }
+        }
+
+        private String formatStates(Map<String, Object> states) {
+            List<String> parts = new ArrayList<>();
+            states.forEach((state, count) -> parts.add(state + "=" + count));
+            return parts.isEmpty() ? "-" : String.join(" ", parts);
+        }
+
+        @SuppressWarnings("unchecked")
+        private Map<String, Object> castMap(Object value) {
+            return value instanceof Map ? (Map<String, Object>) value : Map.of();
+        }
+    }
+
     @Command(name = "info",
             mixinStandardHelpOptions = true,
             description = "Show system configuration information")
@@ -663,17 +1180,24 @@ class BpsimctlCommand implements Runnable {
 
     @Command(name = "stop",
             mixinStandardHelpOptions = true,
-            description = "Stop currently running DHCP storm")
+            description = "Stop a named DHCP storm, or all running storms")
     static class StopCommand implements Runnable {
 
+        @Parameters(index = "0", arity = "0..1", description = "Storm name (default: all running storms)")
+        String name;
+
         @Option(names = {"-U", "--url"}, description = "Server URL (default: http://localhost:8080)")
         String serverUrl = "http://localhost:8080";
 
         @Override
         public void run() {
+            String path = name == null
+                    ? "/dhcp/storm/cancel"
+                    : "/dhcp/storm/" + java.net.URLEncoder.encode(name, StandardCharsets.UTF_8).replace("+", "%20") + "/cancel";
+
             try (HttpClient client = HttpClient.newHttpClient()) {
                 HttpRequest httpRequest = HttpRequest.newBuilder()
-                        .uri(URI.create(serverUrl + "/dhcp/storm/cancel"))
+                        .uri(URI.create(serverUrl + path))
                         .header("Content-Type", "application/json")
                         .POST(HttpRequest.BodyPublishers.noBody())
                         .build();
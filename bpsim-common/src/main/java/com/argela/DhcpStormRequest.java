@@ -2,14 +2,46 @@ package com.argela;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import java.util.List;
+
 public class DhcpStormRequest {
 
+    // Storm types
+    public static final String TYPE_DISCOVER = "discover";
+    public static final String TYPE_RENEW = "renew";
+    public static final String TYPE_REBIND = "rebind";
+
+    @JsonProperty("name")
+    private String name;
+
+    @JsonProperty("type")
+    private String type;
+
     @JsonProperty("rate")
     private Integer rate;
 
     @JsonProperty("intervalSec")
     private Double intervalSec;
 
+    // Target selector (all optional, null means "any")
+    @JsonProperty("ponPortStart")
+    private Integer ponPortStart;
+
+    @JsonProperty("ponPortEnd")
+    private Integer ponPortEnd;
+
+    @JsonProperty("onuIdStart")
+    private Integer onuIdStart;
+
+    @JsonProperty("onuIdEnd")
+    private Integer onuIdEnd;
+
+    @JsonProperty("vlanIds")
+    private List<Integer> vlanIds;
+
+    @JsonProperty("state")
+    private String state;
+
     // Default constructor
     public DhcpStormRequest() {
     }
@@ -20,23 +52,65 @@ public class DhcpStormRequest {
         this.intervalSec = intervalSec;
     }
 
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+
     public Integer getRate() { return rate; }
     public void setRate(Integer rate) { this.rate = rate; }
 
     public Double getIntervalSec() { return intervalSec; }
     public void setIntervalSec(Double intervalSec) { this.intervalSec = intervalSec; }
 
+    public Integer getPonPortStart() { return ponPortStart; }
+    public void setPonPortStart(Integer ponPortStart) { this.ponPortStart = ponPortStart; }
+
+    public Integer getPonPortEnd() { return ponPortEnd; }
+    public void setPonPortEnd(Integer ponPortEnd) { this.ponPortEnd = ponPortEnd; }
+
+    public Integer getOnuIdStart() { return onuIdStart; }
+    public void setOnuIdStart(Integer onuIdStart) { this.onuIdStart = onuIdStart; }
+
+    public Integer getOnuIdEnd() { return onuIdEnd; }
+    public void setOnuIdEnd(Integer onuIdEnd) { this.onuIdEnd = onuIdEnd; }
+
+    public List<Integer> getVlanIds() { return vlanIds; }
+    public void setVlanIds(List<Integer> vlanIds) { this.vlanIds = vlanIds; }
+
+    public String getState() { return state; }
+    public void setState(String state) { this.state = state; }
+
     // toString method for debugging
     @Override
     public String toString() {
         return "DhcpStormRequest{" +
-                "rate=" + rate +
+                "name='" + name + '\'' +
+                ", type='" + type + '\'' +
+                ", rate=" + rate +
                 ", intervalSec=" + intervalSec +
+                ", ponPortStart=" + ponPortStart +
+                ", ponPortEnd=" + ponPortEnd +
+                ", onuIdStart=" + onuIdStart +
+                ", onuIdEnd=" + onuIdEnd +
+                ", vlanIds=" + vlanIds +
+                ", state='" + state + '\'' +
                 '}';
     }
 
     // Validation helper method
     public boolean isValid() {
+        if (type != null && !type.isBlank() && !TYPE_DISCOVER.equalsIgnoreCase(type.trim()) &&
+                !TYPE_RENEW.equalsIgnoreCase(type.trim()) && !TYPE_REBIND.equalsIgnoreCase(type.trim())) {
+            return false;
+        }
+        if (ponPortStart != null && ponPortEnd != null && ponPortStart > ponPortEnd) {
+            return false;
+        }
+        if (onuIdStart != null && onuIdEnd != null && onuIdStart > onuIdEnd) {
+            return false;
+        }
         return (rate != null && rate > 0) || (intervalSec != null && intervalSec > 0);
     }
-}
\ No newline at end of file
+}
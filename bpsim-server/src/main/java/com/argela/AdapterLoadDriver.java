@@ -0,0 +1,357 @@
+package com.argela;
+
+import com.google.protobuf.ByteString;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.stub.MetadataUtils;
+import io.grpc.stub.StreamObserver;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.opencord.voltha.openolt.OpenoltGrpc;
+import org.opencord.voltha.openolt.VolthaOpenOLT.Empty;
+import org.opencord.voltha.openolt.VolthaOpenOLT.Indication;
+import org.opencord.voltha.openolt.VolthaOpenOLT.OnuPacket;
+import org.opencord.voltha.openolt.VolthaOpenOLT.PacketIndication;
+import org.opencord.voltha.openolt.VolthaOpenOLT.UplinkPacket;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Built-in stand-in for the VOLTHA adapter and DHCP relay, used to close the DHCP loop without outside services.
+ * It opens N gRPC channels to the simulator (see {@link GrpcTransports}), subscribes each one to a hash
+ * partition of EnablePacketIndication and echoes every DHCP packet straight back: DISCOVER/REQUEST through
+ * UplinkPacketOut, OFFER/ACK through OnuPacketOut. The DHCP message type is peeked from the raw frame, packets are never fully parsed.
+ */
+@ApplicationScoped
+public class AdapterLoadDriver {
+    private static final Logger logger = LoggerFactory.getLogger(AdapterLoadDriver.class);
+
+    private static final int DHCP_DISCOVER = 1;
+    private static final int DHCP_OFFER = 2;
+    private static final int DHCP_REQUEST = 3;
+    private static final int DHCP_ACK = 5;
+
+    @ConfigProperty(name = "dhcp.driver.channels", defaultValue = "4")
+    int defaultChannels;
+
+    @ConfigProperty(name = "dhcp.driver.max.inflight", defaultValue = "1024")
+    int maxInFlight;
+
+    @ConfigProperty(name = "dhcp.driver.transport", defaultValue = "tcp")
+    String defaultTransport;
+
+    @Inject
+    GrpcTransports transports;
+
+    private volatile Run run;
+
+    /**
+     * Connects the driver and starts echoing DHCP packets
+     * @param channels Number of parallel channels (one indication partition each), null for the configured default
+     * @param transport Transport of the channels, null for the configured default
+     * @return The driver status
+     * @throws IllegalStateException if the driver is already running
+     * @throws IllegalArgumentException if the transport is unknown or not enabled
+     */
+    public synchronized Map<String, Object> start(Integer channels, String transport) {
+        if (run != null && run.isRunning()) {
+            throw new IllegalStateException("Load driver is already running");
+        }
+        int channelCount = channels != null && channels > 0 ? channels : defaultChannels;
+        String transportName = transport == null || transport.isBlank() ? defaultTransport : transport;
+        Run started = new Run(channelCount, transportName);
+        try {
+            for (int i = 0; i < channelCount; i++) {
+                started.lanes.add(new Lane(started, i, channelCount, transports.openChannel(transportName)));
+            }
+        } catch (RuntimeException e) {
+            started.lanes.forEach(lane -> lane.channel.shutdownNow());
+            throw e;
+        }
+        run = started;
+        started.lanes.forEach(Lane::subscribe);
+        logger.info("Adapter load driver started - target: {}, channels: {}, max in-flight per channel: {}",
+                started.target, channelCount, maxInFlight);
+        return started.status();
+    }
+
+    /**
+     * Disconnects the driver
+     * @return The final driver status, or null if it was not running
+     */
+    @PreDestroy
+    public synchronized Map<String, Object> stop() {
+        Run current = run;
+        if (current == null || !current.isRunning()) {
+            return null;
+        }
+        current.endTime = Instant.now();
+        for (Lane lane : current.lanes) {
+            lane.channel.shutdownNow();
+        }
+        logger.info("Adapter load driver stopped - forwarded: {}, errors: {}",
+                current.forwardedCount(), current.errorCount.get());
+        return current.status();
+    }
+
+    /**
+     * Gets the driver status and counters of the current or last run
+     * @return Status map
+     */
+    public Map<String, Object> getStatus() {
+        Run current = run;
+        if (current == null) {
+            Map<String, Object> status = new LinkedHashMap<>();
+            status.put("running", false);
+            return status;
+        }
+        return current.status();
+    }
+
+    /**
+     * Peeks the DHCP message type (option 53) of an Ethernet frame without parsing it.
+     * Handles any number of VLAN tags and IPv4 options.
+     * @param frame The Ethernet frame
+     * @return DHCP message type, or 0 if the frame is not a DHCP packet
+     */
+    static int dhcpMessageType(ByteString frame) {
+        int length = frame.size();
+        int offset = 12;
+        if (length < offset + 2) return 0;
+        int etherType = u16(frame, offset);
+        while (etherType == 0x8100 || etherType == 0x88A8 || etherType == 0x9100) {
+            offset += 4;
+            if (length < offset + 2) return 0;
+            etherType = u16(frame, offset);
+        }
+        offset += 2;
+        if (etherType != 0x0800 || length < offset + 20) return 0;
+
+        int headerLength = (frame.byteAt(offset) & 0x0F) * 4;
+        if ((frame.byteAt(offset + 9) & 0xFF) != 17) return 0;
+        int udp = offset + headerLength;
+        if (length < udp + 8) return 0;
+        int sourcePort = u16(frame, udp);
+        int destinationPort = u16(frame, udp + 2);
+        if (sourcePort != 67 && sourcePort != 68 && destinationPort != 67 && destinationPort != 68) return 0;
+
+        // Fixed BOOTP header (236 bytes) followed by the magic cookie 0x63825363
+        int cookie = udp + 8 + 236;
+        if (length < cookie + 4 || u16(frame, cookie) != 0x6382 || u16(frame, cookie + 2) != 0x5363) return 0;
+        int option = cookie + 4;
+        while (option < length) {
+            int code = frame.byteAt(option) & 0xFF;
+            if (code == 255) break;
+            if (code == 0) {
+                option++;
+                continue;
+            }
+            if (option + 1 >= length) break;
+            int optionLength = frame.byteAt(option + 1) & 0xFF;
+            if (code == 53) {
+                return optionLength >= 1 && option + 2 < length ? frame.byteAt(option + 2) & 0xFF : 0;
+            }
+            option += 2 + optionLength;
+        }
+        return 0;
+    }
+
+    private static int u16(ByteString frame, int offset) {
+        return ((frame.byteAt(offset) & 0xFF) << 8) | (frame.byteAt(offset + 1) & 0xFF);
+    }
+
+    /**
+     * One driver run and its counters
+     */
+    private final class Run {
+        final int channelCount;
+        final String target;
+        final List<Lane> lanes = new ArrayList<>();
+        final Instant startTime = Instant.now();
+        volatile Instant endTime;
+        final AtomicLong indicationCount = new AtomicLong();
+        final AtomicLong discoverCount = new AtomicLong();
+        final AtomicLong offerCount = new AtomicLong();
+        final AtomicLong requestCount = new AtomicLong();
+        final AtomicLong ackCount = new AtomicLong();
+        final AtomicLong ignoredCount = new AtomicLong();
+        final AtomicLong errorCount = new AtomicLong();
+
+        Run(int channelCount, String transport) {
+            this.channelCount = channelCount;
+            this.target = transports.describeTarget(transport);
+        }
+
+        boolean isRunning() {
+            return endTime == null;
+        }
+
+        long forwardedCount() {
+            return discoverCount.get() + offerCount.get() + requestCount.get() + ackCount.get();
+        }
+
+        Map<String, Object> status() {
+            Instant end = endTime == null ? Instant.now() : endTime;
+            double durationSec = Math.max(1, end.toEpochMilli() - startTime.toEpochMilli()) / 1000.0;
+            int inFlight = lanes.stream().mapToInt(lane -> maxInFlight - lane.inFlight.availablePermits()).sum();
+
+            Map<String, Object> status = new LinkedHashMap<>();
+            status.put("running", isRunning());
+            status.put("target", target);
+            status.put("channels", channelCount);
+            status.put("connectedChannels", lanes.stream().filter(lane -> lane.connected).count());
+            status.put("startTime", startTime);
+            status.put("endTime", endTime);
+            status.put("durationSec", durationSec);
+            status.put("indications", indicationCount.get());
+            status.put("discover", discoverCount.get());
+            status.put("offer", offerCount.get());
+            status.put("request", requestCount.get());
+            status.put("ack", ackCount.get());
+            status.put("ignored", ignoredCount.get());
+            status.put("errors", errorCount.get());
+            status.put("inFlight", inFlight);
+            status.put("forwardedPerSec", Math.round(forwardedCount() / durationSec));
+            return status;
+        }
+    }
+
+    /**
+     * A channel with its indication partition. Packet-outs are sent asynchronously, bounded by the in-flight limit;
+     * blocking the indication callback when the limit is reached pushes back on the stream through flow control.
+     */
+    private final class Lane implements StreamObserver<Indication> {
+        final Run owner;
+        final int index;
+        final ManagedChannel channel;
+        final OpenoltGrpc.OpenoltStub stub;
+        final Semaphore inFlight = new Semaphore(maxInFlight);
+        volatile boolean connected;
+
+        private final StreamObserver<Empty> completion = new StreamObserver<>() {
+            @Override
+            public void onNext(Empty value) { }
+
+            @Override
+            public void onError(Throwable t) {
+                inFlight.release();
+                owner.errorCount.incrementAndGet();
+                logger.debug("Load driver packet-out failed: {}", t.getMessage());
+            }
+
+            @Override
+            public void onCompleted() {
+                inFlight.release();
+            }
+        };
+
+        Lane(Run owner, int index, int count, ManagedChannel channel) {
+            this.owner = owner;
+            this.index = index;
+            this.channel = channel;
+            OpenoltGrpc.OpenoltStub base = OpenoltGrpc.newStub(channel);
+            if (count > 1) {
+                Metadata headers = new Metadata();
+                headers.put(IndicationShard.PARTITION_HEADER, index + "/" + count);
+                base = base.withInterceptors(MetadataUtils.newAttachHeadersInterceptor(headers));
+            }
+            this.stub = base;
+        }
+
+        void subscribe() {
+            connected = true;
+            stub.enablePacketIndication(Empty.getDefaultInstance(), this);
+        }
+
+        @Override
+        public void onNext(Indication indication) {
+            if (!indication.hasPktInd()) {
+                return;
+            }
+            owner.indicationCount.incrementAndGet();
+            PacketIndication packet = indication.getPktInd();
+            switch (dhcpMessageType(packet.getPkt())) {
+                case DHCP_DISCOVER -> {
+                    owner.discoverCount.incrementAndGet();
+                    uplink(packet);
+                }
+                case DHCP_REQUEST -> {
+                    owner.requestCount.incrementAndGet();
+                    uplink(packet);
+                }
+                case DHCP_OFFER -> {
+                    owner.offerCount.incrementAndGet();
+                    downlink(packet);
+                }
+                case DHCP_ACK -> {
+                    owner.ackCount.incrementAndGet();
+                    downlink(packet);
+                }
+                default -> owner.ignoredCount.incrementAndGet();
+            }
+        }
+
+        private void uplink(PacketIndication packet) {
+            if (acquire()) {
+                stub.uplinkPacketOut(UplinkPacket.newBuilder()
+                        .setIntfId(0)
+                        .setFlowId(packet.getFlowId())
+                        .setPkt(packet.getPkt())
+                        .build(), completion);
+            }
+        }
+
+        private void downlink(PacketIndication packet) {
+            if (acquire()) {
+                stub.onuPacketOut(OnuPacket.newBuilder()
+                        .setIntfId(packet.getIntfId())
+                        .setOnuId(packet.getOnuId())
+                        .setPortNo(packet.getPortNo())
+                        .setGemportId(packet.getGemportId())
+                        .setPkt(packet.getPkt())
+                        .build(), completion);
+            }
+        }
+
+        private boolean acquire() {
+            try {
+                while (owner.isRunning()) {
+                    if (inFlight.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+                        return true;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            owner.ignoredCount.incrementAndGet();
+            return false;
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            connected = false;
+            if (owner.isRunning()) {
+                owner.errorCount.incrementAndGet();
+                logger.warn("Load driver channel {} lost its indication stream: {}", index, t.getMessage());
+            }
+        }
+
+        @Override
+        public void onCompleted() {
+            connected = false;
+            logger.info("Load driver channel {} indication stream completed", index);
+        }
+    }
+}
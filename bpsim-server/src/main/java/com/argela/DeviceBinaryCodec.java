@@ -0,0 +1,188 @@
+package com.argela;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Encoder of the "bpsim.binary.v1" WebSocket subprotocol: device frames made of fixed-layout records.
+ * All fields are little-endian. A frame starts with a 32-byte header:
+ * <pre>
+ *  0 u8  message type (1 = device batch, 2 = snapshot chunk)
+ *  1 u8  protocol version (1)
+ *  2 u8  flags (bit 0: last snapshot chunk, bit 1: total present)
+ *  3 u8  reserved
+ *  4 i64 flush sequence number
+ * 12 u32 total matching devices
+ * 16 u32 snapshot chunk index
+ * 20 u32 viewport offset
+ * 24 u32 device record count
+ * 28 u32 removed device ID count
+ * </pre>
+ * followed by the device records of {@value #RECORD_SIZE} bytes and the removed device IDs (u32 each).
+ * A device record is:
+ * <pre>
+ *  0 u32 id               28 u32 xid
+ *  4 u8  state ordinal    32 u32 IP address       36 u32 required IP
+ *  5 u8  reserved         40 u32 gateway          44 u32 primary DNS
+ *  6 u16 VLAN ID          48 u32 secondary DNS    52 u32 server identifier
+ *  8 u16 PON port         56 u32 subnet mask      60 u32 lease time (seconds)
+ * 10 u16 ONU ID           64 i64 lease start (epoch nanos)
+ * 12 u16 UNI ID           72 i64 DHCP start (epoch nanos)
+ * 14 u16 GEM port         80 i64 DHCP completion (epoch nanos)
+ * 16 u8[6] MAC            88 end
+ * 22 u16 reserved, 24 u32 reserved
+ * </pre>
+ * Unset addresses and timestamps are 0. The state ordinal indexes {@link #STATES}; unknown states are 255.
+ */
+public final class DeviceBinaryCodec {
+    public static final String SUBPROTOCOL = "bpsim.binary.v1";
+
+    public static final byte TYPE_DEVICE_BATCH = 1;
+    public static final byte TYPE_SNAPSHOT_CHUNK = 2;
+    public static final int HEADER_SIZE = 32;
+    public static final int RECORD_SIZE = 88;
+
+    private static final byte VERSION = 1;
+    private static final int FLAG_LAST_CHUNK = 1;
+    private static final int FLAG_TOTAL = 2;
+    private static final int UNKNOWN_STATE = 255;
+
+    /** Device states by ordinal; the dashboard decoder keeps the same table */
+    public static final List<String> STATES = List.of(
+            "IDLE", "DISCOVERING", "OFFERING", "OFFERED", "REQUESTING", "ACKNOWLEDGING", "ACKNOWLEDGED",
+            "TIMEOUT", DhcpLeaseRenewalManager.STATE_RENEWING, DhcpLeaseRenewalManager.STATE_REBINDING);
+
+    private DeviceBinaryCodec() {
+    }
+
+    /**
+     * Encodes a device batch
+     * @param devices Updated devices
+     * @param removed IDs of devices that were removed or left the viewport, may be null
+     * @param total Number of matching devices, null if unknown
+     * @param sequence Flush sequence number
+     * @return Frame ready to be sent
+     */
+    public static ByteBuffer encodeBatch(List<DeviceInfo> devices, List<Integer> removed, Integer total, long sequence) {
+        return encode(TYPE_DEVICE_BATCH, total != null ? FLAG_TOTAL : 0, sequence,
+                total != null ? total : 0, 0, 0, devices, removed);
+    }
+
+    /**
+     * Encodes a snapshot chunk
+     * @param devices Devices of the chunk
+     * @param total Number of devices in the whole snapshot
+     * @param chunk Chunk index, 0 replaces what the client showed before
+     * @param last true for the last chunk
+     * @param offset Viewport offset of the snapshot
+     * @param sequence Flush sequence number the snapshot is newer than
+     * @return Frame ready to be sent
+     */
+    public static ByteBuffer encodeSnapshotChunk(List<DeviceInfo> devices, int total, int chunk, boolean last,
+                                                 int offset, long sequence) {
+        return encode(TYPE_SNAPSHOT_CHUNK, FLAG_TOTAL | (last ? FLAG_LAST_CHUNK : 0), sequence,
+                total, chunk, offset, devices, null);
+    }
+
+    private static ByteBuffer encode(byte type, int flags, long sequence, int total, int chunk, int offset,
+                                     List<DeviceInfo> devices, List<Integer> removed) {
+        int removedCount = removed == null ? 0 : removed.size();
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + devices.size() * RECORD_SIZE + removedCount * 4)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(type).put(VERSION).put((byte) flags).put((byte) 0)
+                .putLong(sequence)
+                .putInt(total)
+                .putInt(chunk)
+                .putInt(offset)
+                .putInt(devices.size())
+                .putInt(removedCount);
+        for (DeviceInfo device : devices) {
+            buffer.put(DeviceEncodings.record(device));
+        }
+        for (int i = 0; i < removedCount; i++) {
+            buffer.putInt(removed.get(i));
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Writes the record of a device; use {@link DeviceEncodings#record} to get it cached
+     * @param buffer Little-endian buffer with at least {@value #RECORD_SIZE} bytes remaining
+     * @param device The device
+     */
+    static void writeRecord(ByteBuffer buffer, DeviceInfo device) {
+        int state = STATES.indexOf(device.getState());
+        String dns = device.getDns();
+        int comma = dns == null ? -1 : dns.indexOf(',');
+
+        buffer.putInt(device.getId())
+                .put((byte) (state < 0 ? UNKNOWN_STATE : state))
+                .put((byte) 0)
+                .putShort((short) device.getVlanId())
+                .putShort((short) device.getPonPort())
+                .putShort((short) device.getOnuId())
+                .putShort((short) device.getUniId())
+                .putShort((short) device.getGemPort());
+        putMac(buffer, device.getClientMac());
+        buffer.putShort((short) 0)
+                .putInt(0)
+                .putInt(device.getXid())
+                .putInt(packIp(device.getIpAddress()))
+                .putInt(packIp(device.getRequiredIp()))
+                .putInt(packIp(device.getGateway()))
+                .putInt(packIp(comma < 0 ? dns : dns.substring(0, comma)))
+                .putInt(comma < 0 ? 0 : packIp(dns.substring(comma + 1)))
+                .putInt(packIp(device.getServerIdentifier()))
+                .putInt(packIp(device.getSubnetMask()))
+                .putInt((int) device.getLeaseTime())
+                .putLong(epochNanos(device.getLeaseStartTime()))
+                .putLong(epochNanos(device.getDhcpStartTime()))
+                .putLong(epochNanos(device.getDhcpCompletionTime()));
+    }
+
+    /**
+     * Packs a dotted IPv4 address into an int, most significant byte first
+     * @param ip Address, may be null
+     * @return Packed address, 0 if unset or malformed
+     */
+    static int packIp(String ip) {
+        if (ip == null || ip.isEmpty()) {
+            return 0;
+        }
+        int packed = 0;
+        int octet = 0;
+        int dots = 0;
+        for (int i = 0; i < ip.length(); i++) {
+            char c = ip.charAt(i);
+            if (c == '.') {
+                packed = (packed << 8) | octet;
+                octet = 0;
+                dots++;
+            } else if (c >= '0' && c <= '9') {
+                octet = octet * 10 + (c - '0');
+                if (octet > 255) {
+                    return 0;
+                }
+            } else {
+                return 0;
+            }
+        }
+        return dots == 3 ? (packed << 8) | octet : 0;
+    }
+
+    private static void putMac(ByteBuffer buffer, String mac) {
+        if (mac == null || mac.length() != 17) {
+            buffer.put(new byte[6]);
+            return;
+        }
+        for (int i = 0; i < 6; i++) {
+            buffer.put((byte) ((Character.digit(mac.charAt(i * 3), 16) << 4) | Character.digit(mac.charAt(i * 3 + 1), 16)));
+        }
+    }
+
+    private static long epochNanos(Instant instant) {
+        return instant == null ? 0 : instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+    }
+}
@@ -0,0 +1,486 @@
+package com.argela;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Compressed set of non-negative device IDs in the style of a Roaring bitmap. IDs are split by their
+ * high 16 bits into chunks; a chunk with few IDs is a sorted array of the low 16 bits, a dense chunk
+ * is a 65536-bit bitmap. Sparse keys (one ONU, one VLAN) therefore cost a few bytes per device and dense
+ * ones (a state, a PON) at most one bit per device, and intersecting them is word-wise AND.
+ * <p>
+ * Updates and {@link #copy}, {@link #contains} and {@link #cardinality} are thread-safe. The set operations
+ * and iteration are meant for copies owned by the calling thread, as returned by {@link #copy}.
+ */
+public class DeviceBitmap {
+    // Chunks with more IDs than this are bitmaps, as in Roaring (a 4096-entry array is the size of a bitmap)
+    private static final int ARRAY_MAX = 4096;
+
+    private final TreeMap<Integer, Container> chunks = new TreeMap<>();
+    private volatile int cardinality;
+
+    /**
+     * Adds an ID
+     * @param id Non-negative device ID
+     * @return true if the ID was not in the set
+     */
+    public synchronized boolean add(int id) {
+        Container chunk = chunks.computeIfAbsent(id >>> 16, high -> new ArrayContainer());
+        if (!chunk.add((char) id)) {
+            return false;
+        }
+        if (chunk instanceof ArrayContainer array && array.size > ARRAY_MAX) {
+            chunks.put(id >>> 16, array.toBitmap());
+        }
+        cardinality++;
+        return true;
+    }
+
+    /**
+     * Removes an ID
+     * @param id Device ID
+     * @return true if the ID was in the set
+     */
+    public synchronized boolean remove(int id) {
+        Container chunk = chunks.get(id >>> 16);
+        if (chunk == null || !chunk.remove((char) id)) {
+            return false;
+        }
+        if (chunk.cardinality() == 0) {
+            chunks.remove(id >>> 16);
+        } else if (chunk instanceof BitmapContainer bitmap && bitmap.cardinality <= ARRAY_MAX / 2) {
+            // Converted back only well below the threshold, so IDs toggling around it do not convert every time
+            chunks.put(id >>> 16, bitmap.toArray());
+        }
+        cardinality--;
+        return true;
+    }
+
+    /**
+     * Checks whether an ID is in the set
+     * @param id Device ID
+     * @return true if present
+     */
+    public synchronized boolean contains(int id) {
+        Container chunk = chunks.get(id >>> 16);
+        return chunk != null && chunk.contains((char) id);
+    }
+
+    /**
+     * Gets the number of IDs, without locking
+     * @return ID count
+     */
+    public int cardinality() {
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    /**
+     * Removes every ID
+     */
+    public synchronized void clear() {
+        chunks.clear();
+        cardinality = 0;
+    }
+
+    /**
+     * Copies the set
+     * @return Independent copy
+     */
+    public synchronized DeviceBitmap copy() {
+        DeviceBitmap copy = new DeviceBitmap();
+        chunks.forEach((high, chunk) -> copy.chunks.put(high, chunk.copy()));
+        copy.cardinality = cardinality;
+        return copy;
+    }
+
+    /**
+     * Keeps only the IDs that are also in another set. Call on a set owned by the calling thread.
+     * @param other The other set, which may be shared
+     * @return This set
+     */
+    public DeviceBitmap and(DeviceBitmap other) {
+        synchronized (other) {
+            int count = 0;
+            for (var it = chunks.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<Integer, Container> entry = it.next();
+                Container otherChunk = other.chunks.get(entry.getKey());
+                Container result = otherChunk == null ? null : entry.getValue().and(otherChunk);
+                if (result == null || result.cardinality() == 0) {
+                    it.remove();
+                } else {
+                    entry.setValue(result);
+                    count += result.cardinality();
+                }
+            }
+            cardinality = count;
+        }
+        return this;
+    }
+
+    /**
+     * Adds the IDs of another set. Call on a set owned by the calling thread.
+     * @param other The other set, which may be shared
+     * @return This set
+     */
+    public DeviceBitmap or(DeviceBitmap other) {
+        synchronized (other) {
+            other.chunks.forEach((high, otherChunk) -> {
+                Container chunk = chunks.get(high);
+                chunks.put(high, chunk == null ? otherChunk.copy() : chunk.or(otherChunk));
+            });
+            int count = 0;
+            for (Container chunk : chunks.values()) {
+                count += chunk.cardinality();
+            }
+            cardinality = count;
+        }
+        return this;
+    }
+
+    /**
+     * Gets the smallest ID at or above a value. Call on a set owned by the calling thread.
+     * @param from Lower bound, inclusive
+     * @return The ID, -1 if none
+     */
+    public int nextSetBit(int from) {
+        if (from < 0) {
+            from = 0;
+        }
+        int high = from >>> 16;
+        for (Map.Entry<Integer, Container> entry = chunks.ceilingEntry(high); entry != null;
+             entry = chunks.higherEntry(entry.getKey())) {
+            int found = entry.getValue().next(entry.getKey() == high ? from & 0xFFFF : 0);
+            if (found >= 0) {
+                return (entry.getKey() << 16) | found;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the largest ID at or below a value. Call on a set owned by the calling thread.
+     * @param from Upper bound, inclusive
+     * @return The ID, -1 if none
+     */
+    public int previousSetBit(int from) {
+        if (from < 0) {
+            return -1;
+        }
+        int high = from >>> 16;
+        for (Map.Entry<Integer, Container> entry = chunks.floorEntry(high); entry != null;
+             entry = chunks.lowerEntry(entry.getKey())) {
+            int found = entry.getValue().previous(entry.getKey() == high ? from & 0xFFFF : 0xFFFF);
+            if (found >= 0) {
+                return (entry.getKey() << 16) | found;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Iterates the IDs in order. Call on a set owned by the calling thread.
+     * @param from First ID to consider, inclusive: 0 (ascending) or Integer.MAX_VALUE (descending) for all
+     * @param descending true to iterate from the largest ID down
+     * @return ID iterator
+     */
+    public PrimitiveIterator.OfInt iterator(int from, boolean descending) {
+        return new PrimitiveIterator.OfInt() {
+            private int next = descending ? previousSetBit(from) : nextSetBit(from);
+
+            @Override
+            public boolean hasNext() {
+                return next >= 0;
+            }
+
+            @Override
+            public int nextInt() {
+                if (next < 0) {
+                    throw new NoSuchElementException();
+                }
+                int current = next;
+                if (descending) {
+                    next = previousSetBit(current - 1);
+                } else {
+                    next = current == Integer.MAX_VALUE ? -1 : nextSetBit(current + 1);
+                }
+                return current;
+            }
+        };
+    }
+
+    /**
+     * Streams the IDs in ascending order. Call on a set owned by the calling thread.
+     * @return ID stream
+     */
+    public IntStream stream() {
+        return StreamSupport.intStream(Spliterators.spliterator(iterator(0, false), cardinality,
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * One chunk of 65536 IDs sharing their high 16 bits
+     */
+    private abstract static class Container {
+        abstract boolean add(char low);
+
+        abstract boolean remove(char low);
+
+        abstract boolean contains(char low);
+
+        abstract int cardinality();
+
+        /** Smallest low bits at or above from, -1 if none */
+        abstract int next(int from);
+
+        /** Largest low bits at or below from, -1 if none */
+        abstract int previous(int from);
+
+        abstract Container copy();
+
+        abstract Container and(Container other);
+
+        abstract Container or(Container other);
+    }
+
+    private static final class ArrayContainer extends Container {
+        char[] values = new char[4];
+        int size;
+
+        @Override
+        boolean add(char low) {
+            int index = Arrays.binarySearch(values, 0, size, low);
+            if (index >= 0) {
+                return false;
+            }
+            index = -index - 1;
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            System.arraycopy(values, index, values, index + 1, size - index);
+            values[index] = low;
+            size++;
+            return true;
+        }
+
+        @Override
+        boolean remove(char low) {
+            int index = Arrays.binarySearch(values, 0, size, low);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(values, index + 1, values, index, size - index - 1);
+            size--;
+            return true;
+        }
+
+        @Override
+        boolean contains(char low) {
+            return Arrays.binarySearch(values, 0, size, low) >= 0;
+        }
+
+        @Override
+        int cardinality() {
+            return size;
+        }
+
+        @Override
+        int next(int from) {
+            int index = Arrays.binarySearch(values, 0, size, (char) from);
+            index = index >= 0 ? index : -index - 1;
+            return index < size ? values[index] : -1;
+        }
+
+        @Override
+        int previous(int from) {
+            int index = Arrays.binarySearch(values, 0, size, (char) from);
+            index = index >= 0 ? index : -index - 2;
+            return index >= 0 ? values[index] : -1;
+        }
+
+        @Override
+        Container copy() {
+            ArrayContainer copy = new ArrayContainer();
+            copy.values = Arrays.copyOf(values, Math.max(size, 4));
+            copy.size = size;
+            return copy;
+        }
+
+        @Override
+        Container and(Container other) {
+            ArrayContainer result = new ArrayContainer();
+            result.values = new char[Math.max(size, 4)];
+            for (int i = 0; i < size; i++) {
+                if (other.contains(values[i])) {
+                    result.values[result.size++] = values[i];
+                }
+            }
+            return result;
+        }
+
+        @Override
+        Container or(Container other) {
+            if (other instanceof BitmapContainer) {
+                return other.or(this);
+            }
+            ArrayContainer array = (ArrayContainer) other;
+            char[] merged = new char[size + array.size];
+            int i = 0;
+            int j = 0;
+            int count = 0;
+            while (i < size || j < array.size) {
+                char value;
+                if (j == array.size || (i < size && values[i] < array.values[j])) {
+                    value = values[i++];
+                } else if (i == size || array.values[j] < values[i]) {
+                    value = array.values[j++];
+                } else {
+                    value = values[i++];
+                    j++;
+                }
+                merged[count++] = value;
+            }
+            ArrayContainer result = new ArrayContainer();
+            result.values = merged.length < 4 ? Arrays.copyOf(merged, 4) : merged;
+            result.size = count;
+            return count > ARRAY_MAX ? result.toBitmap() : result;
+        }
+
+        BitmapContainer toBitmap() {
+            BitmapContainer bitmap = new BitmapContainer();
+            for (int i = 0; i < size; i++) {
+                bitmap.add(values[i]);
+            }
+            return bitmap;
+        }
+    }
+
+    private static final class BitmapContainer extends Container {
+        final long[] words = new long[1024];
+        int cardinality;
+
+        @Override
+        boolean add(char low) {
+            long bit = 1L << low;
+            if ((words[low >>> 6] & bit) != 0) {
+                return false;
+            }
+            words[low >>> 6] |= bit;
+            cardinality++;
+            return true;
+        }
+
+        @Override
+        boolean remove(char low) {
+            long bit = 1L << low;
+            if ((words[low >>> 6] & bit) == 0) {
+                return false;
+            }
+            words[low >>> 6] &= ~bit;
+            cardinality--;
+            return true;
+        }
+
+        @Override
+        boolean contains(char low) {
+            return (words[low >>> 6] & (1L << low)) != 0;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        int next(int from) {
+            int index = from >>> 6;
+            long word = words[index] & (-1L << from);
+            while (true) {
+                if (word != 0) {
+                    return (index << 6) + Long.numberOfTrailingZeros(word);
+                }
+                if (++index == words.length) {
+                    return -1;
+                }
+                word = words[index];
+            }
+        }
+
+        @Override
+        int previous(int from) {
+            int index = from >>> 6;
+            long word = words[index] & (-1L >>> (63 - (from & 63)));
+            while (true) {
+                if (word != 0) {
+                    return (index << 6) + 63 - Long.numberOfLeadingZeros(word);
+                }
+                if (index-- == 0) {
+                    return -1;
+                }
+                word = words[index];
+            }
+        }
+
+        @Override
+        Container copy() {
+            BitmapContainer copy = new BitmapContainer();
+            System.arraycopy(words, 0, copy.words, 0, words.length);
+            copy.cardinality = cardinality;
+            return copy;
+        }
+
+        @Override
+        Container and(Container other) {
+            if (other instanceof ArrayContainer) {
+                return other.and(this);
+            }
+            BitmapContainer bitmap = (BitmapContainer) other;
+            BitmapContainer result = new BitmapContainer();
+            int count = 0;
+            for (int i = 0; i < words.length; i++) {
+                result.words[i] = words[i] & bitmap.words[i];
+                count += Long.bitCount(result.words[i]);
+            }
+            result.cardinality = count;
+            return count <= ARRAY_MAX ? result.toArray() : result;
+        }
+
+        @Override
+        Container or(Container other) {
+            BitmapContainer result = (BitmapContainer) copy();
+            if (other instanceof ArrayContainer array) {
+                for (int i = 0; i < array.size; i++) {
+                    result.add(array.values[i]);
+                }
+                return result;
+            }
+            BitmapContainer bitmap = (BitmapContainer) other;
+            int count = 0;
+            for (int i = 0; i < words.length; i++) {
+                result.words[i] |= bitmap.words[i];
+                count += Long.bitCount(result.words[i]);
+            }
+            result.cardinality = count;
+            return result;
+        }
+
+        ArrayContainer toArray() {
+            ArrayContainer array = new ArrayContainer();
+            array.values = new char[Math.max(cardinality, 4)];
+            for (int low = next(0); low >= 0; low = low == 0xFFFF ? -1 : next(low + 1)) {
+                array.values[array.size++] = (char) low;
+            }
+            return array;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.argela;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Modification versions of the device table and a bounded log of recent changes.
+ * <p>
+ * Every change of a device takes the next global version, which is also written to the log with the device
+ * ID. Devices are sharded by PON port; each shard remembers the last version that changed one of its devices,
+ * so a view of one PON port stays valid while other ports change. The log keeps the latest {@code capacity}
+ * changes, enough to tell a polling client which devices changed since the version it has seen.
+ */
+public class DeviceChangeLog {
+    private final long[] versions;
+    private final int[] ids;
+    private final int mask;
+    private final ConcurrentHashMap<Integer, AtomicLong> shardVersions = new ConcurrentHashMap<>();
+    private volatile long version;
+    // Changes up to this version are no longer in the log (evicted, or before a reset)
+    private volatile long forgottenVersion;
+    private volatile long resetVersion;
+    private long head;
+
+    /**
+     * Creates a change log
+     * @param capacity Number of changes kept, rounded up to a power of two
+     */
+    public DeviceChangeLog(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        versions = new long[size];
+        ids = new int[size];
+        mask = size - 1;
+    }
+
+    /**
+     * Records a change of a device
+     * @param id The device ID
+     * @param ponPorts PON ports whose views the change affects (the current one, and the previous one if it moved)
+     * @return The version of the change
+     */
+    public synchronized long record(int id, int... ponPorts) {
+        long next = version + 1;
+        int slot = (int) (head & mask);
+        if (head > mask) {
+            forgottenVersion = Math.max(forgottenVersion, versions[slot]);
+        }
+        versions[slot] = next;
+        ids[slot] = id;
+        head++;
+        for (int ponPort : ponPorts) {
+            shardVersions.computeIfAbsent(ponPort, ignored -> new AtomicLong()).set(next);
+        }
+        version = next;
+        return next;
+    }
+
+    /**
+     * Forgets every recorded change, e.g. when all devices are removed and IDs start over.
+     * Versions keep increasing, so earlier versions never match the new state.
+     * @return The version of the reset
+     */
+    public synchronized long reset() {
+        long next = version + 1;
+        head = 0;
+        forgottenVersion = next;
+        resetVersion = next;
+        shardVersions.clear();
+        version = next;
+        return next;
+    }
+
+    /**
+     * Gets the version of the latest change
+     * @return Global version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets the version of the latest change affecting a PON port
+     * @param ponPort The PON port
+     * @return Version of the shard
+     */
+    public long getShardVersion(int ponPort) {
+        AtomicLong shard = shardVersions.get(ponPort);
+        // A shard untouched since the last reset is as old as the reset
+        return Math.max(resetVersion, shard == null ? 0 : shard.get());
+    }
+
+    /**
+     * Gets the devices changed after a version, each listed once
+     * @param since Version seen by the client
+     * @return Changed device IDs, or null if the changes after that version are no longer known
+     */
+    public synchronized DeviceBitmap changedSince(long since) {
+        if (since < forgottenVersion || since > version) {
+            return null;
+        }
+        DeviceBitmap changed = new DeviceBitmap();
+        for (long i = head - 1; i >= 0 && i > head - 1 - versions.length; i--) {
+            int slot = (int) (i & mask);
+            if (versions[slot] <= since) {
+                break;
+            }
+            changed.add(ids[slot]);
+        }
+        return changed;
+    }
+}
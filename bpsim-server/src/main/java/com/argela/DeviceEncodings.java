@@ -0,0 +1,157 @@
+package com.argela;
+
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Collection;
+
+/**
+ * Per-device cache of the JSON and binary encodings shared by the REST list and the WebSocket frames.
+ * An encoding is kept on the device together with the device's change version ({@link DeviceService}
+ * bumps it on every change) and is reused until the version moves on, so list responses and broadcasts
+ * of unchanged devices are only concatenations of cached fragments.
+ * <p>
+ * The JSON of a device whose DHCP exchange is in progress is not cached: its {@code dhcpDurationMs}
+ * grows with the clock. Idle and acknowledged devices, the bulk of a settled fleet, are.
+ */
+public final class DeviceEncodings {
+    private static final Jsonb jsonb = JsonbBuilder.create();
+
+    /** Column names of {@link #csv} rows */
+    public static final String CSV_HEADER = "id,clientMac,ipAddress,requiredIp,state,vlanId,ponPort,onuId,uniId,gemPort,"
+            + "xid,gateway,dns,serverIdentifier,subnetMask,leaseTime,leaseStartTime,dhcpStartTime,dhcpCompletionTime,"
+            + "dhcpDurationMs";
+
+    /**
+     * An encoding and the device version it was made from
+     */
+    record Cached(long version, Object value) {
+    }
+
+    private DeviceEncodings() {
+    }
+
+    /**
+     * Gets the JSON object of a device
+     * @param device The device
+     * @return JSON text, cached while the device does not change
+     */
+    public static String json(DeviceInfo device) {
+        if (isClockDependent(device)) {
+            return jsonb.toJson(device);
+        }
+        // Read the version first: a change made while encoding leaves a stale version behind, never stale JSON
+        long version = device.getVersion();
+        Cached cached = device.cachedJson;
+        if (cached != null && cached.version() == version) {
+            return (String) cached.value();
+        }
+        String json = jsonb.toJson(device);
+        device.cachedJson = new Cached(version, json);
+        return json;
+    }
+
+    /**
+     * Gets the binary record of a device, laid out as described in {@link DeviceBinaryCodec}
+     * @param device The device
+     * @return Record of {@value DeviceBinaryCodec#RECORD_SIZE} bytes, cached while the device does not change.
+     *         Callers must not modify it.
+     */
+    public static byte[] record(DeviceInfo device) {
+        long version = device.getVersion();
+        Cached cached = device.cachedRecord;
+        if (cached != null && cached.version() == version) {
+            return (byte[]) cached.value();
+        }
+        byte[] record = new byte[DeviceBinaryCodec.RECORD_SIZE];
+        DeviceBinaryCodec.writeRecord(ByteBuffer.wrap(record).order(ByteOrder.LITTLE_ENDIAN), device);
+        device.cachedRecord = new Cached(version, record);
+        return record;
+    }
+
+    /**
+     * Appends the devices as comma-separated JSON objects, without brackets
+     * @param json The builder to append to
+     * @param devices The devices
+     * @return The builder
+     */
+    public static StringBuilder appendJson(StringBuilder json, Collection<DeviceInfo> devices) {
+        boolean first = true;
+        for (DeviceInfo device : devices) {
+            if (!first) {
+                json.append(',');
+            }
+            json.append(json(device));
+            first = false;
+        }
+        return json;
+    }
+
+    /**
+     * Encodes devices as a JSON array
+     * @param devices The devices
+     * @return JSON array text
+     */
+    public static String jsonArray(Collection<DeviceInfo> devices) {
+        return appendJson(new StringBuilder(devices.size() * 450 + 2).append('['), devices).append(']').toString();
+    }
+
+    /**
+     * Encodes a device as a CSV row with the columns of {@link #CSV_HEADER}, without line terminator
+     * @param device The device
+     * @return CSV row, unset fields empty
+     */
+    public static String csv(DeviceInfo device) {
+        StringBuilder row = new StringBuilder(256)
+                .append(device.getId()).append(',');
+        csvField(row, device.getClientMac());
+        csvField(row, device.getIpAddress());
+        csvField(row, device.getRequiredIp());
+        csvField(row, device.getState());
+        row.append(device.getVlanId()).append(',')
+                .append(device.getPonPort()).append(',')
+                .append(device.getOnuId()).append(',')
+                .append(device.getUniId()).append(',')
+                .append(device.getGemPort()).append(',')
+                .append(device.getXid()).append(',');
+        csvField(row, device.getGateway());
+        csvField(row, device.getDns());
+        csvField(row, device.getServerIdentifier());
+        csvField(row, device.getSubnetMask());
+        row.append(device.getLeaseTime()).append(',');
+        csvField(row, device.getLeaseStartTime());
+        csvField(row, device.getDhcpStartTime());
+        csvField(row, device.getDhcpCompletionTime());
+        Long duration = device.getDhcpDurationMs();
+        if (duration != null) {
+            row.append(duration);
+        }
+        return row.toString();
+    }
+
+    /**
+     * Appends a CSV field and its separator, quoting it if needed
+     */
+    private static void csvField(StringBuilder row, Object value) {
+        if (value != null) {
+            String text = value.toString();
+            if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0) {
+                row.append('"').append(text.replace("\"", "\"\"")).append('"');
+            } else {
+                row.append(text);
+            }
+        }
+        row.append(',');
+    }
+
+    /**
+     * Checks whether the JSON of a device depends on the current time (its DHCP duration is still running)
+     */
+    private static boolean isClockDependent(DeviceInfo device) {
+        String state = device.getState();
+        return device.getDhcpStartTime() != null && !"IDLE".equals(state)
+                && !("ACKNOWLEDGED".equals(state) && device.getDhcpCompletionTime() != null);
+    }
+}
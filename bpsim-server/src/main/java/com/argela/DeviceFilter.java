@@ -0,0 +1,99 @@
+package com.argela;
+
+/**
+ * Device selection by PON port, VLAN, ONU, UNI, GEM port, state and free text. Unset fields match every device.
+ * <p>
+ * The free text matches a device when its MAC, IP address, required IP or ID starts with the text, or when
+ * its state, VLAN, PON port, ONU, UNI or GEM port contains it (case-insensitive). Both kinds of match are
+ * answered from indexes by {@link DeviceIndex#select}.
+ */
+public class DeviceFilter {
+    private Integer ponPort;
+    private Integer vlanId;
+    private Integer onuId;
+    private Integer uniId;
+    private Integer gemPort;
+    private String state;
+    private String text;
+
+    public DeviceFilter() {
+    }
+
+    /**
+     * Creates a filter
+     * @param ponPort PON port to match (optional)
+     * @param vlanId VLAN ID to match (optional)
+     * @param state Device state to match, case-insensitive (optional)
+     */
+    public DeviceFilter(Integer ponPort, Integer vlanId, String state) {
+        this.ponPort = ponPort;
+        this.vlanId = vlanId;
+        this.state = normalizeState(state);
+    }
+
+    /**
+     * Checks whether a device passes the filter
+     * @param device The device to check
+     * @return true if every set field matches
+     */
+    public boolean matches(DeviceInfo device) {
+        return (ponPort == null || device.getPonPort() == ponPort)
+                && (vlanId == null || device.getVlanId() == vlanId)
+                && (onuId == null || device.getOnuId() == onuId)
+                && (uniId == null || device.getUniId() == uniId)
+                && (gemPort == null || device.getGemPort() == gemPort)
+                && (state == null || state.equals(device.getState()))
+                && (text == null || matchesText(device));
+    }
+
+    private boolean matchesText(DeviceInfo device) {
+        return startsWith(device.getClientMac()) || startsWith(device.getIpAddress())
+                || startsWith(device.getRequiredIp()) || String.valueOf(device.getId()).startsWith(text)
+                || (device.getState() != null && device.getState().toLowerCase().contains(text))
+                || String.valueOf(device.getVlanId()).contains(text)
+                || String.valueOf(device.getPonPort()).contains(text)
+                || String.valueOf(device.getOnuId()).contains(text)
+                || String.valueOf(device.getUniId()).contains(text)
+                || String.valueOf(device.getGemPort()).contains(text);
+    }
+
+    private boolean startsWith(String value) {
+        return value != null && value.regionMatches(true, 0, text, 0, text.length());
+    }
+
+    /**
+     * Checks whether the filter selects every device
+     * @return true if no field is set
+     */
+    public boolean isEmpty() {
+        return ponPort == null && vlanId == null && onuId == null && uniId == null && gemPort == null
+                && state == null && text == null;
+    }
+
+    public Integer getPonPort() { return ponPort; }
+    public void setPonPort(Integer ponPort) { this.ponPort = ponPort; }
+    public Integer getVlanId() { return vlanId; }
+    public void setVlanId(Integer vlanId) { this.vlanId = vlanId; }
+    public Integer getOnuId() { return onuId; }
+    public void setOnuId(Integer onuId) { this.onuId = onuId; }
+    public Integer getUniId() { return uniId; }
+    public void setUniId(Integer uniId) { this.uniId = uniId; }
+    public Integer getGemPort() { return gemPort; }
+    public void setGemPort(Integer gemPort) { this.gemPort = gemPort; }
+    public String getState() { return state; }
+    public void setState(String state) { this.state = normalizeState(state); }
+    public String getText() { return text; }
+    public void setText(String text) {
+        this.text = text == null || text.isBlank() ? null : text.trim().toLowerCase();
+    }
+
+    private static String normalizeState(String state) {
+        return state == null || state.isBlank() ? null : state.trim().toUpperCase();
+    }
+
+    @Override
+    public String toString() {
+        return "DeviceFilter{ponPort=" + ponPort + ", vlanId=" + vlanId + ", onuId=" + onuId + ", uniId=" + uniId
+                + ", gemPort=" + gemPort + ", state=" + state + ", text=" + text + "}";
+    }
+}
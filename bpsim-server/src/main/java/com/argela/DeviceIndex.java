@@ -0,0 +1,565 @@
+package com.argela;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntToLongFunction;
+import java.util.stream.StreamSupport;
+
+/**
+ * Secondary indexes of devices: a compressed bitmap of device IDs per PON port, VLAN, ONU, UNI, GEM port
+ * and state, and a sorted index of MAC and IP addresses for prefix search. A filter is answered by
+ * intersecting the bitmaps of its fields, smallest first. The indexed key of every device is remembered,
+ * so a device whose fields were changed in place is moved out of its old entries when it is re-indexed.
+ * <p>
+ * Bitmap cardinalities double as live device counts per PON, VLAN and state. State counts per PON and
+ * per VLAN and state transitions are counted as devices are re-indexed, so aggregate statistics never
+ * need to scan the devices.
+ * <p>
+ * Devices are also kept in every {@link DeviceSort} order, so a page of a sorted list starts with a
+ * skip list seek instead of sorting the fleet.
+ */
+public class DeviceIndex {
+    // Below this many selected devices, a sorted page is built from the selection instead of walking the sort index
+    private static final int SORT_SELECTION_LIMIT = 65536;
+
+    private final DeviceBitmap allIds = new DeviceBitmap();
+    private final ConcurrentHashMap<Integer, DeviceBitmap> byPonPort = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, DeviceBitmap> byVlan = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, DeviceBitmap> byOnu = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, DeviceBitmap> byUni = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, DeviceBitmap> byGemPort = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, DeviceBitmap> byState = new ConcurrentHashMap<>();
+    // Lower-case MAC, IP and required IP of every device, for prefix search
+    private final NavigableSet<TextEntry> addresses = new ConcurrentSkipListSet<>();
+    private final ConcurrentHashMap<Integer, Key> keys = new ConcurrentHashMap<>();
+    private final Map<DeviceSort, NavigableSet<Position>> sorted = new EnumMap<>(DeviceSort.class);
+    // Device count per state (by DeviceBinaryCodec.STATES ordinal, unknown states last) of every PON port and VLAN
+    private final ConcurrentHashMap<Integer, AtomicIntegerArray> statesByPonPort = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, AtomicIntegerArray> statesByVlan = new ConcurrentHashMap<>();
+    // Monotonic, survives clear() so rates computed from it never go negative
+    private final ConcurrentHashMap<String, LongAdder> transitions = new ConcurrentHashMap<>();
+
+    private record Key(int ponPort, int vlanId, int onuId, int uniId, int gemPort, String state,
+                       String mac, String ipAddress, String requiredIp, long ip, long pon, long duration) {
+        long sortKey(DeviceSort sort) {
+            return switch (sort) {
+                case IP -> ip;
+                case PON -> pon;
+                case DURATION -> duration;
+                default -> throw new IllegalArgumentException("Not a stored sort key: " + sort);
+            };
+        }
+    }
+
+    private record TextEntry(String text, int id) implements Comparable<TextEntry> {
+        @Override
+        public int compareTo(TextEntry other) {
+            int byText = text.compareTo(other.text);
+            return byText != 0 ? byText : Integer.compare(id, other.id);
+        }
+    }
+
+    /**
+     * Position of a device in a sort order: its sort key, ties broken by ID
+     * @param key Sort key, see {@link DeviceSort#key}
+     * @param id Device ID
+     */
+    public record Position(long key, int id) implements Comparable<Position> {
+        @Override
+        public int compareTo(Position other) {
+            int byKey = Long.compare(key, other.key);
+            return byKey != 0 ? byKey : Integer.compare(id, other.id);
+        }
+
+        /**
+         * Encodes the position as an opaque list cursor
+         * @param sort The sort parameter the position belongs to
+         * @return URL-safe cursor
+         */
+        public String encode(String sort) {
+            String text = sort + ":" + key + ":" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(text.getBytes(StandardCharsets.UTF_8));
+        }
+
+        /**
+         * Decodes a list cursor
+         * @param cursor Cursor made by {@link #encode}
+         * @param sort The sort parameter of the request, which must be the one of the cursor
+         * @return The position
+         * @throws IllegalArgumentException if the cursor is malformed or belongs to another sort
+         */
+        public static Position decode(String cursor, String sort) {
+            String[] parts;
+            try {
+                parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":");
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+            if (!parts[0].equals(sort)) {
+                throw new IllegalArgumentException("Cursor was made for sort '" + parts[0] + "'");
+            }
+            try {
+                return new Position(Long.parseLong(parts[1]), Integer.parseInt(parts[2]));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+        }
+    }
+
+    public DeviceIndex() {
+        for (DeviceSort sort : DeviceSort.values()) {
+            if (sort != DeviceSort.ID && sort != DeviceSort.STATE) {
+                sorted.put(sort, new ConcurrentSkipListSet<>());
+            }
+        }
+    }
+
+    /**
+     * Adds a device to the indexes or moves it to its current entries
+     * @param device The device to index
+     * @return PON port the device was indexed on before, its current one if it is new
+     */
+    public int update(DeviceInfo device) {
+        int id = device.getId();
+        int[] previousPonPort = new int[1];
+        // compute() serializes re-indexing of the same device; the key is read inside it, so of two
+        // concurrent updates the one that runs last indexes the latest fields
+        keys.compute(id, (ignored, previous) -> {
+            Key key = new Key(device.getPonPort(), device.getVlanId(), device.getOnuId(), device.getUniId(),
+                    device.getGemPort(), device.getState(), lowerCase(device.getClientMac()),
+                    lowerCase(device.getIpAddress()), lowerCase(device.getRequiredIp()),
+                    DeviceSort.IP.key(device), DeviceSort.PON.key(device), DeviceSort.DURATION.key(device));
+            previousPonPort[0] = previous != null ? previous.ponPort() : key.ponPort();
+            if (key.equals(previous)) {
+                return previous;
+            }
+            if (previous != null) {
+                unlink(id, previous);
+                if (key.state() != null && !key.state().equals(previous.state())) {
+                    transitions.computeIfAbsent(key.state(), state -> new LongAdder()).increment();
+                }
+            }
+            allIds.add(id);
+            bitmap(byPonPort, key.ponPort()).add(id);
+            bitmap(byVlan, key.vlanId()).add(id);
+            bitmap(byOnu, key.onuId()).add(id);
+            bitmap(byUni, key.uniId()).add(id);
+            bitmap(byGemPort, key.gemPort()).add(id);
+            if (key.state() != null) {
+                bitmap(byState, key.state()).add(id);
+            }
+            countState(statesByPonPort, key.ponPort(), key.state(), 1);
+            countState(statesByVlan, key.vlanId(), key.state(), 1);
+            for (String address : new String[]{key.mac(), key.ipAddress(), key.requiredIp()}) {
+                if (address != null && !address.isEmpty()) {
+                    addresses.add(new TextEntry(address, id));
+                }
+            }
+            sorted.forEach((sort, positions) -> positions.add(new Position(key.sortKey(sort), id)));
+            return key;
+        });
+        return previousPonPort[0];
+    }
+
+    /**
+     * Removes a device from the indexes
+     * @param id The device ID
+     */
+    public void remove(int id) {
+        keys.computeIfPresent(id, (ignored, previous) -> {
+            unlink(id, previous);
+            allIds.remove(id);
+            return null;
+        });
+    }
+
+    /**
+     * Removes every device from the indexes
+     */
+    public void clear() {
+        keys.clear();
+        allIds.clear();
+        byPonPort.clear();
+        byVlan.clear();
+        byOnu.clear();
+        byUni.clear();
+        byGemPort.clear();
+        byState.clear();
+        statesByPonPort.clear();
+        statesByVlan.clear();
+        addresses.clear();
+        sorted.values().forEach(NavigableSet::clear);
+    }
+
+    /**
+     * Selects the devices matching a filter by intersecting the bitmaps of its fields, smallest first.
+     * Devices changing meanwhile may be selected by their old fields; callers check {@link DeviceFilter#matches}.
+     * @param filter The filter
+     * @return Selected device IDs, a copy owned by the caller
+     */
+    public DeviceBitmap select(DeviceFilter filter) {
+        if (filter.isEmpty()) {
+            return allIds.copy();
+        }
+        List<DeviceBitmap> bitmaps = new ArrayList<>();
+        if (!addBitmap(bitmaps, byPonPort, filter.getPonPort())
+                || !addBitmap(bitmaps, byVlan, filter.getVlanId())
+                || !addBitmap(bitmaps, byOnu, filter.getOnuId())
+                || !addBitmap(bitmaps, byUni, filter.getUniId())
+                || !addBitmap(bitmaps, byGemPort, filter.getGemPort())
+                || !addBitmap(bitmaps, byState, filter.getState())) {
+            return new DeviceBitmap();
+        }
+        if (filter.getText() != null) {
+            bitmaps.add(matchText(filter.getText()));
+        }
+        bitmaps.sort(Comparator.comparingInt(DeviceBitmap::cardinality));
+        DeviceBitmap result = bitmaps.get(0).copy();
+        for (int i = 1; i < bitmaps.size() && !result.isEmpty(); i++) {
+            result.and(bitmaps.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * Selects the devices matching a free text: by prefix of MAC, IP, required IP and ID, and by substring
+     * of state, VLAN, PON, ONU, UNI and GEM port. The substring matches are decided once per distinct value.
+     */
+    private DeviceBitmap matchText(String text) {
+        DeviceBitmap result = new DeviceBitmap();
+        for (TextEntry entry : addresses.subSet(new TextEntry(text, Integer.MIN_VALUE), true,
+                new TextEntry(text + Character.MAX_VALUE, Integer.MIN_VALUE), false)) {
+            result.add(entry.id());
+        }
+        byState.forEach((state, bitmap) -> {
+            if (state.toLowerCase().contains(text)) {
+                result.or(bitmap);
+            }
+        });
+        for (Map<Integer, DeviceBitmap> index : List.of(byVlan, byPonPort, byOnu, byUni, byGemPort)) {
+            index.forEach((value, bitmap) -> {
+                if (String.valueOf(value).contains(text)) {
+                    result.or(bitmap);
+                }
+            });
+        }
+        addIdsWithPrefix(result, text);
+        return result;
+    }
+
+    /**
+     * Adds the device IDs whose decimal form starts with the text: for a prefix p those are the ranges
+     * [p * 10^k, (p + 1) * 10^k), walked through the ID bitmap
+     */
+    private void addIdsWithPrefix(DeviceBitmap result, String text) {
+        if (text.length() > 10 || !text.chars().allMatch(Character::isDigit) || (text.length() > 1 && text.charAt(0) == '0')) {
+            return;
+        }
+        DeviceBitmap ids = allIds.copy();
+        long prefix = Long.parseLong(text);
+        for (long low = prefix, high = prefix + 1; low <= Integer.MAX_VALUE && low <= ids.previousSetBit(Integer.MAX_VALUE);
+             low *= 10, high *= 10) {
+            for (int id = ids.nextSetBit((int) low); id >= 0 && id < high; id = id == Integer.MAX_VALUE ? -1 : ids.nextSetBit(id + 1)) {
+                result.add(id);
+            }
+            if (prefix == 0) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Gets the number of indexed devices
+     * @return Device count
+     */
+    public int size() {
+        return allIds.cardinality();
+    }
+
+    /**
+     * Gets the number of devices in each state
+     * @return Device count by state, states without devices omitted
+     */
+    public Map<String, Integer> countByState() {
+        return counts(byState);
+    }
+
+    /**
+     * Counts the devices whose DHCP duration is still running: every state but IDLE and ACKNOWLEDGED.
+     * Their JSON changes with the clock even when the devices do not.
+     * @param ponPort PON port to count, null for all devices
+     * @return Device count
+     */
+    public int countRunning(Integer ponPort) {
+        if (ponPort != null) {
+            return countRunning(statesByPonPort.get(ponPort));
+        }
+        int running = 0;
+        for (AtomicIntegerArray states : statesByPonPort.values()) {
+            running += countRunning(states);
+        }
+        return running;
+    }
+
+    private static int countRunning(AtomicIntegerArray states) {
+        if (states == null) {
+            return 0;
+        }
+        int idle = DeviceBinaryCodec.STATES.indexOf("IDLE");
+        int acknowledged = DeviceBinaryCodec.STATES.indexOf("ACKNOWLEDGED");
+        int running = 0;
+        for (int i = 0; i < states.length(); i++) {
+            if (i != idle && i != acknowledged) {
+                running += states.get(i);
+            }
+        }
+        return running;
+    }
+
+    /**
+     * Gets the number of devices on each PON port
+     * @return Device count by PON port, ports without devices omitted
+     */
+    public Map<Integer, Integer> countByPonPort() {
+        return counts(byPonPort);
+    }
+
+    /**
+     * Gets the number of devices on each VLAN
+     * @return Device count by VLAN ID, VLANs without devices omitted
+     */
+    public Map<Integer, Integer> countByVlan() {
+        return counts(byVlan);
+    }
+
+    /**
+     * Gets how many times indexed devices moved into a state since startup
+     * @param state The target state
+     * @return Transition count
+     */
+    public long getTransitionCount(String state) {
+        LongAdder count = transitions.get(state);
+        return count == null ? 0 : count.sum();
+    }
+
+    /**
+     * Gets the number of devices in each state, per PON port
+     * @return Device count by state (states without devices omitted) by PON port
+     */
+    public Map<Integer, Map<String, Integer>> countStatesByPonPort() {
+        return stateCounts(statesByPonPort);
+    }
+
+    /**
+     * Gets the number of devices in each state, per VLAN
+     * @return Device count by state (states without devices omitted) by VLAN ID
+     */
+    public Map<Integer, Map<String, Integer>> countStatesByVlan() {
+        return stateCounts(statesByVlan);
+    }
+
+    private static Map<Integer, Map<String, Integer>> stateCounts(ConcurrentHashMap<Integer, AtomicIntegerArray> index) {
+        Map<Integer, Map<String, Integer>> counts = new TreeMap<>();
+        index.forEach((key, states) -> {
+            Map<String, Integer> byState = new LinkedHashMap<>();
+            for (int i = 0; i < states.length(); i++) {
+                int count = states.get(i);
+                if (count > 0) {
+                    byState.put(i < DeviceBinaryCodec.STATES.size() ? DeviceBinaryCodec.STATES.get(i) : "OTHER", count);
+                }
+            }
+            if (!byState.isEmpty()) {
+                counts.put(key, byState);
+            }
+        });
+        return counts;
+    }
+
+    private static <K extends Comparable<K>> Map<K, Integer> counts(ConcurrentHashMap<K, DeviceBitmap> index) {
+        Map<K, Integer> counts = new TreeMap<>();
+        index.forEach((key, bitmap) -> {
+            int size = bitmap.cardinality();
+            if (size > 0) {
+                counts.put(key, size);
+            }
+        });
+        return counts;
+    }
+
+    /**
+     * Iterates device positions in a sort order. Sorting by ID walks the selection of the filter, sorting by
+     * state walks the selection within each state bitmap in lifecycle order. Other orders walk their index,
+     * or sort the selection when it is small.
+     * @param sort The sort order
+     * @param descending true for descending order
+     * @param filter The filter
+     * @param after Position to continue after, null to start at the beginning
+     * @return Weakly consistent iterator; callers check the filter and that the device is still at the position
+     */
+    public Iterator<Position> positions(DeviceSort sort, boolean descending, DeviceFilter filter, Position after) {
+        if (sort == DeviceSort.ID) {
+            return ids(select(filter), descending, after, id -> id);
+        }
+        if (sort == DeviceSort.STATE) {
+            return statePositions(descending, select(filter), after);
+        }
+        DeviceBitmap selection = filter.isEmpty() ? null : select(filter);
+        if (selection != null && selection.cardinality() <= SORT_SELECTION_LIMIT) {
+            return sortedSelection(sort, descending, selection, after);
+        }
+        NavigableSet<Position> positions = sorted.get(sort);
+        if (descending) {
+            positions = positions.descendingSet();
+        }
+        if (after != null) {
+            positions = positions.tailSet(after, false);
+        }
+        Iterator<Position> all = Collections.unmodifiableNavigableSet(positions).iterator();
+        if (selection == null) {
+            return all;
+        }
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(all, Spliterator.ORDERED), false)
+                .filter(position -> selection.contains(position.id()))
+                .iterator();
+    }
+
+    /**
+     * Sorts a small selection by the indexed sort keys of its devices
+     */
+    private Iterator<Position> sortedSelection(DeviceSort sort, boolean descending, DeviceBitmap selection, Position after) {
+        List<Position> positions = new ArrayList<>(selection.cardinality());
+        for (PrimitiveIterator.OfInt it = selection.iterator(0, false); it.hasNext(); ) {
+            int id = it.nextInt();
+            Key key = keys.get(id);
+            if (key != null) {
+                Position position = new Position(key.sortKey(sort), id);
+                if (after == null || (descending ? position.compareTo(after) < 0 : position.compareTo(after) > 0)) {
+                    positions.add(position);
+                }
+            }
+        }
+        positions.sort(descending ? Comparator.reverseOrder() : Comparator.naturalOrder());
+        return positions.iterator();
+    }
+
+    /**
+     * Walks the selection within each state bitmap in {@link DeviceBinaryCodec#STATES} order, each in ID order
+     */
+    private Iterator<Position> statePositions(boolean descending, DeviceBitmap selection, Position after) {
+        int count = DeviceBinaryCodec.STATES.size();
+        List<Iterator<Position>> parts = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int ordinal = descending ? count - 1 - i : i;
+            if (after != null && (descending ? ordinal > after.key() : ordinal < after.key())) {
+                continue;
+            }
+            DeviceBitmap bitmap = byState.get(DeviceBinaryCodec.STATES.get(ordinal));
+            if (bitmap == null) {
+                continue;
+            }
+            Position start = after != null && after.key() == ordinal ? after : null;
+            parts.add(ids(bitmap.copy().and(selection), descending, start, id -> (long) ordinal));
+        }
+        return parts.stream()
+                .flatMap(part -> StreamSupport.stream(Spliterators.spliteratorUnknownSize(part, Spliterator.ORDERED), false))
+                .iterator();
+    }
+
+    private static Iterator<Position> ids(DeviceBitmap ids, boolean descending, Position after, IntToLongFunction key) {
+        int from;
+        if (after == null) {
+            from = descending ? Integer.MAX_VALUE : 0;
+        } else {
+            from = descending ? after.id() - 1 : after.id() + 1;
+        }
+        PrimitiveIterator.OfInt it = ids.iterator(from, descending);
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public Position next() {
+                int id = it.nextInt();
+                return new Position(key.applyAsLong(id), id);
+            }
+        };
+    }
+
+    private void unlink(int id, Key key) {
+        removeId(byPonPort, key.ponPort(), id);
+        removeId(byVlan, key.vlanId(), id);
+        removeId(byOnu, key.onuId(), id);
+        removeId(byUni, key.uniId(), id);
+        removeId(byGemPort, key.gemPort(), id);
+        if (key.state() != null) {
+            removeId(byState, key.state(), id);
+        }
+        countState(statesByPonPort, key.ponPort(), key.state(), -1);
+        countState(statesByVlan, key.vlanId(), key.state(), -1);
+        for (String address : new String[]{key.mac(), key.ipAddress(), key.requiredIp()}) {
+            if (address != null && !address.isEmpty()) {
+                addresses.remove(new TextEntry(address, id));
+            }
+        }
+        sorted.forEach((sort, positions) -> positions.remove(new Position(key.sortKey(sort), id)));
+    }
+
+    private static void countState(ConcurrentHashMap<Integer, AtomicIntegerArray> index, int key, String state, int delta) {
+        int ordinal = DeviceBinaryCodec.STATES.indexOf(state);
+        index.computeIfAbsent(key, ignored -> new AtomicIntegerArray(DeviceBinaryCodec.STATES.size() + 1))
+                .addAndGet(ordinal < 0 ? DeviceBinaryCodec.STATES.size() : ordinal, delta);
+    }
+
+    private static <K> DeviceBitmap bitmap(ConcurrentHashMap<K, DeviceBitmap> index, K key) {
+        return index.computeIfAbsent(key, ignored -> new DeviceBitmap());
+    }
+
+    private static <K> void removeId(ConcurrentHashMap<K, DeviceBitmap> index, K key, int id) {
+        DeviceBitmap bitmap = index.get(key);
+        if (bitmap != null) {
+            bitmap.remove(id);
+        }
+    }
+
+    /**
+     * Adds the bitmap of a filter field to the list, if the field is set
+     * @return false if the field is set but no device has the value, so nothing can match
+     */
+    private static <K> boolean addBitmap(List<DeviceBitmap> bitmaps, ConcurrentHashMap<K, DeviceBitmap> index, K value) {
+        if (value == null) {
+            return true;
+        }
+        DeviceBitmap bitmap = index.get(value);
+        if (bitmap == null || bitmap.isEmpty()) {
+            return false;
+        }
+        bitmaps.add(bitmap);
+        return true;
+    }
+
+    private static String lowerCase(String value) {
+        return value == null ? null : value.toLowerCase();
+    }
+}
@@ -23,6 +23,16 @@ public class DeviceInfo {
     private Instant dhcpStartTime;
     private Instant dhcpCompletionTime;
 
+    // Monotonic timestamps of the current exchange, used for storm latency reports (not serialized)
+    private volatile long discoverSentNanos;
+    private volatile long offerReceivedNanos;
+    private volatile long requestSentNanos;
+
+    // Change version and the encodings cached for it by DeviceEncodings (not serialized)
+    private volatile long version;
+    volatile DeviceEncodings.Cached cachedJson;
+    volatile DeviceEncodings.Cached cachedRecord;
+
     // Constructor
     public DeviceInfo(int id, String clientMac, String ipAddress, String requiredIp, String state,
                       String dns, String gateway, String serverIdentifier, String subnetMask,
@@ -106,6 +116,41 @@ public class DeviceInfo {
 
     public Instant getDhcpCompletionTime() { return dhcpCompletionTime; }
     public void setDhcpCompletionTime(Instant dhcpCompletionTime) { this.dhcpCompletionTime = dhcpCompletionTime; }
+    long getVersion() { return version; }
+
+    /**
+     * Records a change of the device, invalidating its cached encodings
+     * @param version Change version, increasing with every change
+     */
+    void markChanged(long version) { this.version = version; }
+
+    long getDiscoverSentNanos() { return discoverSentNanos; }
+    long getOfferReceivedNanos() { return offerReceivedNanos; }
+    long getRequestSentNanos() { return requestSentNanos; }
+
+    /**
+     * Marks the start of a new exchange, either with a DISCOVER or directly with a REQUEST (renewal)
+     * @param withDiscover true if the exchange starts with a DISCOVER
+     */
+    void markExchangeStarted(boolean withDiscover) {
+        long now = System.nanoTime();
+        this.discoverSentNanos = withDiscover ? now : 0;
+        this.offerReceivedNanos = 0;
+        this.requestSentNanos = withDiscover ? 0 : now;
+    }
+
+    void markOfferReceived(long nanos) { this.offerReceivedNanos = nanos; }
+    void markRequestSent(long nanos) { this.requestSentNanos = nanos; }
+
+    /**
+     * Clears the exchange timestamps once the exchange completed
+     */
+    void clearExchange() {
+        this.discoverSentNanos = 0;
+        this.offerReceivedNanos = 0;
+        this.requestSentNanos = 0;
+    }
+
     /**
      * Gets DHCP duration in milliseconds
      * @return DHCP duration or null if DHCP not started
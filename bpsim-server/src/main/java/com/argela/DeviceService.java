@@ -11,10 +11,14 @@ import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 @ApplicationScoped
 public class DeviceService {
     private static final Logger logger = LoggerFactory.getLogger(DeviceService.class);
+    // Changes remembered for since=<version> polling, about 3 MB
+    private static final int CHANGE_LOG_CAPACITY = 262144;
 
     @ConfigProperty(name = "dhcp.pon.port.start", defaultValue = "0")
     int ponPortStart;
@@ -41,6 +45,10 @@ public class DeviceService {
     private final Set<String> macAddresses = ConcurrentHashMap.newKeySet();
     private final Set<Integer> xids = ConcurrentHashMap.newKeySet();
     private final ConcurrentHashMap<Integer, DeviceInfo> devicesByXid = new ConcurrentHashMap<>();
+    private final DeviceIndex deviceIndex = new DeviceIndex();
+    private final DeviceChangeLog changeLog = new DeviceChangeLog(CHANGE_LOG_CAPACITY);
+    // Versions start over at 0 on every start, the epoch tells the versions of this run from earlier ones
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
 
     @Inject
     VlanIPPoolManager vlanIPPoolManager;
@@ -198,8 +206,9 @@ public class DeviceService {
 
         devices.put(newId, device);
         devicesByXid.put(device.getXid(), device);
+        recordChange(device);
 
-        logger.info("Device added successfully: ID={}, MAC={}, XID={}, VLAN={}, IP={}",
+        logger.debug("Device added successfully: ID={}, MAC={}, XID={}, VLAN={}, IP={}",
                 newId, device.getClientMac(), device.getXid(), device.getVlanId(), device.getIpAddress());
 
         DeviceWebSocket.broadcastDevice(device);
@@ -225,8 +234,9 @@ public class DeviceService {
 
             devices.put(device.getId(), device);
             devicesByXid.put(device.getXid(), device);
+            recordChange(device);
 
-            logger.info("Device updated successfully: ID={}, state={}, IP={}, duration={}ms",
+            logger.debug("Device updated successfully: ID={}, state={}, IP={}, duration={}ms",
                     device.getId(), device.getState(), device.getIpAddress(), device.getDhcpDurationMs());
 
             DeviceWebSocket.broadcastDevice(device);
@@ -247,6 +257,8 @@ public class DeviceService {
             macAddresses.remove(device.getClientMac());
             xids.remove(device.getXid());
             devicesByXid.remove(device.getXid());
+            deviceIndex.remove(id);
+            changeLog.record(id, device.getPonPort());
 
             // Return IP to VLAN pool
             if (device.getIpAddress() != null) {
@@ -255,8 +267,10 @@ public class DeviceService {
                 vlanIPPoolManager.releaseIP(device.getIpAddress(), device.getVlanId());
             }
 
-            logger.info("Device removed successfully: ID={}, MAC={}, VLAN={}, IP={}",
+            logger.debug("Device removed successfully: ID={}, MAC={}, VLAN={}, IP={}",
                     id, device.getClientMac(), device.getVlanId(), device.getIpAddress());
+
+            DeviceWebSocket.broadcastDevice(device);
         } else {
             logger.warn("Attempted to remove non-existent device: ID={}", id);
         }
@@ -351,11 +365,10 @@ public class DeviceService {
     public Optional<DeviceInfo> findDeviceByPonOnuUni(int ponPort, int onuId, int uniId) {
         logger.debug("Finding device by PON={}, ONU={}, UNI={}", ponPort, onuId, uniId);
 
-        Optional<DeviceInfo> device = devices.values().stream()
-                .filter(d -> d.getPonPort() == ponPort)
-                .filter(d -> d.getOnuId() == onuId)
-                .filter(d -> d.getUniId() == uniId)
-                .findFirst();
+        DeviceFilter filter = new DeviceFilter(ponPort, null, null);
+        filter.setOnuId(onuId);
+        filter.setUniId(uniId);
+        Optional<DeviceInfo> device = streamDevices(filter).findFirst();
 
         if (device.isPresent()) {
             logger.debug("Found device by PON/ONU/UNI: ID={}, state={}", device.get().getId(), device.get().getState());
@@ -396,6 +409,60 @@ public class DeviceService {
         return devices.get(id);
     }
 
+    /**
+     * Streams the devices matching a filter in ID order.
+     * Candidates come from the intersection of the index bitmaps of the filter's fields.
+     * @param filter The filter to apply
+     * @return Matching devices, ordered by ID
+     */
+    public Stream<DeviceInfo> streamDevices(DeviceFilter filter) {
+        return deviceIndex.select(filter).stream()
+                .mapToObj(devices::get)
+                .filter(Objects::nonNull)
+                .filter(filter::matches);
+    }
+
+    /**
+     * One page of a sorted device list
+     * @param devices Devices of the page, in sort order
+     * @param next Position to continue after, null if this is the last page
+     */
+    public record DevicePage(List<DeviceInfo> devices, DeviceIndex.Position next) {
+    }
+
+    /**
+     * Lists one page of devices in a sort order. The page starts with an index seek and walks only as many
+     * devices as the page needs plus those the predicate rejects.
+     * @param sort The sort order
+     * @param descending true for descending order
+     * @param filter Filter on PON, VLAN and state, used to narrow the walk through the indexes
+     * @param predicate Additional condition on the devices
+     * @param after Position to continue after, null for the first page
+     * @param limit Maximum number of devices in the page
+     * @return The page and where the next one starts
+     */
+    public DevicePage listDevices(DeviceSort sort, boolean descending, DeviceFilter filter,
+                                  Predicate<DeviceInfo> predicate, DeviceIndex.Position after, int limit) {
+        Iterator<DeviceIndex.Position> positions = deviceIndex.positions(sort, descending, filter, after);
+        List<DeviceInfo> page = new ArrayList<>(Math.min(limit, 1024));
+        DeviceIndex.Position last = null;
+        while (positions.hasNext()) {
+            DeviceIndex.Position position = positions.next();
+            DeviceInfo device = devices.get(position.id());
+            // A device that moved meanwhile is listed at its new position only
+            if (device == null || sort.key(device) != position.key()
+                    || !filter.matches(device) || !predicate.test(device)) {
+                continue;
+            }
+            if (page.size() == limit) {
+                return new DevicePage(page, last);
+            }
+            page.add(device);
+            last = position;
+        }
+        return new DevicePage(page, null);
+    }
+
     /**
      * Checks if a MAC address is currently in use
      * @param macAddress The MAC address to check
@@ -464,24 +531,8 @@ public class DeviceService {
 
         // Reset each device to IDLE state and clear network assignments
         devices.values().forEach(device -> {
-            // Release IP if assigned
-            if (device.getIpAddress() != null) {
-                logger.debug("Releasing IP: {} for VLAN: {}", device.getIpAddress(), device.getVlanId());
-                vlanIPPoolManager.releaseIP(device.getIpAddress(), device.getVlanId());
-            }
-
-            // Reset device to IDLE state
-            device.setState("IDLE");
-            device.setIpAddress(null);
-            device.setRequiredIp(null);
-            device.setDns(null);
-            device.setGateway(null);
-            device.setServerIdentifier(null);
-            device.setSubnetMask(null);
-            device.setLeaseTime(0);
-            device.setLeaseStartTime(null);
-            device.setDhcpStartTime(null);
-            device.setDhcpCompletionTime(null);
+            clearDhcpState(device);
+            recordChange(device);
         });
 
         resetCount = devices.size();
@@ -492,6 +543,54 @@ public class DeviceService {
         logger.info("Reset completed. {} devices reset to IDLE state", resetCount);
     }
 
+    /**
+     * Resets a single device to IDLE state, releasing its IP (e.g. when its lease expires)
+     * @param device The device to reset
+     */
+    public void resetDeviceToIdle(DeviceInfo device) {
+        clearDhcpState(device);
+        recordChange(device);
+        DeviceWebSocket.broadcastDevice(device);
+    }
+
+    /**
+     * Re-indexes a changed device and records the change, bumping its version so cached encodings of it are
+     * rebuilt and the table and PON port versions seen by polling clients move on
+     * @param device The changed device
+     */
+    private void recordChange(DeviceInfo device) {
+        int previousPonPort = deviceIndex.update(device);
+        long version = previousPonPort == device.getPonPort()
+                ? changeLog.record(device.getId(), previousPonPort)
+                : changeLog.record(device.getId(), previousPonPort, device.getPonPort());
+        device.markChanged(version);
+    }
+
+    /**
+     * Releases the device's IP and clears its network assignments
+     * @param device The device to clear
+     */
+    private void clearDhcpState(DeviceInfo device) {
+        // Release IP if assigned
+        if (device.getIpAddress() != null) {
+            logger.debug("Releasing IP: {} for VLAN: {}", device.getIpAddress(), device.getVlanId());
+            vlanIPPoolManager.releaseIP(device.getIpAddress(), device.getVlanId());
+        }
+
+        // Reset device to IDLE state
+        device.setState("IDLE");
+        device.setIpAddress(null);
+        device.setRequiredIp(null);
+        device.setDns(null);
+        device.setGateway(null);
+        device.setServerIdentifier(null);
+        device.setSubnetMask(null);
+        device.setLeaseTime(0);
+        device.setLeaseStartTime(null);
+        device.setDhcpStartTime(null);
+        device.setDhcpCompletionTime(null);
+    }
+
     /**
      * Gets system statistics including device counts and VLAN information
      * @return Map containing various system statistics
@@ -500,17 +599,9 @@ public class DeviceService {
         logger.debug("Generating system statistics");
         Map<String, Object> stats = new HashMap<>();
 
-        // Count devices by state
-        Map<String, Long> stateCount = devices.values().stream()
-                .collect(java.util.stream.Collectors.groupingBy(
-                        DeviceInfo::getState,
-                        java.util.stream.Collectors.counting()));
-
-        // Count devices by VLAN
-        Map<Integer, Long> vlanDeviceCount = devices.values().stream()
-                .collect(java.util.stream.Collectors.groupingBy(
-                        DeviceInfo::getVlanId,
-                        java.util.stream.Collectors.counting()));
+        // Counts come from the index counters, no scan of the devices
+        Map<String, Integer> stateCount = deviceIndex.countByState();
+        Map<Integer, Integer> vlanDeviceCount = deviceIndex.countByVlan();
 
         stats.put("totalDevices", devices.size());
         stats.put("stateCount", stateCount);
@@ -525,6 +616,159 @@ public class DeviceService {
         return stats;
     }
 
+    /**
+     * Gets the number of devices in each state, from the index counters
+     * @return Device count by state
+     */
+    public Map<String, Integer> getStateCounts() {
+        return deviceIndex.countByState();
+    }
+
+    /**
+     * Gets the modification version of the device table, which moves on with every device change
+     * @return Global version
+     */
+    public long getVersion() {
+        return changeLog.getVersion();
+    }
+
+    /**
+     * Gets the epoch of this run, which qualifies every version handed out to clients
+     * @return Epoch, the start time in base 36
+     */
+    public String getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * Formats a version for clients, qualified by the epoch of this run
+     * @param version The version
+     * @return Version token, "epoch.version"
+     */
+    public String formatVersion(long version) {
+        return epoch + "." + version;
+    }
+
+    /**
+     * Reads a version token formatted by {@link #formatVersion}
+     * @param token The version token
+     * @return The version, or empty if the token belongs to an earlier run
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    public OptionalLong parseVersion(String token) {
+        String value = token.trim();
+        int dot = value.lastIndexOf('.');
+        try {
+            long version = Long.parseLong(value.substring(dot + 1));
+            if (version < 0) {
+                throw new IllegalArgumentException("Invalid version: " + token);
+            }
+            return dot > 0 && value.substring(0, dot).equals(epoch) ? OptionalLong.of(version) : OptionalLong.empty();
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid version: " + token, e);
+        }
+    }
+
+    /**
+     * Checks whether the listed JSON of devices changes with the clock, because DHCP durations are running
+     * @param ponPort PON port to check, null for all devices
+     * @return true if a device is in a state other than IDLE or ACKNOWLEDGED
+     */
+    public boolean hasRunningDurations(Integer ponPort) {
+        return deviceIndex.countRunning(ponPort) > 0;
+    }
+
+    /**
+     * Gets the modification version of the devices of a PON port
+     * @param ponPort The PON port
+     * @return Version of the PON port's devices, at most the global version
+     */
+    public long getPonPortVersion(int ponPort) {
+        return changeLog.getShardVersion(ponPort);
+    }
+
+    /**
+     * Devices changed after a version
+     * @param version Version the changes are complete up to
+     * @param devices Changed devices in the view
+     * @param removed IDs of changed devices that were removed or left the view
+     */
+    public record DeviceChanges(long version, List<DeviceInfo> devices, List<Integer> removed) {
+    }
+
+    /**
+     * Gets the devices changed after a version, from the change log
+     * @param since Version seen by the client
+     * @param view Devices of the client's view, e.g. a filter
+     * @return Changes, or empty if the changes after that version are no longer in the log
+     */
+    public Optional<DeviceChanges> getChangesSince(long since, Predicate<DeviceInfo> view) {
+        long version = changeLog.getVersion();
+        DeviceBitmap changed = changeLog.changedSince(since);
+        if (changed == null) {
+            return Optional.empty();
+        }
+        List<DeviceInfo> changedDevices = new ArrayList<>();
+        List<Integer> removed = new ArrayList<>();
+        changed.stream().forEach(id -> {
+            DeviceInfo device = devices.get(id);
+            if (device != null && view.test(device)) {
+                changedDevices.add(device);
+            } else {
+                removed.add(id);
+            }
+        });
+        return Optional.of(new DeviceChanges(version, changedDevices, removed));
+    }
+
+    /**
+     * Gets the number of devices in each state per PON port, from the index counters
+     * @return Device count by state by PON port
+     */
+    public Map<Integer, Map<String, Integer>> getPonPortStateCounts() {
+        return deviceIndex.countStatesByPonPort();
+    }
+
+    /**
+     * Gets the number of devices in each state per VLAN, from the index counters
+     * @return Device count by state by VLAN ID
+     */
+    public Map<Integer, Map<String, Integer>> getVlanStateCounts() {
+        return deviceIndex.countStatesByVlan();
+    }
+
+    /**
+     * Gets the number of devices on each PON port, from the index counters
+     * @return Device count by PON port
+     */
+    public Map<Integer, Integer> getPonPortCounts() {
+        return deviceIndex.countByPonPort();
+    }
+
+    /**
+     * Gets the number of devices on each VLAN, from the index counters
+     * @return Device count by VLAN ID
+     */
+    public Map<Integer, Integer> getVlanCounts() {
+        return deviceIndex.countByVlan();
+    }
+
+    /**
+     * Gets the number of devices, from the index counter
+     * @return Device count
+     */
+    public int getDeviceCount() {
+        return deviceIndex.size();
+    }
+
+    /**
+     * Gets how many DHCP exchanges (initial DORA, renewals and rebinds) reached ACKNOWLEDGED since startup
+     * @return Monotonic completion count
+     */
+    public long getCompletedExchangeCount() {
+        return deviceIndex.getTransitionCount("ACKNOWLEDGED");
+    }
+
     /**
      * Clears all devices and resets the system
      */
@@ -542,6 +786,8 @@ public class DeviceService {
 
         devices.clear();
         devicesByXid.clear();
+        deviceIndex.clear();
+        changeLog.reset();
         macAddresses.clear();
         xids.clear();
         deviceIdCounter.set(0);
@@ -0,0 +1,93 @@
+package com.argela;
+
+import java.time.Duration;
+
+/**
+ * Sort orders of device lists. Every order is backed by an index in {@link DeviceIndex} and ties are
+ * broken by device ID, so a position in the order (sort key and ID) stays valid while devices change.
+ */
+public enum DeviceSort {
+    /** Device ID */
+    ID("id"),
+    /** IP address numerically; devices without an address last */
+    IP("ip"),
+    /** State in {@link DeviceBinaryCodec#STATES} order (IDLE, DISCOVERING, ... ACKNOWLEDGED, TIMEOUT, RENEWING, REBINDING) */
+    STATE("state"),
+    /** PON port, then ONU ID, then UNI ID */
+    PON("pon"),
+    /** Duration of the completed DORA exchange; devices without a completed exchange last */
+    DURATION("duration");
+
+    private final String parameter;
+
+    DeviceSort(String parameter) {
+        this.parameter = parameter;
+    }
+
+    /**
+     * Gets the name of the order in request parameters
+     * @return Parameter value
+     */
+    public String getParameter() {
+        return parameter;
+    }
+
+    /**
+     * Gets the sort key of a device in this order
+     * @param device The device
+     * @return Sort key, ties broken by ID
+     */
+    public long key(DeviceInfo device) {
+        return switch (this) {
+            case ID -> device.getId();
+            case IP -> {
+                int ip = DeviceBinaryCodec.packIp(device.getIpAddress());
+                yield ip == 0 ? Long.MAX_VALUE : Integer.toUnsignedLong(ip);
+            }
+            case STATE -> {
+                int ordinal = DeviceBinaryCodec.STATES.indexOf(device.getState());
+                yield ordinal < 0 ? DeviceBinaryCodec.STATES.size() : ordinal;
+            }
+            case PON -> ((long) device.getPonPort() << 42) | ((long) (device.getOnuId() & 0x1FFFFF) << 21)
+                    | (device.getUniId() & 0x1FFFFF);
+            case DURATION -> {
+                // Same figure as DeviceInfo.getDhcpCompletionTimeMs(), fixed once the exchange completed
+                if (device.isDhcpCompleted() && device.getDhcpStartTime() != null && device.getDhcpCompletionTime() != null) {
+                    yield Duration.between(device.getDhcpStartTime(), device.getDhcpCompletionTime()).toMillis();
+                }
+                yield Long.MAX_VALUE;
+            }
+        };
+    }
+
+    /**
+     * Parses a sort parameter
+     * @param value Order name, optionally prefixed with '-' for descending order; null or blank for ID
+     * @return The order
+     * @throws IllegalArgumentException if the name is unknown
+     */
+    public static DeviceSort parse(String value) {
+        if (value == null || value.isBlank()) {
+            return ID;
+        }
+        String name = value.trim();
+        if (name.startsWith("-")) {
+            name = name.substring(1);
+        }
+        for (DeviceSort sort : values()) {
+            if (sort.parameter.equalsIgnoreCase(name)) {
+                return sort;
+            }
+        }
+        throw new IllegalArgumentException("Unknown sort '" + value + "', expected one of id, ip, state, pon, duration");
+    }
+
+    /**
+     * Checks whether a sort parameter asks for descending order
+     * @param value Sort parameter
+     * @return true if prefixed with '-'
+     */
+    public static boolean isDescending(String value) {
+        return value != null && value.trim().startsWith("-");
+    }
+}
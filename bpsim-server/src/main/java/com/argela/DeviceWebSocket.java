@@ -1,45 +1,176 @@
 package com.argela;
 
+import io.quarkus.grpc.GrpcService;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.websocket.*;
 import jakarta.websocket.server.ServerEndpoint;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.json.bind.Jsonb;
 import jakarta.json.bind.JsonbBuilder;
+import jakarta.json.bind.annotation.JsonbTransient;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * WebSocket endpoint for real-time device updates and storm status notifications
+ * WebSocket endpoint for real-time device updates and storm status notifications.
+ * Device changes are coalesced: a change only marks the device dirty, and a flusher thread sends
+ * the latest state of every dirty device in batched frames at a fixed interval.
+ * <p>
+ * A client may subscribe to a filter (PON, VLAN, state) and a viewport (offset and limit within an
+ * optional device ID range), either with query parameters on connect or with a "subscribe" message.
+ * A subscribed client gets a snapshot of its viewport, then only updates of the devices in it and
+ * the rows entering or leaving it. Clients that never subscribe keep receiving every device.
+ * Subscriptions are evaluated on the flusher thread only, so their state needs no locking.
+ * <p>
+ * Snapshots (all devices on a plain connect, the viewport of a subscription) are streamed in chunks,
+ * optionally gzip-compressed, and the next chunk is only encoded once the previous one was written.
+ * Device updates flushed meanwhile are merged per device and sent after the last chunk, so a long snapshot
+ * costs one entry per changed device rather than a growing backlog of frames; every device frame carries
+ * the flush sequence number, so a client can tell that the updates it gets are newer than its snapshot.
+ * <p>
+ * Every session writes through its own bounded {@link WebSocketSendQueue}, so a stalled browser tab only
+ * ever costs a fixed number of queued frames and never delays the other clients.
+ * <p>
+ * Clients negotiating the {@value DeviceBinaryCodec#SUBPROTOCOL} subprotocol receive device frames as
+ * fixed-layout binary records ({@link DeviceBinaryCodec}) instead of JSON; notifications stay JSON text.
  */
-@ServerEndpoint("/ws/devices")
+@ServerEndpoint(value = "/ws/devices", subprotocols = DeviceBinaryCodec.SUBPROTOCOL)
 @ApplicationScoped
 public class DeviceWebSocket {
     private static final Logger logger = LoggerFactory.getLogger(DeviceWebSocket.class);
     private static final Set<Session> sessions = ConcurrentHashMap.newKeySet();
     private static final Jsonb jsonb = JsonbBuilder.create();
 
+    // Devices changed since the last flush; the latest state is read when flushing
+    private static final ConcurrentHashMap<Integer, DeviceInfo> dirtyDevices = new ConcurrentHashMap<>();
+
+    // Set when all devices were cleared; every subscription is then rebuilt from scratch
+    private static final AtomicBoolean resubscribeAll = new AtomicBoolean();
+
+    // Number of the last flush that produced device frames
+    private static final AtomicLong flushSequence = new AtomicLong();
+
+    private static final String SUBSCRIPTION_PROPERTY = "bpsim.subscription";
+    private static final String SNAPSHOT_PROPERTY = "bpsim.snapshot";
+    private static final String COMPRESS_PROPERTY = "bpsim.compress";
+    private static final String QUEUE_PROPERTY = "bpsim.queue";
+    private static final String STORM_STATUS_KEY = "storm_status";
+    private static final Set<String> SUBSCRIPTION_PARAMETERS =
+            Set.of("ponPort", "vlanId", "onuId", "uniId", "gemPort", "state", "text", "offset", "limit", "fromId", "toId");
+
+    @ConfigProperty(name = "dhcp.websocket.flush.interval.ms", defaultValue = "100")
+    long flushIntervalMs;
+
+    @ConfigProperty(name = "dhcp.websocket.batch.size", defaultValue = "500")
+    int batchSize;
+
+    @ConfigProperty(name = "dhcp.websocket.viewport.max.limit", defaultValue = "1000")
+    int maxViewportLimit;
+
+    @ConfigProperty(name = "dhcp.websocket.snapshot.chunk.size", defaultValue = "1000")
+    int snapshotChunkSize;
+
+    @ConfigProperty(name = "dhcp.websocket.queue.capacity", defaultValue = "64")
+    int queueCapacity;
+
+    @ConfigProperty(name = "dhcp.websocket.overflow.policy", defaultValue = "RESYNC")
+    WebSocketSendQueue.OverflowPolicy overflowPolicy;
+
     @Inject
     DeviceService deviceService;
 
+    @Inject
+    @GrpcService
+    DhcpGrpcServer grpcServer;
+
+    private ScheduledExecutorService flusher;
+
+    /**
+     * Starts the device update flusher
+     */
+    @PostConstruct
+    void startFlusher() {
+        flusher = Executors.newSingleThreadScheduledExecutor(new DefaultThreadFactory("ws-device-flush", true));
+        flusher.scheduleWithFixedDelay(this::flushDirtyDevices, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        logger.info("WebSocket device flusher started - interval: {}ms, batch size: {}", flushIntervalMs, batchSize);
+    }
+
+    /**
+     * Stops the device update flusher
+     */
+    @PreDestroy
+    void stopFlusher() {
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+    }
+
     /**
      * Handles new WebSocket connection
      * @param session The WebSocket session that opened
      */
     @OnOpen
     public void onOpen(Session session) {
-        sessions.add(session);
-        // Send all devices when connected
-        for (DeviceInfo device : deviceService.getAllDevices()) {
-            session.getAsyncRemote().sendText(jsonb.toJson(device));
+        Map<String, List<String>> parameters = session.getRequestParameterMap();
+        List<String> compress = parameters.get("compress");
+        session.getUserProperties().put(COMPRESS_PROPERTY, compress != null && compress.contains("gzip"));
+        session.getUserProperties().put(QUEUE_PROPERTY, new WebSocketSendQueue(session, overflowPolicy, queueCapacity,
+                () -> flusher.execute(() -> resync(session))));
+        if (parameters.keySet().stream().anyMatch(SUBSCRIPTION_PARAMETERS::contains)) {
+            try {
+                subscribe(session, SubscribeMessage.fromParameters(parameters));
+                sessions.add(session);
+                logger.debug("WebSocket client connected with subscription {}", parameters);
+            } catch (IllegalArgumentException e) {
+                closeRejected(session, e.getMessage());
+                return;
+            }
+        } else {
+            // Register the snapshot before the session, so updates flushed meanwhile are buffered behind it
+            SnapshotStream snapshot = startFullSnapshot(session);
+            sessions.add(session);
+            flusher.execute(snapshot::sendNextChunk);
+            logger.debug("WebSocket client connected. Sending {} existing devices", snapshot.total);
         }
-        logger.debug("WebSocket client connected. Sending {} existing devices", deviceService.getAllDevices().size());
 
-        StormStatusMessage stormMessage = new StormStatusMessage("ready", null, null);
-        session.getAsyncRemote().sendText(jsonb.toJson(stormMessage));
+        int activeStorms = grpcServer.getActiveStormCount();
+        if (activeStorms == 0) {
+            StormStatusMessage stormMessage = new StormStatusMessage("ready", null, null);
+            queueOf(session).sendText(jsonb.toJson(stormMessage));
+        }
+        for (DhcpStorm storm : grpcServer.getStorms()) {
+            if (storm.isRunning()) {
+                StormStatusMessage stormMessage = createStormStatusMessage(storm, activeStorms, null);
+                queueOf(session).sendText(jsonb.toJson(stormMessage));
+            }
+        }
     }
 
     /**
@@ -59,16 +190,698 @@ public class DeviceWebSocket {
     }
 
     /**
-     * Broadcasts device information to all connected WebSocket clients
-     * @param device The device information to broadcast
+     * Handles a client message; only "subscribe" messages are understood
+     * @param session The WebSocket session that sent the message
+     * @param message The message text
      */
-    public static void broadcastDevice(DeviceInfo device) {
-        String json = jsonb.toJson(device);
+    @OnMessage
+    public void onMessage(Session session, String message) {
+        SubscribeMessage subscribe;
+        try {
+            subscribe = jsonb.fromJson(message, SubscribeMessage.class);
+        } catch (Exception e) {
+            sendError(session, "Invalid message: " + e.getMessage());
+            return;
+        }
+        if (!"subscribe".equals(subscribe.getType())) {
+            sendError(session, "Unknown message type: " + subscribe.getType());
+            return;
+        }
+        try {
+            subscribe(session, subscribe);
+        } catch (IllegalArgumentException e) {
+            sendError(session, e.getMessage());
+        }
+    }
+
+    /**
+     * Replaces the session's subscription. The new subscription stays inactive (nothing is sent for it)
+     * until the flusher thread has taken its snapshot.
+     * @param session The session
+     * @param request The requested filter and viewport
+     * @throws IllegalArgumentException if the viewport is invalid
+     */
+    private void subscribe(Session session, SubscribeMessage request) {
+        int limit = request.getLimit() == null ? maxViewportLimit : request.getLimit();
+        int offset = request.getOffset() == null ? 0 : request.getOffset();
+        int fromId = request.getFromId() == null ? 0 : request.getFromId();
+        int toId = request.getToId() == null ? Integer.MAX_VALUE : request.getToId();
+        if (limit < 1 || limit > maxViewportLimit) {
+            throw new IllegalArgumentException("limit must be between 1 and " + maxViewportLimit);
+        }
+        if (offset < 0 || fromId < 0 || toId < fromId) {
+            throw new IllegalArgumentException("offset and fromId must be non-negative and toId must not be below fromId");
+        }
+        DeviceFilter filter = request.getFilter() == null ? new DeviceFilter() : request.getFilter();
+        DeviceSubscription subscription = new DeviceSubscription(filter, offset, limit, fromId, toId);
+        session.getUserProperties().put(SUBSCRIPTION_PROPERTY, subscription);
+        flusher.execute(() -> activate(session, subscription));
+    }
+
+    /**
+     * Takes the snapshot of a subscription and starts streaming it. Runs on the flusher thread.
+     */
+    private void activate(Session session, DeviceSubscription subscription) {
+        if (session.getUserProperties().get(SUBSCRIPTION_PROPERTY) != subscription || !session.isOpen()) {
+            return; // Replaced by a newer subscription or closed meanwhile
+        }
+        try {
+            cancelSnapshot(session);
+            List<DeviceInfo> devices = subscription.snapshot(deviceService);
+            SnapshotStream snapshot = new SnapshotStream(session, subscription, devices.iterator(), subscription.total);
+            session.getUserProperties().put(SNAPSHOT_PROPERTY, snapshot);
+            snapshot.sendNextChunk();
+            logger.debug("WebSocket subscription {} - {} matching devices, {} in viewport",
+                    subscription.filter, subscription.total, devices.size());
+        } catch (Exception e) {
+            logger.error("Error activating WebSocket subscription: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Stops a snapshot that is still being sent, together with the updates buffered behind it
+     */
+    private static void cancelSnapshot(Session session) {
+        if (session.getUserProperties().get(SNAPSHOT_PROPERTY) instanceof SnapshotStream snapshot) {
+            snapshot.cancel();
+        }
+    }
+
+    /**
+     * Starts streaming all devices to a session; device updates are held back until it completes
+     * @return The snapshot, whose first chunk is to be sent on the flusher thread
+     */
+    private SnapshotStream startFullSnapshot(Session session) {
+        cancelSnapshot(session);
+        SnapshotStream snapshot = new SnapshotStream(session, null,
+                deviceService.getAllDevices().iterator(), deviceService.getAllDevices().size());
+        session.getUserProperties().put(SNAPSHOT_PROPERTY, snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Sends a fresh snapshot after queued updates were dropped. Runs on the flusher thread.
+     */
+    private void resync(Session session) {
+        if (!session.isOpen()) {
+            return;
+        }
+        if (session.getUserProperties().get(SUBSCRIPTION_PROPERTY) instanceof DeviceSubscription subscription) {
+            activate(session, subscription);
+        } else {
+            startFullSnapshot(session).sendNextChunk();
+        }
+    }
+
+    /**
+     * Gets the send queue of a session
+     */
+    private static WebSocketSendQueue queueOf(Session session) {
+        return (WebSocketSendQueue) session.getUserProperties().get(QUEUE_PROPERTY);
+    }
+
+    /**
+     * Queues a notification for every connected client
+     */
+    private static void sendToAll(String json) {
+        for (Session session : sessions) {
+            queueOf(session).sendText(json);
+        }
+    }
+
+    private static void sendToAll(String json, String key) {
+        for (Session session : sessions) {
+            queueOf(session).sendText(json, key);
+        }
+    }
+
+    /**
+     * Gets the send queues of the connected clients with their depth, drop and latency metrics
+     * @return One queue per session
+     */
+    public static List<WebSocketSendQueue> getSendQueues() {
+        List<WebSocketSendQueue> queues = new ArrayList<>(sessions.size());
         for (Session session : sessions) {
-            session.getAsyncRemote().sendText(json);
+            queues.add(queueOf(session));
+        }
+        return queues;
+    }
+
+    private static void closeRejected(Session session, String message) {
+        try {
+            session.close(new CloseReason(CloseReason.CloseCodes.CANNOT_ACCEPT, message));
+        } catch (IOException e) {
+            logger.debug("Could not close rejected WebSocket session: {}", e.getMessage());
         }
     }
 
+    private static void sendError(Session session, String message) {
+        queueOf(session).sendText(jsonb.toJson(new ErrorMessage(message)));
+    }
+
+    /**
+     * Marks a device as changed; its latest state is sent to all connected clients with the next flush.
+     * Nothing is recorded while no client is connected.
+     * @param device The device that changed
+     */
+    public static void broadcastDevice(DeviceInfo device) {
+        // A removed device is recorded too; the flush notices it is no longer registered
+        if (!sessions.isEmpty()) {
+            dirtyDevices.put(device.getId(), device);
+        }
+    }
+
+    /**
+     * Sends the latest state of the devices changed since the last flush: all of them to unsubscribed
+     * clients, and the viewport changes of each subscription to subscribed clients,
+     * in frames of at most batchSize devices
+     */
+    private void flushDirtyDevices() {
+        try {
+            if (resubscribeAll.getAndSet(false)) {
+                for (Session session : sessions) {
+                    // Chunks and updates of the cleared devices are stale; plain clients get the new devices as updates
+                    cancelSnapshot(session);
+                    if (session.getUserProperties().get(SUBSCRIPTION_PROPERTY) instanceof DeviceSubscription subscription) {
+                        activate(session, subscription);
+                    }
+                }
+            }
+            if (dirtyDevices.isEmpty()) {
+                return;
+            }
+            if (sessions.isEmpty()) {
+                dirtyDevices.clear();
+                return;
+            }
+
+            List<DeviceInfo> changed = new ArrayList<>(dirtyDevices.size());
+            List<Integer> removed = new ArrayList<>();
+            for (Integer id : dirtyDevices.keySet()) {
+                DeviceInfo device = dirtyDevices.remove(id);
+                if (device == null) {
+                    continue;
+                }
+                if (deviceService.getDevice(id) == device) {
+                    changed.add(device);
+                } else {
+                    removed.add(id);
+                }
+            }
+
+            long sequence = flushSequence.incrementAndGet();
+            List<?> unsubscribedJson = null;
+            List<?> unsubscribedBinary = null;
+            for (Session session : sessions) {
+                Object subscription = session.getUserProperties().get(SUBSCRIPTION_PROPERTY);
+                if (subscription == null) {
+                    // Unsubscribed clients share the same frames
+                    if (isBinary(session)) {
+                        if (holdBehindSnapshot(session, changed, removed, null, sequence)) {
+                            continue;
+                        }
+                        if (unsubscribedBinary == null) {
+                            unsubscribedBinary = encodeBatches(changed, removed, null, sequence, true);
+                        }
+                        queueOf(session).sendDeviceUpdates(unsubscribedBinary);
+                    } else {
+                        if (holdBehindSnapshot(session, changed, removed, null, sequence)) {
+                            continue;
+                        }
+                        if (unsubscribedJson == null) {
+                            unsubscribedJson = encodeBatches(changed, removed, null, sequence, false);
+                        }
+                        queueOf(session).sendDeviceUpdates(unsubscribedJson);
+                    }
+                } else if (((DeviceSubscription) subscription).active) {
+                    DeviceSubscription viewport = (DeviceSubscription) subscription;
+                    List<Integer> leaving = new ArrayList<>();
+                    List<DeviceInfo> updates = viewport.apply(changed, removed, leaving, deviceService);
+                    if ((!updates.isEmpty() || !leaving.isEmpty() || viewport.totalChanged)
+                            && !holdBehindSnapshot(session, updates, leaving, viewport.total, sequence)) {
+                        queueOf(session).sendDeviceUpdates(encodeBatches(updates, leaving, viewport.total, sequence, isBinary(session)));
+                    }
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Error flushing device updates: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Merges device updates into the snapshot being sent to a session, if any. Runs on the flusher thread.
+     * @return true if the snapshot took them, false if they are to be queued
+     */
+    private static boolean holdBehindSnapshot(Session session, List<DeviceInfo> updates, List<Integer> removed,
+                                              Integer total, long sequence) {
+        return session.getUserProperties().get(SNAPSHOT_PROPERTY) instanceof SnapshotStream snapshot
+                && snapshot.hold(updates, removed, total, sequence);
+    }
+
+    /**
+     * Encodes device updates and removed device IDs as frames of at most batchSize devices;
+     * the removed IDs and total go with the last frame
+     */
+    private List<?> encodeBatches(List<DeviceInfo> devices, List<Integer> removed, Integer total, long sequence,
+                                  boolean binary) {
+        List<Object> frames = new ArrayList<>(devices.size() / batchSize + 1);
+        for (int start = 0; start < devices.size() || start == 0; start += batchSize) {
+            int end = Math.min(start + batchSize, devices.size());
+            boolean last = end == devices.size();
+            List<DeviceInfo> batch = devices.subList(start, end);
+            List<Integer> batchRemoved = last && !removed.isEmpty() ? removed : null;
+            Integer batchTotal = last ? total : null;
+            frames.add(binary
+                    ? DeviceBinaryCodec.encodeBatch(batch, batchRemoved, batchTotal, sequence)
+                    : toJson(new DeviceBatchMessage(batch, batchRemoved, batchTotal, sequence), batch));
+        }
+        return frames;
+    }
+
+    /**
+     * Serializes a device message, appending its devices from their cached JSON
+     * @param message The message, whose devices are not serialized by JSON-B
+     * @param devices The devices of the message
+     * @return Message JSON
+     */
+    private static String toJson(Object message, List<DeviceInfo> devices) {
+        String envelope = jsonb.toJson(message);
+        StringBuilder json = new StringBuilder(envelope.length() + devices.size() * 450 + 16)
+                .append(envelope, 0, envelope.length() - 1)
+                .append(",\"devices\":[");
+        return DeviceEncodings.appendJson(json, devices).append("]}").toString();
+    }
+
+    private static boolean isBinary(Session session) {
+        return DeviceBinaryCodec.SUBPROTOCOL.equals(session.getNegotiatedSubprotocol());
+    }
+
+    /**
+     * Streams a snapshot to one session in chunks of snapshotChunkSize devices. A chunk is encoded on the
+     * flusher thread only after the previous one was written, so a slow client holds at most one chunk
+     * on the server. Device updates flushed meanwhile are merged per device and queued after the last chunk,
+     * outside the capacity for device updates: like the snapshot they are bounded by the number of devices.
+     */
+    private final class SnapshotStream {
+        private final Session session;
+        private final WebSocketSendQueue queue;
+        private final DeviceSubscription subscription;
+        private final Iterator<DeviceInfo> devices;
+        private final int total;
+        private final long sequence = flushSequence.get();
+        private final boolean gzip;
+        private final boolean binary;
+        private int chunk;
+        private volatile boolean finished;
+        // Updates flushed while the snapshot is sent, latest state per device; guarded by this
+        private final Map<Integer, DeviceInfo> heldUpdates = new LinkedHashMap<>();
+        private final Set<Integer> heldRemoved = new LinkedHashSet<>();
+        private Integer heldTotal;
+        private long heldSequence;
+        private boolean holding;
+
+        SnapshotStream(Session session, DeviceSubscription subscription, Iterator<DeviceInfo> devices, int total) {
+            this.session = session;
+            this.queue = queueOf(session);
+            this.subscription = subscription;
+            this.devices = devices;
+            this.total = total;
+            this.gzip = Boolean.TRUE.equals(session.getUserProperties().get(COMPRESS_PROPERTY));
+            this.binary = isBinary(session);
+        }
+
+        /**
+         * Merges flushed device updates, to be sent once the snapshot is complete
+         * @param updates Changed devices
+         * @param removed IDs of removed devices, or of devices that left the viewport
+         * @param total Matching device count of a subscription, null for a full snapshot
+         * @param sequence Flush sequence number
+         * @return false if the snapshot is finished and the updates are to be queued directly
+         */
+        synchronized boolean hold(List<DeviceInfo> updates, List<Integer> removed, Integer total, long sequence) {
+            if (finished) {
+                return false;
+            }
+            for (DeviceInfo device : updates) {
+                heldRemoved.remove(device.getId());
+                heldUpdates.put(device.getId(), device);
+            }
+            for (Integer id : removed) {
+                heldUpdates.remove(id);
+                heldRemoved.add(id);
+            }
+            heldTotal = total;
+            heldSequence = sequence;
+            holding = true;
+            return true;
+        }
+
+        /**
+         * Encodes and queues the next chunk. Runs on the flusher thread.
+         */
+        void sendNextChunk() {
+            if (finished) {
+                return;
+            }
+            if (!session.isOpen()) {
+                cancel();
+                return;
+            }
+            try {
+                List<DeviceInfo> batch = new ArrayList<>(Math.min(snapshotChunkSize, total));
+                while (batch.size() < snapshotChunkSize && devices.hasNext()) {
+                    batch.add(devices.next());
+                }
+                boolean last = !devices.hasNext();
+                Object payload;
+                if (binary) {
+                    payload = DeviceBinaryCodec.encodeSnapshotChunk(batch, total, chunk++, last,
+                            subscription == null ? 0 : subscription.offset, sequence);
+                } else {
+                    String json = toJson(new DeviceSnapshotMessage(subscription, total, chunk++, last, sequence, batch), batch);
+                    payload = gzip ? gzip(json) : json;
+                }
+                // Completing on the flusher thread orders it with the flushes merging updates
+                queue.sendChunk(payload, () -> flusher.execute(last ? this::complete : this::sendNextChunk));
+            } catch (Exception e) {
+                logger.error("Error sending WebSocket snapshot: {}", e.getMessage(), e);
+                cancel();
+            }
+        }
+
+        private void complete() {
+            List<?> frames;
+            synchronized (this) {
+                if (finished) {
+                    return;
+                }
+                finished = true;
+                if (!holding) {
+                    return;
+                }
+                frames = encodeBatches(new ArrayList<>(heldUpdates.values()), new ArrayList<>(heldRemoved), heldTotal,
+                        heldSequence, binary);
+                heldUpdates.clear();
+                heldRemoved.clear();
+            }
+            for (Object frame : frames) {
+                queue.sendChunk(frame, null);
+            }
+        }
+
+        /**
+         * Stops sending chunks and drops the device updates merged behind the snapshot
+         */
+        synchronized void cancel() {
+            finished = true;
+            heldUpdates.clear();
+            heldRemoved.clear();
+        }
+
+        private ByteBuffer gzip(String json) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(json.length() / 4);
+            try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+                out.write(json.getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return ByteBuffer.wrap(bytes.toByteArray());
+        }
+    }
+
+    /**
+     * Filter and viewport of a subscribed session, with the set of matching device IDs and the IDs
+     * currently in the viewport. Only accessed on the flusher thread once active.
+     */
+    private static class DeviceSubscription {
+        final DeviceFilter filter;
+        final int offset;
+        final int limit;
+        final int fromId;
+        final int toId;
+
+        volatile boolean active;
+        BitSet members = new BitSet();
+        int total;
+        boolean totalChanged;
+        List<Integer> visible = new ArrayList<>();
+
+        DeviceSubscription(DeviceFilter filter, int offset, int limit, int fromId, int toId) {
+            this.filter = filter;
+            this.offset = offset;
+            this.limit = limit;
+            this.fromId = fromId;
+            this.toId = toId;
+        }
+
+        /**
+         * Rebuilds the matching set from the device index and returns the devices in the viewport
+         */
+        List<DeviceInfo> snapshot(DeviceService deviceService) {
+            BitSet matching = new BitSet();
+            deviceService.streamDevices(filter)
+                    .mapToInt(DeviceInfo::getId)
+                    .filter(this::inRange)
+                    .forEach(matching::set);
+            members = matching;
+            total = matching.cardinality();
+            visible = window();
+            active = true;
+            return devicesOf(visible, deviceService);
+        }
+
+        /**
+         * Applies changed and removed devices to the matching set.
+         * When rows entered or left the matching set the viewport is recomputed.
+         * @param leaving Receives the IDs that left the viewport
+         * @return Devices to send: updates of visible devices and devices that entered the viewport
+         */
+        List<DeviceInfo> apply(List<DeviceInfo> changed, List<Integer> removed, List<Integer> leaving,
+                               DeviceService deviceService) {
+            Set<Integer> visibleIds = new HashSet<>(visible);
+            List<DeviceInfo> updates = new ArrayList<>();
+            boolean membershipChanged = false;
+            for (DeviceInfo device : changed) {
+                int id = device.getId();
+                boolean matches = inRange(id) && filter.matches(device);
+                if (matches != members.get(id)) {
+                    members.set(id, matches);
+                    total += matches ? 1 : -1;
+                    membershipChanged = true;
+                } else if (matches && visibleIds.contains(id)) {
+                    updates.add(device);
+                }
+            }
+            for (int id : removed) {
+                if (members.get(id)) {
+                    members.clear(id);
+                    total--;
+                    membershipChanged = true;
+                }
+            }
+            totalChanged = membershipChanged;
+            if (membershipChanged) {
+                List<Integer> newWindow = window();
+                Set<Integer> newIds = new HashSet<>(newWindow);
+                for (int id : visible) {
+                    if (!newIds.contains(id)) {
+                        leaving.add(id);
+                    }
+                }
+                List<Integer> entering = new ArrayList<>();
+                for (int id : newWindow) {
+                    if (!visibleIds.contains(id)) {
+                        entering.add(id);
+                    }
+                }
+                updates.addAll(devicesOf(entering, deviceService));
+                visible = newWindow;
+            }
+            return updates;
+        }
+
+        private boolean inRange(int id) {
+            return id >= fromId && id <= toId;
+        }
+
+        /**
+         * Gets the IDs in the viewport: limit matching IDs after skipping offset, in ID order
+         */
+        private List<Integer> window() {
+            List<Integer> ids = new ArrayList<>(Math.min(limit, total));
+            int skipped = 0;
+            for (int id = members.nextSetBit(fromId); id >= 0 && ids.size() < limit; id = members.nextSetBit(id + 1)) {
+                if (skipped < offset) {
+                    skipped++;
+                } else {
+                    ids.add(id);
+                }
+                if (id == Integer.MAX_VALUE) {
+                    break;
+                }
+            }
+            return ids;
+        }
+
+        private static List<DeviceInfo> devicesOf(List<Integer> ids, DeviceService deviceService) {
+            List<DeviceInfo> devices = new ArrayList<>(ids.size());
+            for (int id : ids) {
+                DeviceInfo device = deviceService.getDevice(id);
+                if (device != null) {
+                    devices.add(device);
+                }
+            }
+            return devices;
+        }
+    }
+
+    /**
+     * Message class for a batch of device updates. Subscribed clients also receive the IDs that
+     * left their viewport and the number of matching devices when it changed.
+     * The devices are appended from their cached JSON, see {@link #toJson(Object, List)}.
+     */
+    public static class DeviceBatchMessage {
+        private String type = "device_batch";
+        private List<DeviceInfo> devices;
+        private List<Integer> removed;
+        private Integer total;
+        private long seq;
+
+        public DeviceBatchMessage(List<DeviceInfo> devices, List<Integer> removed, Integer total, long seq) {
+            this.devices = devices;
+            this.removed = removed;
+            this.total = total;
+            this.seq = seq;
+        }
+
+        public String getType() { return type; }
+        @JsonbTransient
+        public List<DeviceInfo> getDevices() { return devices; }
+        public List<Integer> getRemoved() { return removed; }
+        public Integer getTotal() { return total; }
+        public long getSeq() { return seq; }
+    }
+
+    /**
+     * Message class for one chunk of a snapshot: all devices on connect, or the viewport of a subscription.
+     * Chunk 0 replaces whatever the client showed before. The devices are appended from their cached JSON.
+     */
+    public static class DeviceSnapshotMessage {
+        private String type = "device_snapshot";
+        private DeviceFilter filter;
+        private int offset;
+        private Integer limit;
+        private int total;
+        private int chunk;
+        private boolean last;
+        private long seq;
+        private List<DeviceInfo> devices;
+
+        DeviceSnapshotMessage(DeviceSubscription subscription, int total, int chunk, boolean last, long seq,
+                              List<DeviceInfo> devices) {
+            if (subscription != null) {
+                this.filter = subscription.filter;
+                this.offset = subscription.offset;
+                this.limit = subscription.limit;
+            }
+            this.total = total;
+            this.chunk = chunk;
+            this.last = last;
+            this.seq = seq;
+            this.devices = devices;
+        }
+
+        public String getType() { return type; }
+        public DeviceFilter getFilter() { return filter; }
+        public int getOffset() { return offset; }
+        public Integer getLimit() { return limit; }
+        public int getTotal() { return total; }
+        public int getChunk() { return chunk; }
+        public boolean isLast() { return last; }
+        public long getSeq() { return seq; }
+        @JsonbTransient
+        public List<DeviceInfo> getDevices() { return devices; }
+    }
+
+    /**
+     * Client message selecting a filter and viewport
+     */
+    public static class SubscribeMessage {
+        private String type;
+        private DeviceFilter filter;
+        private Integer offset;
+        private Integer limit;
+        private Integer fromId;
+        private Integer toId;
+
+        public SubscribeMessage() {
+        }
+
+        /**
+         * Builds a subscription from connect query parameters
+         * @param parameters Request parameters of the WebSocket handshake
+         * @return Subscribe message
+         * @throws IllegalArgumentException if a numeric parameter is malformed
+         */
+        static SubscribeMessage fromParameters(Map<String, List<String>> parameters) {
+            SubscribeMessage message = new SubscribeMessage();
+            message.type = "subscribe";
+            message.filter = new DeviceFilter(intParameter(parameters, "ponPort"),
+                    intParameter(parameters, "vlanId"), stringParameter(parameters, "state"));
+            message.filter.setOnuId(intParameter(parameters, "onuId"));
+            message.filter.setUniId(intParameter(parameters, "uniId"));
+            message.filter.setGemPort(intParameter(parameters, "gemPort"));
+            message.filter.setText(stringParameter(parameters, "text"));
+            message.offset = intParameter(parameters, "offset");
+            message.limit = intParameter(parameters, "limit");
+            message.fromId = intParameter(parameters, "fromId");
+            message.toId = intParameter(parameters, "toId");
+            return message;
+        }
+
+        private static String stringParameter(Map<String, List<String>> parameters, String name) {
+            List<String> values = parameters.get(name);
+            return values == null || values.isEmpty() || values.get(0).isBlank() ? null : values.get(0);
+        }
+
+        private static Integer intParameter(Map<String, List<String>> parameters, String name) {
+            String value = stringParameter(parameters, name);
+            try {
+                return value == null ? null : Integer.valueOf(value.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(name + " must be a number: " + value);
+            }
+        }
+
+        public String getType() { return type; }
+        public void setType(String type) { this.type = type; }
+        public DeviceFilter getFilter() { return filter; }
+        public void setFilter(DeviceFilter filter) { this.filter = filter; }
+        public Integer getOffset() { return offset; }
+        public void setOffset(Integer offset) { this.offset = offset; }
+        public Integer getLimit() { return limit; }
+        public void setLimit(Integer limit) { this.limit = limit; }
+        public Integer getFromId() { return fromId; }
+        public void setFromId(Integer fromId) { this.fromId = fromId; }
+        public Integer getToId() { return toId; }
+        public void setToId(Integer toId) { this.toId = toId; }
+    }
+
+    /**
+     * Message class for rejected client messages
+     */
+    public static class ErrorMessage {
+        private String type = "error";
+        private String message;
+
+        public ErrorMessage(String message) {
+            this.message = message;
+        }
+
+        public String getType() { return type; }
+        public String getMessage() { return message; }
+    }
+
     /**
      * Message class for storm status updates
      */
@@ -77,6 +890,9 @@ public class DeviceWebSocket {
         private String status; // ready, progress, error
         private StormParams params;
         private String message;
+        private String name;
+        private int activeStorms;
+        private DhcpStorm storm;
 
         /**
          * Creates a new storm status message
@@ -98,6 +914,12 @@ public class DeviceWebSocket {
         public void setParams(StormParams params) { this.params = params; }
         public String getMessage() { return message; }
         public void setMessage(String message) { this.message = message; }
+        public String getName() { return name; }
+        public void setName(String name) { this.name = name; }
+        public int getActiveStorms() { return activeStorms; }
+        public void setActiveStorms(int activeStorms) { this.activeStorms = activeStorms; }
+        public DhcpStorm getStorm() { return storm; }
+        public void setStorm(DhcpStorm storm) { this.storm = storm; }
 
         /**
          * Storm parameters class containing rate and interval settings
@@ -139,21 +961,64 @@ public class DeviceWebSocket {
         StormStatusMessage stormMessage = new StormStatusMessage(status, params, message);
         String json = jsonb.toJson(stormMessage);
 
-        for (Session session : sessions) {
-            session.getAsyncRemote().sendText(json);
+        sendToAll(json, STORM_STATUS_KEY);
+    }
+
+    /**
+     * Broadcasts the status of a named storm to all connected WebSocket clients
+     * @param storm The storm whose status changed
+     * @param activeStorms Number of storms still running
+     * @param message Additional status message (optional)
+     */
+    public static void broadcastStormStatus(DhcpStorm storm, int activeStorms, String message) {
+        String json = jsonb.toJson(createStormStatusMessage(storm, activeStorms, message));
+
+        // Only the latest status of a storm is worth sending to a client that is behind
+        sendToAll(json, STORM_STATUS_KEY + ":" + storm.getName());
+    }
+
+    /**
+     * Creates the status message of a named storm. The overall status stays "progress"
+     * while any storm is running.
+     * @param storm The storm to describe
+     * @param activeStorms Number of storms still running
+     * @param message Additional status message (optional)
+     * @return Storm status message
+     */
+    private static StormStatusMessage createStormStatusMessage(DhcpStorm storm, int activeStorms, String message) {
+        String status;
+        if (activeStorms > 0) {
+            status = "progress";
+        } else if (DhcpStorm.STATUS_ERROR.equals(storm.getStatus())) {
+            status = "error";
+        } else {
+            status = "ready";
+        }
+
+        StormStatusMessage.StormParams params = null;
+        if (storm.getRate() != null || storm.getIntervalSec() != null) {
+            params = new StormStatusMessage.StormParams(storm.getRate(), storm.getIntervalSec());
         }
+
+        StormStatusMessage stormMessage = new StormStatusMessage(status, params, message);
+        stormMessage.setName(storm.getName());
+        stormMessage.setActiveStorms(activeStorms);
+        stormMessage.setStorm(storm);
+        return stormMessage;
     }
 
     /**
      * Broadcasts clear all message to connected clients
      */
     public static void broadcastClearAll() {
+        // Pending updates of cleared devices must not bring their cards back
+        dirtyDevices.clear();
+        // Device IDs are reused after a clear, so subscriptions start over with a fresh snapshot
+        resubscribeAll.set(true);
         ClearAllMessage clearMessage = new ClearAllMessage();
         String json = jsonb.toJson(clearMessage);
 
-        for (Session session : sessions) {
-            session.getAsyncRemote().sendText(json);
-        }
+        sendToAll(json);
     }
 
     /**
@@ -174,9 +1039,7 @@ public class DeviceWebSocket {
         ResetMessage resetMessage = new ResetMessage();
         String json = jsonb.toJson(resetMessage);
 
-        for (Session session : sessions) {
-            session.getAsyncRemote().sendText(json);
-        }
+        sendToAll(json);
     }
 
     /**
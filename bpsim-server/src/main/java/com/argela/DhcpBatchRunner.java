@@ -0,0 +1,149 @@
+package com.argela;
+
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.quarkus.grpc.GrpcService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs batches of DHCP simulation requests. Requests of one subscriber (PON port, ONU and UNI) share a lane
+ * and run in submission order, so a DISCOVERY followed by a REQUEST for the same device keeps its meaning.
+ * Lanes run in parallel on a pool of {@code dhcp.batch.parallelism} threads shared by all batches.
+ */
+@ApplicationScoped
+public class DhcpBatchRunner {
+    private static final Logger logger = LoggerFactory.getLogger(DhcpBatchRunner.class);
+
+    @ConfigProperty(name = "dhcp.batch.parallelism", defaultValue = "8")
+    int parallelism;
+
+    @ConfigProperty(name = "dhcp.batch.max.size", defaultValue = "100000")
+    int maxSize;
+
+    @Inject
+    @GrpcService
+    DhcpGrpcServer grpcServer;
+
+    private ExecutorService pool;
+
+    /**
+     * Starts the lane pool
+     */
+    @PostConstruct
+    void startPool() {
+        pool = Executors.newFixedThreadPool(parallelism, new DefaultThreadFactory("dhcp-batch", true));
+        logger.info("DHCP batch runner started - parallelism: {}, max batch size: {}", parallelism, maxSize);
+    }
+
+    /**
+     * Stops the lane pool, abandoning queued requests
+     */
+    @PreDestroy
+    void stopPool() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Gets the largest accepted batch
+     * @return Maximum number of requests in a batch
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Checks whether the runner still accepts and executes batches
+     * @return false once the application is shutting down
+     */
+    public boolean isRunning() {
+        return pool != null && !pool.isShutdown();
+    }
+
+    /**
+     * Starts executing a validated batch and returns immediately
+     * @param requests Requests of the batch, already validated
+     * @return Queue receiving one result per request, in completion order
+     * @throws RejectedExecutionException if the runner is shutting down
+     */
+    public BlockingQueue<BatchResult> submit(List<DhcpSimulationRequest> requests) {
+        if (!isRunning()) {
+            throw new RejectedExecutionException("DHCP batch runner is shutting down");
+        }
+        BlockingQueue<BatchResult> results = new LinkedBlockingQueue<>();
+        int laneCount = Math.max(1, Math.min(parallelism, requests.size()));
+        List<List<Integer>> lanes = new ArrayList<>(laneCount);
+        for (int i = 0; i < laneCount; i++) {
+            lanes.add(new ArrayList<>());
+        }
+        for (int i = 0; i < requests.size(); i++) {
+            DhcpSimulationRequest request = requests.get(i);
+            int lane = Math.floorMod(Objects.hash(request.getPonPort(), request.getOnuId(), request.getUniId()), laneCount);
+            lanes.get(lane).add(i);
+        }
+
+        for (List<Integer> lane : lanes) {
+            if (lane.isEmpty()) {
+                continue;
+            }
+            pool.execute(() -> {
+                for (int index : lane) {
+                    results.add(run(index, requests.get(index)));
+                }
+            });
+        }
+        return results;
+    }
+
+    private BatchResult run(int index, DhcpSimulationRequest request) {
+        try {
+            DeviceInfo device = grpcServer.sendDhcp(request);
+            return new BatchResult(index, "ok", device.getId(), device.getState(), null);
+        } catch (Exception e) {
+            logger.debug("Batch request {} failed: {}", index, e.getMessage());
+            return new BatchResult(index, "error", null, null,
+                    e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        }
+    }
+
+    /**
+     * Outcome of one request of a batch
+     */
+    public static class BatchResult {
+        private final int index;
+        private final String status;
+        private final Integer deviceId;
+        private final String state;
+        private final String message;
+
+        public BatchResult(int index, String status, Integer deviceId, String state, String message) {
+            this.index = index;
+            this.status = status;
+            this.deviceId = deviceId;
+            this.state = state;
+            this.message = message;
+        }
+
+        public int getIndex() { return index; }
+        public String getStatus() { return status; }
+        public Integer getDeviceId() { return deviceId; }
+        public String getState() { return state; }
+        public String getMessage() { return message; }
+    }
+}
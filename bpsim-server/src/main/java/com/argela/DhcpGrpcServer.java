@@ -4,14 +4,22 @@ import com.google.protobuf.ByteString;
 import com.netsia.control.lib.api.packet.parsed.*;
 import com.netsia.control.lib.api.packet.parsed.dhcp.DhcpOption;
 import com.netsia.control.lib.api.packet.parsed.dhcp.DhcpRelayAgentOption;
+import io.grpc.BindableService;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerMethodDefinition;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.ServiceDescriptor;
+import io.grpc.Status;
+import io.grpc.stub.ServerCalls;
 import io.grpc.stub.StreamObserver;
 import io.quarkus.grpc.GrpcService;
+import io.quarkus.grpc.RegisterInterceptor;
 
 import io.smallrye.context.api.ManagedExecutorConfig;
 import jakarta.inject.Inject;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.context.ManagedExecutor;
-import org.opencord.voltha.openolt.OpenoltGrpc.OpenoltImplBase;
+import org.opencord.voltha.openolt.OpenoltGrpc;
 import org.opencord.voltha.openolt.VolthaOpenOLT;
 import org.opencord.voltha.openolt.VolthaOpenOLT.Indication;
 import org.opencord.voltha.openolt.VolthaOpenOLT.PacketIndication;
@@ -22,12 +30,14 @@ import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 @GrpcService
-public class DhcpGrpcServer extends OpenoltImplBase {
+@RegisterInterceptor(IndicationShardInterceptor.class)
+public class DhcpGrpcServer implements BindableService, OpenoltGrpc.AsyncService {
     private static final Logger logger = LoggerFactory.getLogger(DhcpGrpcServer.class);
 
     @Inject
@@ -37,6 +47,18 @@ public class DhcpGrpcServer extends OpenoltImplBase {
     @ManagedExecutorConfig(maxAsync = 100)
     ManagedExecutor managedExecutor;
 
+    @Inject
+    DhcpRetransmissionManager retransmissionManager;
+
+    @Inject
+    DhcpLeaseRenewalManager leaseRenewalManager;
+
+    @Inject
+    IndicationDispatcher indicationDispatcher;
+
+    @Inject
+    OltBringUpGenerator bringUpGenerator;
+
     // Configuration Properties
     @ConfigProperty(name = "dhcp.vlan.default.priority", defaultValue = "3")
     byte defaultVlanPriority;
@@ -68,15 +90,20 @@ public class DhcpGrpcServer extends OpenoltImplBase {
     @ConfigProperty(name = "dhcp.uni.port.count", defaultValue = "1")
     int uniPortCount;
 
+    @ConfigProperty(name = "dhcp.storm.history.size", defaultValue = "32")
+    int stormHistorySize;
+
     // Lazy-initialized MAC addresses
     private byte[] serverMac;
     private byte[] broadcastMac;
 
-    private final Set<StreamObserver<Indication>> clientStreams = ConcurrentHashMap.newKeySet();
+    // Pre-encoded packet indication fields per device ID
+    private final ConcurrentHashMap<Integer, PacketIndicationTemplate> packetTemplates = new ConcurrentHashMap<>();
 
-    private volatile boolean stormInProgress = false;
-    private final Object stormLock = new Object();
-    private CompletableFuture<Void> currentStormFuture = null;
+    // Named storms (running and recently finished) and the storm currently driving each device
+    private final ConcurrentHashMap<String, DhcpStorm> storms = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, DhcpStorm> deviceClaims = new ConcurrentHashMap<>();
+    private final AtomicInteger stormCounter = new AtomicInteger();
 
     // Add these private fields at the class level (with other fields)
     private final Random heartbeatRandom = new Random();
@@ -109,9 +136,99 @@ public class DhcpGrpcServer extends OpenoltImplBase {
     public static final byte DHCP_REQUEST = 3;
     public static final byte DHCP_ACK = 5;
 
+    /**
+     * Binds the generated service, replacing the indication streaming methods with variants that send
+     * pre-encoded indications, so an indication fanned out to several streams is serialized only once
+     * @return The service definition
+     */
+    @Override
+    public ServerServiceDefinition bindService() {
+        ServerServiceDefinition generated = OpenoltGrpc.bindService(this);
+        MethodDescriptor<Empty, EncodedIndication> packetIndicationMethod =
+                encoded(OpenoltGrpc.getEnablePacketIndicationMethod());
+        MethodDescriptor<Empty, EncodedIndication> indicationMethod =
+                encoded(OpenoltGrpc.getEnableIndicationMethod());
+        Set<String> replaced = Set.of(packetIndicationMethod.getFullMethodName(), indicationMethod.getFullMethodName());
+
+        // The service descriptor must list exactly the bound method descriptors
+        ServiceDescriptor.Builder descriptor = ServiceDescriptor.newBuilder(OpenoltGrpc.SERVICE_NAME)
+                .setSchemaDescriptor(generated.getServiceDescriptor().getSchemaDescriptor())
+                .addMethod(packetIndicationMethod)
+                .addMethod(indicationMethod);
+        List<ServerMethodDefinition<?, ?>> methods = new ArrayList<>();
+        for (ServerMethodDefinition<?, ?> method : generated.getMethods()) {
+            if (!replaced.contains(method.getMethodDescriptor().getFullMethodName())) {
+                descriptor.addMethod(method.getMethodDescriptor());
+                methods.add(method);
+            }
+        }
+
+        ServerServiceDefinition.Builder builder = ServerServiceDefinition.builder(descriptor.build())
+                .addMethod(packetIndicationMethod, ServerCalls.asyncServerStreamingCall(this::enableEncodedPacketIndication))
+                .addMethod(indicationMethod, ServerCalls.asyncServerStreamingCall(this::enableEncodedIndication));
+        methods.forEach(builder::addMethod);
+        return builder.build();
+    }
+
+    private static MethodDescriptor<Empty, EncodedIndication> encoded(MethodDescriptor<Empty, Indication> method) {
+        return method.toBuilder(method.getRequestMarshaller(), EncodedIndication.MARSHALLER).build();
+    }
+
     @Override
     public void enablePacketIndication(Empty request, StreamObserver<Indication> responseObserver) {
-        clientStreams.add(responseObserver);
+        // Bound to enableEncodedPacketIndication instead, see bindService()
+        responseObserver.onError(Status.UNIMPLEMENTED.asRuntimeException());
+    }
+
+    @Override
+    public void enableIndication(Empty request, StreamObserver<Indication> responseObserver) {
+        // Bound to enableEncodedIndication instead, see bindService()
+        responseObserver.onError(Status.UNIMPLEMENTED.asRuntimeException());
+    }
+
+    /**
+     * Subscribes an OLT/ONU indication stream and, if configured, brings the simulated OLT up on it
+     * @param request Empty request
+     * @param responseObserver Stream receiving pre-encoded indications
+     */
+    private void enableEncodedIndication(Empty request, StreamObserver<EncodedIndication> responseObserver) {
+        IndicationSubscriber subscriber = indicationDispatcher.subscribe(responseObserver,
+                IndicationDispatcher.KIND_INDICATION, IndicationShardInterceptor.CLIENT_KEY.get(),
+                IndicationShard.CONTEXT_KEY.get());
+        logger.info("Client connected to Indication stream.");
+        if (bringUpGenerator.isAutoBringUp()) {
+            try {
+                bringUpGenerator.startBringUp(subscriber);
+            } catch (IllegalArgumentException e) {
+                logger.warn("OLT bring-up not started: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Activates an ONU, answered asynchronously with an onu_ind on the indication streams
+     * @param request The ONU to activate
+     * @param responseObserver Empty response
+     */
+    @Override
+    public void activateOnu(VolthaOpenOLT.Onu request, StreamObserver<Empty> responseObserver) {
+        responseObserver.onNext(Empty.getDefaultInstance());
+        responseObserver.onCompleted();
+        logger.debug("ActivateOnu received - PON: {}, ONU: {}", request.getIntfId(), request.getOnuId());
+        managedExecutor.runAsync(() -> bringUpGenerator.activateOnu(
+                request.getIntfId(), request.getOnuId(), request.getSerialNumber()));
+    }
+
+    /**
+     * Subscribes a packet indication stream
+     * @param request Empty request
+     * @param responseObserver Stream receiving pre-encoded indications
+     */
+    private void enableEncodedPacketIndication(Empty request, StreamObserver<EncodedIndication> responseObserver) {
+        // Shard declared through call headers, see IndicationShardInterceptor
+        indicationDispatcher.subscribe(responseObserver, IndicationDispatcher.KIND_PACKET,
+                IndicationShardInterceptor.CLIENT_KEY.get(), IndicationShard.CONTEXT_KEY.get(),
+                IndicationShardInterceptor.RESUME_KEY.get());
         pgwPreviouslyConnected = true;
         logger.info("Client connected to PacketIndication stream.");
     }
@@ -367,8 +484,10 @@ public class DhcpGrpcServer extends OpenoltImplBase {
         // Get network configuration by VLAN ID
         DeviceService.NetworkConfiguration networkConfig = deviceService.getNetworkConfiguration(device.getVlanId());
 
-        // Assign IP
-        String assignedIP = deviceService.generateUniqueIPAddress(device.getVlanId());
+        // Assign IP, a retransmitted discovery gets the IP already offered to it
+        String assignedIP = "OFFERING".equals(device.getState()) && device.getIpAddress() != null
+                ? device.getIpAddress()
+                : deviceService.generateUniqueIPAddress(device.getVlanId());
         device.setIpAddress(assignedIP);
         device.setState("OFFERING");
 
@@ -392,6 +511,10 @@ public class DhcpGrpcServer extends OpenoltImplBase {
     private void handleReceivedRequest(DeviceInfo device, DHCP dhcpPacket, VolthaOpenOLT.UplinkPacket request) {
         // Get requested IP from Request (Option 50)
         String requestedIP = getRequestedIP(dhcpPacket);
+        if (requestedIP == null && dhcpPacket.getClientIPAddress() != 0) {
+            // Renewing/rebinding clients carry their leased IP in ciaddr instead of Option 50
+            requestedIP = IPv4.fromIPv4Address(dhcpPacket.getClientIPAddress());
+        }
         if (requestedIP != null) {
             device.setRequiredIp(requestedIP);
             device.setIpAddress(requestedIP); // Confirm same IP in ACK
@@ -419,6 +542,9 @@ public class DhcpGrpcServer extends OpenoltImplBase {
      * @param request The original ONU packet request
      */
     private void handleReceivedOffer(DeviceInfo device, DHCP dhcpPacket, VolthaOpenOLT.OnuPacket request) {
+        long offerNanos = System.nanoTime();
+        boolean firstOffer = device.getOfferReceivedNanos() == 0;
+
         // Get offered IP from Offer
         int offeredIP = dhcpPacket.getYourIPAddress();
         String offeredIPStr = IPv4.fromIPv4Address(offeredIP);
@@ -434,8 +560,16 @@ public class DhcpGrpcServer extends OpenoltImplBase {
         device.setServerIdentifier(networkConfig.getServerIdentifier());
         device.setSubnetMask(networkConfig.getSubnetMask());
 
+        DhcpStorm storm = deviceClaims.get(device.getId());
         deviceService.updateDevice(device);
         sendDhcpRequest(device);
+        retransmissionManager.arm(device, DhcpRetransmissionManager.Phase.REQUEST,
+                storm, () -> sendDhcpRequest(device));
+
+        // Offers answering a retransmitted discovery do not restart the phase clocks
+        if (firstOffer) {
+            recordOfferLatency(device, storm, offerNanos);
+        }
     }
 
     /**
@@ -449,6 +583,9 @@ public class DhcpGrpcServer extends OpenoltImplBase {
         int confirmedIP = dhcpPacket.getYourIPAddress();
         String confirmedIPStr = IPv4.fromIPv4Address(confirmedIP);
 
+        retransmissionManager.disarm(device.getId());
+        recordAckLatency(device, deviceClaims.remove(device.getId()), System.nanoTime());
+
         device.setIpAddress(confirmedIPStr);
         device.setState("ACKNOWLEDGED");
         device.setDhcpCompletionTime(Instant.now());
@@ -462,6 +599,50 @@ public class DhcpGrpcServer extends OpenoltImplBase {
         device.setSubnetMask(networkConfig.getSubnetMask());
 
         deviceService.updateDevice(device);
+        leaseRenewalManager.bind(device, () -> sendDhcpRenewRequest(device, false),
+                () -> sendDhcpRenewRequest(device, true));
+    }
+
+    /**
+     * Records DISCOVER->OFFER and OFFER->REQUEST latencies of a storm device
+     * @param device The device that received the offer
+     * @param storm The storm driving the device, or null
+     * @param offerNanos When the offer was received
+     */
+    private void recordOfferLatency(DeviceInfo device, DhcpStorm storm, long offerNanos) {
+        long requestNanos = System.nanoTime();
+        device.markOfferReceived(offerNanos);
+        device.markRequestSent(requestNanos);
+
+        long discoverNanos = device.getDiscoverSentNanos();
+        if (storm != null && discoverNanos > 0) {
+            storm.metrics().recordDiscoverToOffer(offerNanos - discoverNanos);
+            storm.metrics().recordOfferToRequest(requestNanos - offerNanos);
+        }
+    }
+
+    /**
+     * Records REQUEST->ACK and full exchange latencies of a storm device and counts it as completed
+     * @param device The device that received the ACK
+     * @param storm The storm driving the device, or null
+     * @param ackNanos When the ACK was received
+     */
+    private void recordAckLatency(DeviceInfo device, DhcpStorm storm, long ackNanos) {
+        long discoverNanos = device.getDiscoverSentNanos();
+        long requestNanos = device.getRequestSentNanos();
+        device.clearExchange();
+        if (storm == null) {
+            return;
+        }
+
+        if (requestNanos > 0) {
+            storm.metrics().recordRequestToAck(ackNanos - requestNanos);
+        }
+        long startNanos = discoverNanos > 0 ? discoverNanos : requestNanos;
+        if (startNanos > 0) {
+            storm.metrics().recordCompleted(device, ackNanos - startNanos, discoverNanos > 0);
+        }
+        storm.incrementCompleted();
     }
 
     /**
@@ -509,6 +690,23 @@ public class DhcpGrpcServer extends OpenoltImplBase {
                                     byte messageType, String clientIP, String offeredIP, String serverIP,
                                     String gatewayIP, String subnetMask, String[] dnsServers, int leaseTime,
                                     int XID, String sourceAddress, String destinationAddress) {
+        return createDhcpPacket(cTag, clientMac, destinationMac, sourceMac, messageType, clientIP, offeredIP,
+                serverIP, gatewayIP, subnetMask, dnsServers, leaseTime, XID, sourceAddress, destinationAddress,
+                "0.0.0.0", true);
+    }
+
+    /**
+     * Creates DHCP packet with the given client address (ciaddr) and broadcast flag
+     * @param clientAddress Client's current IP address (ciaddr), 0.0.0.0 unless renewing or rebinding
+     * @param broadcast Whether the broadcast flag is set
+     * @return DHCP packet as byte array
+     * @see #createDhcpPacket(int, byte[], byte[], byte[], byte, String, String, String, String, String, String[], int, int, String, String)
+     */
+    private byte[] createDhcpPacket(int cTag, byte[] clientMac, byte[] destinationMac, byte[] sourceMac,
+                                    byte messageType, String clientIP, String offeredIP, String serverIP,
+                                    String gatewayIP, String subnetMask, String[] dnsServers, int leaseTime,
+                                    int XID, String sourceAddress, String destinationAddress,
+                                    String clientAddress, boolean broadcast) {
 
         initializeMacAddresses();
 
@@ -519,8 +717,8 @@ public class DhcpGrpcServer extends OpenoltImplBase {
         dhcpPacket.setHops((byte) 0);
         dhcpPacket.setTransactionId(XID);
         dhcpPacket.setSeconds((short) 0);
-        dhcpPacket.setFlags((short) 0x8000);
-        dhcpPacket.setClientIPAddress(0);
+        dhcpPacket.setFlags(broadcast ? (short) 0x8000 : 0);
+        dhcpPacket.setClientIPAddress(IPv4.toIPv4Address(clientAddress));
         dhcpPacket.setYourIPAddress(IPv4.toIPv4Address(clientIP));
         dhcpPacket.setServerIPAddress(IPv4.toIPv4Address(serverIP));
         dhcpPacket.setGatewayIPAddress(0);
@@ -683,8 +881,9 @@ public class DhcpGrpcServer extends OpenoltImplBase {
     /**
      * Sends DHCP packet based on simulation request
      * @param request The DHCP simulation request containing packet type and parameters
+     * @return The device the packet was sent for
      */
-    public void sendDhcp(DhcpSimulationRequest request){
+    public DeviceInfo sendDhcp(DhcpSimulationRequest request){
         String packetType = request.getPacketType().toLowerCase();
 
         // Find existing device first by PON, ONU, UNI parameters only
@@ -697,7 +896,7 @@ public class DhcpGrpcServer extends OpenoltImplBase {
         DeviceInfo device;
         if (existingDevice.isEmpty()) {
             // If device doesn't exist, create new one based on packet type
-            logger.info("No existing device found with PON={}, ONU={}, UNI={}. Creating new device for {} request",
+            logger.debug("No existing device found with PON={}, ONU={}, UNI={}. Creating new device for {} request",
                     request.getPonPort(), request.getOnuId(), request.getUniId(), packetType.toUpperCase());
 
             device = switch(packetType) {
@@ -712,10 +911,10 @@ public class DhcpGrpcServer extends OpenoltImplBase {
             };
 
             deviceService.addDevice(device);
-            logger.info("Created new device ID={} for {} request", device.getId(), packetType.toUpperCase());
+            logger.debug("Created new device ID={} for {} request", device.getId(), packetType.toUpperCase());
         } else {
             device = existingDevice.get();
-            logger.info("Using existing device ID={} for {} request", device.getId(), packetType.toUpperCase());
+            logger.debug("Using existing device ID={} for {} request", device.getId(), packetType.toUpperCase());
 
             // Update device based on packet type
             switch(packetType) {
@@ -739,11 +938,22 @@ public class DhcpGrpcServer extends OpenoltImplBase {
 
         // Send DHCP packet
         switch(packetType) {
-            case "discovery" -> sendDhcpDiscover(device);
+            case "discovery" -> {
+                device.markExchangeStarted(true);
+                sendDhcpDiscover(device);
+                retransmissionManager.arm(device, DhcpRetransmissionManager.Phase.DISCOVER,
+                        null, () -> sendDhcpDiscover(device));
+            }
             case "offer" -> sendDhcpOffer(device);
-            case "request" -> sendDhcpRequest(device);
+            case "request" -> {
+                device.markExchangeStarted(false);
+                sendDhcpRequest(device);
+                retransmissionManager.arm(device, DhcpRetransmissionManager.Phase.REQUEST,
+                        null, () -> sendDhcpRequest(device));
+            }
             case "ack" -> sendDhcpAck(device);
         }
+        return device;
     }
 
     private void updateDeviceForDiscovery(DeviceInfo device) {
@@ -1045,6 +1255,38 @@ public class DhcpGrpcServer extends OpenoltImplBase {
         sendPacketIndication(device, dhcpPacket);
     }
 
+    /**
+     * Sends DHCP Request packet of a bound client extending its lease (RFC 2131 section 4.3.2)
+     * @param device The device that will send the request
+     * @param broadcast true when REBINDING (broadcast to any server), false when RENEWING (unicast to its server)
+     */
+    public void sendDhcpRenewRequest(DeviceInfo device, boolean broadcast) {
+        initializeMacAddresses();
+        byte[] clientMac = macStringToBytes(device.getClientMac());
+
+        byte[] dhcpPacket = createDhcpPacket(
+                device.getVlanId(),             // VLAN tag
+                clientMac,                      // Client MAC
+                broadcast ? broadcastMac : serverMac, // Destination MAC
+                clientMac,                      // Source MAC (client)
+                DHCP_REQUEST,                   // Message type
+                "0.0.0.0",                      // Client IP (yiaddr)
+                null,                           // No requested IP option, the lease IP is in ciaddr
+                "0.0.0.0",                      // No server identifier while renewing/rebinding
+                device.getGateway(),            // Gateway IP
+                device.getSubnetMask(),         // Subnet mask
+                null,                           // DNS servers (not sent in request)
+                0,                              // Lease time (not sent in request)
+                device.getXid(),                // Transaction ID
+                device.getIpAddress(),          // Source IP address (leased IP)
+                broadcast ? "255.255.255.255" : device.getServerIdentifier(), // Destination IP
+                device.getIpAddress(),          // Client address (ciaddr)
+                false                           // Client can receive unicast replies
+        );
+
+        sendPacketIndication(device, dhcpPacket);
+    }
+
     /**
      * Sends DHCP ACK packet
      * @param device The device to send the ACK to
@@ -1106,44 +1348,22 @@ public class DhcpGrpcServer extends OpenoltImplBase {
             logger.error("Invalid DHCP packet data");
             return;
         }
+        if (!indicationDispatcher.acceptsPackets(device.getPonPort(), device.getOnuId())) {
+            return;
+        }
         try {
-            PacketIndication.Builder pktBuilder = PacketIndication.newBuilder()
-                    .setIntfType("pon")
-                    .setIntfId(device.getPonPort())
-                    .setGemportId(device.getGemPort())
-                    .setPkt(ByteString.copyFrom(dhcpPacket));
-
-            // Add optional fields with control
-            if (device.getOnuId() > 0) {
-                pktBuilder.setOnuId(device.getOnuId());
-            }
-            if (device.getUniId() >= 0) {
-                pktBuilder.setUniId(device.getUniId());
+            // Per-device fields are encoded once, only the frame is appended per packet
+            PacketIndicationTemplate template = packetTemplates.get(device.getId());
+            if (template == null || !template.matches(device)) {
+                template = PacketIndicationTemplate.of(device);
+                packetTemplates.put(device.getId(), template);
             }
-            if (device.getPonPort() > 0) {
-                pktBuilder.setPortNo(device.getPonPort());
-            }
-
-            pktBuilder.setFlowId(1000 + device.getVlanId());
-
-            Indication indication = Indication.newBuilder()
-                    .setPktInd(pktBuilder.build())
-                    .build();
 
-            synchronized (clientStreams) {
-                clientStreams.removeIf(stream -> {
-                    try {
-                        stream.onNext(indication);
-                        return false; // Stream is working
-                    } catch (Exception e) {
-                        logger.warn("Client stream error, removing: {}", e.getMessage());
-                        try {
-                            stream.onError(e);
-                        } catch (Exception ignored) {}
-                        return true; // Remove stream
-                    }
-                });
-            }
+            // Encoded once with its replay sequence in the cookie and queued for every stream,
+            // the stream drainers write it out as gRPC flow control allows
+            PacketIndicationTemplate encoder = template;
+            indicationDispatcher.publishPacket(device.getPonPort(), device.getOnuId(),
+                    sequence -> encoder.encode(dhcpPacket, sequence));
 
         } catch (Exception e) {
             logger.error("Error creating packet indication: {}", e.getMessage(), e);
@@ -1151,85 +1371,101 @@ public class DhcpGrpcServer extends OpenoltImplBase {
     }
 
     /**
-     * Simulates DHCP storm by creating multiple devices rapidly
-     * @param rate Number of devices per second (if provided)
-     * @param intervalSec Interval between devices in seconds (if provided)
+     * Starts a named DHCP storm over the devices matched by the request's target selector.
+     * Storms with different names run concurrently, each with its own rate and cancel handle.
+     * @param request The storm request containing rate/interval and target selector
+     * @return The started storm
+     * @throws IllegalStateException if a storm with the same name is already running
      */
-    public void simulateDhcpStorm(Integer rate, Double intervalSec) {
-        logger.info("Starting DHCP storm simulation with rate: {}, intervalSec: {}", rate, intervalSec);
-
-        synchronized (stormLock) {
-            if (stormInProgress) {
-                throw new RuntimeException("DHCP storm is already in progress. Please wait for current storm to complete.");
-            }
-            stormInProgress = true;
+    public DhcpStorm simulateDhcpStorm(DhcpStormRequest request) {
+        String name = request.getName() == null || request.getName().isBlank()
+                ? "storm-" + stormCounter.incrementAndGet()
+                : request.getName().trim();
+
+        DhcpStorm storm = new DhcpStorm(name, request);
+        DhcpStorm existing = storms.compute(name, (key, current) ->
+                current != null && current.isRunning() ? current : storm);
+        if (existing != storm) {
+            throw new IllegalStateException("DHCP storm '" + name + "' is already in progress");
         }
+        pruneFinishedStorms();
 
-        DeviceWebSocket.broadcastStormStatus("progress", rate, intervalSec, "Storm started");
+        logger.info("Starting DHCP storm '{}' with rate: {}, intervalSec: {}, selector: {}",
+                name, storm.getRate(), storm.getIntervalSec(), request);
 
-        // Calculate delay
-        long delayMs;
-        if (rate != null && rate > 0) {
-            delayMs = 1000 / rate;
-        } else if (intervalSec != null && intervalSec > 0) {
-            delayMs = (long) (intervalSec * 1000);
-        } else {
-            synchronized (stormLock) {
-                stormInProgress = false;
-            }
-            throw new IllegalArgumentException("Invalid parameters for DHCP storm simulation");
-        }
+        // Snapshot the devices targeted by this storm's selector
+        List<DeviceInfo> targetDevices = deviceService.getAllDevices().stream()
+                .filter(storm::matches)
+                .toList();
+        int totalDevices = targetDevices.size();
+        storm.setTargetCount(totalDevices);
+        long delayMs = storm.getDelayMs();
 
-        // Get idle devices for storm - use preloaded devices instead of creating new ones
-        List<DeviceInfo> idleDevices = deviceService.getDevicesByState("IDLE");
-        int totalDevices = idleDevices.size();
+        broadcastStormStatus(storm, "Storm started");
 
-        currentStormFuture = CompletableFuture.runAsync(() -> {
+        CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
             try {
-                logger.info("DHCP Storm started - Rate: {}, Available idle devices: {}",
-                        (rate != null ? rate + " devices/sec" : "1 device per " + intervalSec + " seconds"),
+                logger.info("DHCP Storm '{}' started - Rate: {}, Targeted devices: {}", name,
+                        (storm.getRate() != null ? storm.getRate() + " devices/sec"
+                                : "1 device per " + storm.getIntervalSec() + " seconds"),
                         totalDevices);
 
                 if (totalDevices == 0) {
-                    logger.warn("No idle devices available for storm simulation");
-                    DeviceWebSocket.broadcastStormStatus(
-                            "error",
-                            null,
-                            null,
-                            "No idle devices available for storm simulation"
-                    );
+                    logger.warn("No devices match the selector of storm '{}'", name);
+                    if (storm.finish(DhcpStorm.STATUS_ERROR, "No devices match the storm selector")) {
+                        broadcastStormStatus(storm, storm.getMessage());
+                    }
                     return;
                 }
 
-                int successCount = 0;
-                int failureCount = 0;
-
-                // Process each idle device
                 for (int deviceIndex = 0; deviceIndex < totalDevices; deviceIndex++) {
-                    synchronized (stormLock) {
-                        if (!stormInProgress) {
-                            logger.debug("Storm cancelled at device {}", deviceIndex);
-                            break;
-                        }
+                    if (!storm.isRunning()) {
+                        logger.debug("Storm '{}' cancelled at device {}", name, deviceIndex);
+                        break;
                     }
 
                     if (Thread.currentThread().isInterrupted()) {
-                        logger.debug("Storm thread interrupted at device {}", deviceIndex);
+                        logger.debug("Storm '{}' thread interrupted at device {}", name, deviceIndex);
                         break;
                     }
 
                     try {
-                        DeviceInfo device = idleDevices.get(deviceIndex);
+                        DeviceInfo device = targetDevices.get(deviceIndex);
 
-                        // Update device state and send discovery
-                        updateDeviceForDiscovery(device);
-                        deviceService.updateDevice(device);
-                        sendDhcpDiscover(device);
+                        // Another storm may have taken the device since the snapshot
+                        if (!claimDevice(storm, device) || !storm.matches(device)) {
+                            storm.incrementSkipped();
+                            continue;
+                        }
+
+                        switch (storm.getType()) {
+                            case DhcpStormRequest.TYPE_RENEW, DhcpStormRequest.TYPE_REBIND -> {
+                                // Synchronized renewal of a bound cohort
+                                boolean rebinding = DhcpStormRequest.TYPE_REBIND.equals(storm.getType());
+                                device.markExchangeStarted(false);
+                                if (!leaseRenewalManager.startRenewal(device, rebinding,
+                                        () -> sendDhcpRenewRequest(device, false),
+                                        () -> sendDhcpRenewRequest(device, true))) {
+                                    storm.incrementSkipped();
+                                    continue;
+                                }
+                            }
+                            default -> {
+                                // Update device state and send discovery
+                                updateDeviceForDiscovery(device);
+                                deviceService.updateDevice(device);
+                                device.markExchangeStarted(true);
+                                sendDhcpDiscover(device);
+                                retransmissionManager.arm(device, DhcpRetransmissionManager.Phase.DISCOVER,
+                                        storm, () -> sendDhcpDiscover(device));
+                            }
+                        }
 
-                        successCount++;
+                        storm.incrementSent();
 
                         if ((deviceIndex + 1) % 50 == 0) {
-                            logger.info("Storm progress: {}/{} devices sent", deviceIndex + 1, totalDevices);
+                            logger.info("Storm '{}' progress: {}/{} devices sent", name, deviceIndex + 1, totalDevices);
+                            broadcastStormStatus(storm, null);
                         }
 
                         if (deviceIndex < totalDevices - 1) {
@@ -1241,52 +1477,73 @@ public class DhcpGrpcServer extends OpenoltImplBase {
                             }
                         }
                     } catch (Exception e) {
-                        failureCount++;
-                        logger.error("Error sending device {}: {}", deviceIndex, e.getMessage());
+                        storm.incrementFailure();
+                        logger.error("Storm '{}' error sending device {}: {}", name, deviceIndex, e.getMessage());
                     }
                 }
 
-                logger.info("DHCP Storm completed: {} devices sent successfully, {} failed out of {} total devices",
-                        successCount, failureCount, totalDevices);
+                logger.info("DHCP Storm '{}' completed: {} devices sent successfully, {} failed, {} skipped out of {} total devices",
+                        name, storm.getSentCount(), storm.getFailureCount(), storm.getSkippedCount(), totalDevices);
 
-                DeviceWebSocket.broadcastStormStatus(
-                        "ready",
-                        null,
-                        null,
-                        "Storm completed successfully"
-                );
+                if (storm.finish(DhcpStorm.STATUS_COMPLETED, "Storm completed successfully")) {
+                    broadcastStormStatus(storm, storm.getMessage());
+                }
             } catch (Exception e) {
-                logger.error("Fatal error during DHCP storm: {}", e.getMessage(), e);
-                DeviceWebSocket.broadcastStormStatus(
-                        "error",
-                        null,
-                        null,
-                        "Storm error: " + e.getMessage()
-                );
-            } finally {
-                synchronized (stormLock) {
-                    stormInProgress = false;
-                    currentStormFuture = null;
+                logger.error("Fatal error during DHCP storm '{}': {}", name, e.getMessage(), e);
+                if (storm.finish(DhcpStorm.STATUS_ERROR, "Storm error: " + e.getMessage())) {
+                    broadcastStormStatus(storm, storm.getMessage());
                 }
-                logger.info("DHCP Storm session ended");
+            } finally {
+                logger.info("DHCP Storm '{}' session ended", name);
             }
         }, managedExecutor);
+        storm.setFuture(future);
 
         // Handle future for exception handling
-        currentStormFuture.exceptionally(throwable -> {
-            logger.error("Storm execution error: {}", throwable.getMessage());
-            DeviceWebSocket.broadcastStormStatus(
-                    "error",
-                    null,
-                    null,
-                    "Storm execution error: " + throwable.getMessage()
-            );
-            synchronized (stormLock) {
-                stormInProgress = false;
-                currentStormFuture = null;
+        future.exceptionally(throwable -> {
+            if (storm.finish(DhcpStorm.STATUS_ERROR, "Storm execution error: " + throwable.getMessage())) {
+                logger.error("Storm '{}' execution error: {}", name, throwable.getMessage());
+                broadcastStormStatus(storm, storm.getMessage());
             }
             return null;
         });
+
+        return storm;
+    }
+
+    /**
+     * Broadcasts a storm's status together with the number of storms still running
+     * @param storm The storm whose status changed
+     * @param message Additional status message (optional)
+     */
+    private void broadcastStormStatus(DhcpStorm storm, String message) {
+        DeviceWebSocket.broadcastStormStatus(storm, getActiveStormCount(), message);
+    }
+
+    /**
+     * Claims a device for the given storm so that concurrent storms never drive the same device.
+     * A claim held by a storm that is no longer running can be taken over.
+     * @param storm The storm claiming the device
+     * @param device The device to claim
+     * @return true if the storm owns the device
+     */
+    private boolean claimDevice(DhcpStorm storm, DeviceInfo device) {
+        DhcpStorm owner = deviceClaims.compute(device.getId(), (id, current) ->
+                current == null || current == storm || !current.isRunning() ? storm : current);
+        return owner == storm;
+    }
+
+    /**
+     * Drops the oldest finished storms beyond the configured history size
+     */
+    private void pruneFinishedStorms() {
+        List<DhcpStorm> finished = storms.values().stream()
+                .filter(storm -> !storm.isRunning())
+                .sorted(Comparator.comparing(DhcpStorm::getStartTime))
+                .toList();
+        for (int i = 0; i < finished.size() - stormHistorySize; i++) {
+            storms.remove(finished.get(i).getName(), finished.get(i));
+        }
     }
 
     /**
@@ -1302,55 +1559,80 @@ public class DhcpGrpcServer extends OpenoltImplBase {
     }
 
     /**
-     * Checks if storm is currently in progress
-     * @return true if storm is running, false otherwise
+     * Checks if any storm is currently in progress
+     * @return true if at least one storm is running, false otherwise
      */
     public boolean isStormInProgress() {
-        synchronized (stormLock) {
-            return stormInProgress;
-        }
+        return getActiveStormCount() > 0;
     }
 
     /**
-     * Cancels the currently running storm
+     * Gets the number of running storms
+     * @return Number of storms in running status
      */
-    public void cancelStorm() {
-        synchronized (stormLock) {
-            if (stormInProgress && currentStormFuture != null) {
-                logger.info("Cancelling DHCP storm...");
-
-                stormInProgress = false;
-
-                boolean cancelled = currentStormFuture.cancel(true); // interrupt if running
-
-                logger.info("DHCP storm cancellation result: {}", cancelled);
-
-                // Reset state
-                currentStormFuture = null;
+    public int getActiveStormCount() {
+        return (int) storms.values().stream().filter(DhcpStorm::isRunning).count();
+    }
 
-                DeviceWebSocket.broadcastStormStatus(
-                        "ready",
-                        null,
-                        null,
-                        "Storm cancelled"
-                );
-            } else {
-                logger.debug("No active storm to cancel (stormInProgress: {}, currentStormFuture: {})",
-                        stormInProgress, (currentStormFuture != null));
+    /**
+     * Gets all known storms, running and recently finished
+     * @return Collection of storms ordered by start time
+     */
+    public List<DhcpStorm> getStorms() {
+        return storms.values().stream()
+                .sorted(Comparator.comparing(DhcpStorm::getStartTime))
+                .toList();
+    }
 
+    /**
+     * Gets a storm by name
+     * @param name The storm name
+     * @return Optional containing the storm if known
+     */
+    public Optional<DhcpStorm> getStorm(String name) {
+        return Optional.ofNullable(storms.get(name));
+    }
 
-                // Ensure consistent state
-                stormInProgress = false;
-                currentStormFuture = null;
+    /**
+     * Builds the latency and throughput report of a storm
+     * @param name The storm name
+     * @return Report map, or empty if no such storm is known
+     */
+    public Optional<Map<String, Object>> getStormReport(String name) {
+        return getStorm(name).map(DhcpStorm::buildReport);
+    }
 
-                DeviceWebSocket.broadcastStormStatus(
-                        "ready",
-                        null,
-                        null,
-                        "No active storm"
-                );
+    /**
+     * Cancels all running storms
+     * @return Number of storms cancelled
+     */
+    public int cancelStorm() {
+        int cancelled = 0;
+        for (DhcpStorm storm : storms.values()) {
+            if (cancelStorm(storm.getName())) {
+                cancelled++;
             }
         }
+        if (cancelled == 0) {
+            logger.debug("No active storm to cancel");
+        }
+        return cancelled;
+    }
+
+    /**
+     * Cancels a single running storm
+     * @param name The storm name
+     * @return true if the storm was running and has been cancelled
+     */
+    public boolean cancelStorm(String name) {
+        DhcpStorm storm = storms.get(name);
+        if (storm == null || !storm.cancel()) {
+            return false;
+        }
+
+        logger.info("DHCP storm '{}' cancelled after {} devices", name, storm.getSentCount());
+        broadcastStormStatus(storm, storm.getMessage());
+        return true;
     }
 
     /**
@@ -1358,12 +1640,11 @@ public class DhcpGrpcServer extends OpenoltImplBase {
      * @return String describing current storm status
      */
     public String getStormStatus() {
-        synchronized (stormLock) {
-            if (stormInProgress) {
-                return "DHCP Storm is currently in progress";
-            } else {
-                return "No active DHCP Storm";
-            }
+        int active = getActiveStormCount();
+        if (active > 0) {
+            return active + " DHCP Storm(s) currently in progress";
+        } else {
+            return "No active DHCP Storm";
         }
     }
 }
@@ -0,0 +1,235 @@
+package com.argela;
+
+import io.netty.util.Timeout;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Simulates the RFC 2131 (section 4.4.5) lease timers of bound clients.
+ * At T1 a bound device enters RENEWING and unicasts a REQUEST to its server, at T2 it enters
+ * REBINDING and broadcasts a REQUEST, and when the lease expires it falls back to IDLE.
+ * A new ACK rebinds the lease and restarts the timers. All timers live on the shared timer wheel.
+ */
+@ApplicationScoped
+public class DhcpLeaseRenewalManager {
+    private static final Logger logger = LoggerFactory.getLogger(DhcpLeaseRenewalManager.class);
+
+    public static final String STATE_RENEWING = "RENEWING";
+    public static final String STATE_REBINDING = "REBINDING";
+
+    // States in which the device still holds its lease
+    private static final Set<String> BOUND_STATES =
+            Set.of("ACKNOWLEDGED", "ACKNOWLEDGING", STATE_RENEWING, STATE_REBINDING);
+
+    @ConfigProperty(name = "dhcp.lease.renew.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "dhcp.lease.renew.t1.ratio", defaultValue = "0.5")
+    double t1Ratio;
+
+    @ConfigProperty(name = "dhcp.lease.renew.t2.ratio", defaultValue = "0.875")
+    double t2Ratio;
+
+    @ConfigProperty(name = "dhcp.lease.renew.jitter.percent", defaultValue = "0")
+    double jitterPercent;
+
+    @Inject
+    DhcpTimerWheel timerWheel;
+
+    @Inject
+    DeviceService deviceService;
+
+    private final ConcurrentHashMap<Integer, LeaseSession> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * Starts tracking the lease of a device that just received an ACK, replacing any previous lease timers
+     * @param device The bound device
+     * @param renew Action that unicasts a REQUEST to the server (RENEWING)
+     * @param rebind Action that broadcasts a REQUEST (REBINDING)
+     */
+    public void bind(DeviceInfo device, Runnable renew, Runnable rebind) {
+        if (!enabled || device.getLeaseTime() <= 0) {
+            release(device.getId());
+            return;
+        }
+
+        LeaseSession session = new LeaseSession(device, System.currentTimeMillis(),
+                device.getLeaseTime() * 1000, renew, rebind);
+        replace(session);
+        schedule(session, Phase.RENEW, session.deadline(t1Ratio, jitterPercent));
+    }
+
+    /**
+     * Forces a bound device into RENEWING or REBINDING right now, e.g. for a synchronized renewal storm.
+     * The lease keeps its original start time, so T2 and expiry stay where they were.
+     * @param device The bound device
+     * @param rebinding true to broadcast a REQUEST (REBINDING), false to unicast it (RENEWING)
+     * @param renew Action that unicasts a REQUEST to the server
+     * @param rebind Action that broadcasts a REQUEST
+     * @return false if the device does not hold a lease
+     */
+    public boolean startRenewal(DeviceInfo device, boolean rebinding, Runnable renew, Runnable rebind) {
+        if (!BOUND_STATES.contains(device.getState()) || device.getIpAddress() == null) {
+            return false;
+        }
+
+        LeaseSession current = sessions.get(device.getId());
+        long leaseStartMs = current != null && current.device == device
+                ? current.leaseStartMs
+                : device.getLeaseStartTime() != null ? device.getLeaseStartTime().toEpochMilli() : System.currentTimeMillis();
+        long leaseMs = device.getLeaseTime() > 0 ? device.getLeaseTime() * 1000 : current != null ? current.leaseMs : 0;
+        if (leaseMs <= 0) {
+            return false;
+        }
+
+        LeaseSession session = new LeaseSession(device, leaseStartMs, leaseMs, renew, rebind);
+        replace(session);
+        enter(session, rebinding ? Phase.REBIND : Phase.RENEW);
+        return true;
+    }
+
+    /**
+     * Stops tracking the lease of a device
+     * @param deviceId The device ID
+     */
+    public void release(int deviceId) {
+        LeaseSession session = sessions.remove(deviceId);
+        if (session != null) {
+            session.cancel();
+        }
+    }
+
+    /**
+     * Gets the number of leases with running T1/T2/expiry timers
+     * @return Number of tracked leases
+     */
+    public int getTrackedCount() {
+        return sessions.size();
+    }
+
+    private void replace(LeaseSession session) {
+        LeaseSession previous = sessions.put(session.device.getId(), session);
+        if (previous != null) {
+            previous.cancel();
+        }
+    }
+
+    /**
+     * Schedules the next lease phase at an absolute time
+     * @param session The lease session
+     * @param phase The phase to enter
+     * @param atMs Epoch milliseconds at which the phase starts
+     */
+    private void schedule(LeaseSession session, Phase phase, long atMs) {
+        long delayMs = atMs - System.currentTimeMillis();
+        session.timeout = timerWheel.schedule(() -> {
+            if (isCurrent(session)) {
+                enter(session, phase);
+            }
+        }, delayMs);
+    }
+
+    /**
+     * Checks that the session was not replaced and its device still holds the lease
+     * @param session The lease session
+     * @return true if the timer should still act
+     */
+    private boolean isCurrent(LeaseSession session) {
+        DeviceInfo device = session.device;
+        if (sessions.get(device.getId()) != session) {
+            return false;
+        }
+        if (deviceService.getDevice(device.getId()) != device || !BOUND_STATES.contains(device.getState())) {
+            sessions.remove(device.getId(), session);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Moves the device into the given lease phase and schedules the following one
+     * @param session The lease session
+     * @param phase The phase to enter
+     */
+    private void enter(LeaseSession session, Phase phase) {
+        DeviceInfo device = session.device;
+        switch (phase) {
+            case RENEW -> {
+                logger.debug("Device ID={} reached T1, renewing lease of {}", device.getId(), device.getIpAddress());
+                startRequest(device, STATE_RENEWING);
+                session.renew.run();
+                schedule(session, Phase.REBIND, session.deadline(t2Ratio, jitterPercent));
+            }
+            case REBIND -> {
+                logger.debug("Device ID={} reached T2, rebinding lease of {}", device.getId(), device.getIpAddress());
+                startRequest(device, STATE_REBINDING);
+                session.rebind.run();
+                schedule(session, Phase.EXPIRE, session.leaseStartMs + session.leaseMs);
+            }
+            case EXPIRE -> {
+                sessions.remove(device.getId(), session);
+                logger.debug("Lease of device ID={} expired, releasing {}", device.getId(), device.getIpAddress());
+                deviceService.resetDeviceToIdle(device);
+            }
+        }
+    }
+
+    private void startRequest(DeviceInfo device, String state) {
+        device.setState(state);
+        device.setDhcpStartTime(Instant.now());
+        device.setDhcpCompletionTime(null);
+        deviceService.updateDevice(device);
+    }
+
+    private enum Phase {
+        RENEW, REBIND, EXPIRE
+    }
+
+    /**
+     * Lease timers of a single device
+     */
+    private static class LeaseSession {
+        final DeviceInfo device;
+        final long leaseStartMs;
+        final long leaseMs;
+        final Runnable renew;
+        final Runnable rebind;
+        volatile Timeout timeout;
+
+        LeaseSession(DeviceInfo device, long leaseStartMs, long leaseMs, Runnable renew, Runnable rebind) {
+            this.device = device;
+            this.leaseStartMs = leaseStartMs;
+            this.leaseMs = leaseMs;
+            this.renew = renew;
+            this.rebind = rebind;
+        }
+
+        /**
+         * Calculates the epoch time of a lease fraction, randomized by +/- jitter percent of that fraction
+         */
+        long deadline(double ratio, double jitterPercent) {
+            long offset = (long) (leaseMs * ratio);
+            if (jitterPercent > 0) {
+                long jitter = (long) (offset * jitterPercent / 100);
+                offset += ThreadLocalRandom.current().nextLong(-jitter, jitter + 1);
+            }
+            return leaseStartMs + Math.min(offset, leaseMs);
+        }
+
+        void cancel() {
+            Timeout t = timeout;
+            if (t != null) {
+                t.cancel();
+            }
+        }
+    }
+}
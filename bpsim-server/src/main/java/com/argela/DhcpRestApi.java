@@ -1,17 +1,41 @@
 package com.argela;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.quarkus.grpc.GrpcService;
 import jakarta.inject.Inject;
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.EntityTag;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 
-import java.util.Collection;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Stream;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,6 +43,8 @@ import org.slf4j.LoggerFactory;
 @Path("/dhcp")
 public class DhcpRestApi {
     private static final Logger logger = LoggerFactory.getLogger(DhcpRestApi.class);
+    private static final Jsonb jsonb = JsonbBuilder.create();
+    private static final Set<String> PACKET_TYPES = Set.of("discovery", "offer", "request", "ack");
 
     @ConfigProperty(name = "dhcp.pon.port.start", defaultValue = "0")
     int ponPortStart;
@@ -38,6 +64,9 @@ public class DhcpRestApi {
     @ConfigProperty(name = "dhcp.uni.port.count", defaultValue = "1")
     int uniPortCount;
 
+    @ConfigProperty(name = "dhcp.etag.time.bucket.ms", defaultValue = "1000")
+    long etagTimeBucketMs;
+
     @Inject
     @GrpcService
     DhcpGrpcServer grpcServer;
@@ -45,6 +74,27 @@ public class DhcpRestApi {
     @Inject
     DeviceService deviceService;
 
+    @Inject
+    DhcpBatchRunner batchRunner;
+
+    @Inject
+    DhcpStatistics statistics;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @Inject
+    IndicationDispatcher indicationDispatcher;
+
+    @Inject
+    OltBringUpGenerator bringUpGenerator;
+
+    @Inject
+    AdapterLoadDriver loadDriver;
+
+    @Inject
+    TransportBenchmark transportBenchmark;
+
     /**
      * Simulates a DHCP request based on the provided parameters
      * @param request The DHCP simulation request containing packet type and network parameters
@@ -58,55 +108,207 @@ public class DhcpRestApi {
             return Response.status(Response.Status.BAD_REQUEST).build();
         }
 
-        // PON port validation
-        int ponPortMax = ponPortStart + ponPortCount - 1;
-        if (request.getPonPort() < ponPortStart || request.getPonPort() > ponPortMax) {
+        String error = validate(request);
+        if (error != null) {
             return Response
                     .status(Response.Status.BAD_REQUEST)
-                    .entity("PON Port must be between " + ponPortStart + " and " + ponPortMax +
-                            " (configured range), got: " + request.getPonPort())
+                    .entity(error)
                     .build();
         }
 
+        logger.debug("Received DHCP Request: packetType={}, ponPort={}, onuId={}, uniId={}, gemPort={}, cTag={}",
+                request.getPacketType(), request.getPonPort(), request.getOnuId(), request.getUniId(),
+                request.getGemPort(), request.getCTag());
+
+        grpcServer.sendDhcp(request);
+
+        return Response.ok().entity("{\"status\": \"streamed to gRPC\"}").build();
+    }
+
+    /**
+     * Simulates a batch of DHCP requests, sent as a JSON array or as NDJSON (one request per line).
+     * The whole batch is validated before anything is sent; an invalid batch is rejected with every
+     * invalid item listed. Requests of one PON/ONU/UNI run in order, different subscribers in parallel.
+     * @param body Request body, a JSON array or NDJSON stream of DHCP simulation requests
+     * @return NDJSON stream with one result per request, in completion order, 400 if the batch is invalid,
+     *         or 503 if the simulator is shutting down
+     */
+    @POST
+    @Path("/batch")
+    @Consumes({MediaType.APPLICATION_JSON, "application/x-ndjson"})
+    public Response simulateDhcpBatch(InputStream body) {
+        List<DhcpSimulationRequest> requests = new ArrayList<>();
+        try (MappingIterator<DhcpSimulationRequest> items =
+                     objectMapper.readerFor(DhcpSimulationRequest.class).readValues(body)) {
+            while (items.hasNextValue()) {
+                if (requests.size() == batchRunner.getMaxSize()) {
+                    return invalidBatch("Batch is larger than " + batchRunner.getMaxSize() + " requests", List.of());
+                }
+                requests.add(items.nextValue());
+            }
+        } catch (IOException | RuntimeException e) {
+            String reason = e instanceof JsonProcessingException json ? json.getOriginalMessage() : e.getMessage();
+            return invalidBatch("Request " + requests.size() + " is malformed: " + reason, List.of());
+        }
+        if (requests.isEmpty()) {
+            return invalidBatch("Batch is empty", List.of());
+        }
+
+        List<Map<String, Object>> invalid = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            String error = requests.get(i) == null ? "Request is null" : validate(requests.get(i));
+            if (error != null) {
+                invalid.add(Map.of("index", i, "message", error));
+            }
+        }
+        if (!invalid.isEmpty()) {
+            return invalidBatch(invalid.size() + " of " + requests.size() + " requests are invalid", invalid);
+        }
+
+        long startNanos = System.nanoTime();
+        BlockingQueue<DhcpBatchRunner.BatchResult> results;
+        try {
+            results = batchRunner.submit(requests);
+        } catch (RejectedExecutionException e) {
+            Map<String, Object> error = new LinkedHashMap<>();
+            error.put("error", "Batch runner unavailable");
+            error.put("message", e.getMessage() != null ? e.getMessage() : "DHCP batch runner is shutting down");
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                    .entity(jsonb.toJson(error))
+                    .type(MediaType.APPLICATION_JSON)
+                    .build();
+        }
+        StreamingOutput output = stream -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), 65536);
+            int failed = 0;
+            try {
+                for (int received = 0; received < requests.size(); ) {
+                    DhcpBatchRunner.BatchResult result = results.poll();
+                    if (result == null) {
+                        // Hand over what is done before waiting for the lanes
+                        writer.flush();
+                        result = results.poll(1, TimeUnit.SECONDS);
+                        if (result == null) {
+                            if (!batchRunner.isRunning()) {
+                                break;
+                            }
+                            continue;
+                        }
+                    }
+                    if (!"ok".equals(result.getStatus())) {
+                        failed++;
+                    }
+                    writer.write(jsonb.toJson(result));
+                    writer.write('\n');
+                    received++;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            writer.flush();
+            logger.info("DHCP batch of {} requests completed in {}ms: {} failed",
+                    requests.size(), (System.nanoTime() - startNanos) / 1_000_000, failed);
+        };
+        return Response.ok(output, "application/x-ndjson").build();
+    }
+
+    /**
+     * Checks an If-None-Match header against the current ETag, with the weak comparison of RFC 9110
+     * @param ifNoneMatch Header value, a list of ETags or *
+     * @param etag Current ETag
+     * @return true if the client's copy is current
+     */
+    private static boolean matches(String ifNoneMatch, EntityTag etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        String opaque = "\"" + etag.getValue() + "\"";
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || (tag.startsWith("W/") ? tag.substring(2) : tag).equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the current time bucket of clock-dependent ETags
+     * @return Number of whole dhcp.etag.time.bucket.ms periods since the epoch
+     */
+    private long timeBucket() {
+        return System.currentTimeMillis() / Math.max(1, etagTimeBucketMs);
+    }
+
+    private Response invalidBatch(String message, List<Map<String, Object>> items) {
+        Map<String, Object> error = new LinkedHashMap<>();
+        error.put("error", "Invalid batch");
+        error.put("message", message);
+        if (!items.isEmpty()) {
+            error.put("items", items);
+        }
+        return Response.status(Response.Status.BAD_REQUEST)
+                .entity(jsonb.toJson(error))
+                .type(MediaType.APPLICATION_JSON)
+                .build();
+    }
+
+    /**
+     * Validates a DHCP simulation request against the packet types and the configured port ranges
+     * @param request The request to check
+     * @return Error message, or null if the request is valid
+     */
+    private String validate(DhcpSimulationRequest request) {
+        String packetType = request.getPacketType() == null ? "" : request.getPacketType().toLowerCase();
+        if (!PACKET_TYPES.contains(packetType)) {
+            return "Unknown packet type: " + request.getPacketType() + ", expected one of discovery, offer, request, ack";
+        }
+
+        // PON port validation
+        int ponPortMax = ponPortStart + ponPortCount - 1;
+        if (request.getPonPort() < ponPortStart || request.getPonPort() > ponPortMax) {
+            return "PON Port must be between " + ponPortStart + " and " + ponPortMax +
+                    " (configured range), got: " + request.getPonPort();
+        }
+
         // ONU port validation
         int onuPortMax = onuPortStart + onuPortCount - 1;
         if (request.getOnuId() < onuPortStart || request.getOnuId() > onuPortMax) {
-            return Response
-                    .status(Response.Status.BAD_REQUEST)
-                    .entity("ONU ID must be between " + onuPortStart + " and " + onuPortMax +
-                            " (configured range), got: " + request.getOnuId())
-                    .build();
+            return "ONU ID must be between " + onuPortStart + " and " + onuPortMax +
+                    " (configured range), got: " + request.getOnuId();
         }
 
         // UNI validation
         int uniPortMax = uniPortStart + uniPortCount - 1;
         if (request.getUniId() < uniPortStart || request.getUniId() > uniPortMax) {
-            return Response
-                    .status(Response.Status.BAD_REQUEST)
-                    .entity("UNI ID must be between " + uniPortStart + " and " + uniPortMax +
-                            " (configured range), got: " + request.getUniId())
-                    .build();
+            return "UNI ID must be between " + uniPortStart + " and " + uniPortMax +
+                    " (configured range), got: " + request.getUniId();
         }
-
-        logger.info("Received DHCP Request: packetType={}, ponPort={}, onuId={}, uniId={}, gemPort={}, cTag={}",
-                request.getPacketType(), request.getPonPort(), request.getOnuId(), request.getUniId(),
-                request.getGemPort(), request.getCTag());
-
-        grpcServer.sendDhcp(request);
-
-        return Response.ok().entity("{\"status\": \"streamed to gRPC\"}").build();
+        return null;
     }
 
     /**
-     * Lists DHCP sessions with optional filtering
+     * Lists DHCP sessions with optional filtering, sorting and cursor pagination.
+     * When a page is not the last one, the X-Next-Cursor response header holds the cursor of the next page.
+     * The ETag follows the version of the device table, or of the PON port when filtering by PON port, and
+     * X-Version holds the table version to poll for changes with since. Versions are qualified by the epoch of
+     * the run, so neither survives a restart. While DHCP durations are running the
+     * ETag also moves with the clock, so a 304 never keeps a duration older than one time bucket.
      * @param vlanId Filter by VLAN ID (optional)
      * @param ponPort Filter by PON port (optional)
      * @param onuId Filter by ONU ID (optional)
      * @param uniId Filter by UNI ID (optional)
      * @param gemPort Filter by GEM port (optional)
      * @param state Filter by device state (optional)
-     * @param filter General text filter for multiple fields (optional)
-     * @return Response containing filtered list of DHCP sessions
+     * @param filter General text filter: prefix of MAC, IP, required IP or ID, or part of state, VLAN, PON, ONU,
+     *               UNI or GEM port (optional)
+     * @param sort Sort order: id, ip, state, pon or duration, prefixed with '-' for descending (optional, default id)
+     * @param limit Maximum number of devices in the page (optional, default all)
+     * @param cursor Cursor of the page to list, from X-Next-Cursor of the previous page (optional)
+     * @param since Only list the devices changed after this version, from X-Version of an earlier response;
+     *              a version of an earlier run is answered with 410 (optional)
+     * @param ifNoneMatch ETag of the list the client already has (optional)
+     * @return Response containing filtered list of DHCP sessions, or 304 if the client's list is current
      */
     @GET
     @Path("/list")
@@ -117,48 +319,108 @@ public class DhcpRestApi {
                                      @QueryParam("uniId") Integer uniId,
                                      @QueryParam("gemPort") Integer gemPort,
                                      @QueryParam("state") String state,
-                                     @QueryParam("filter") String filter) {
-        try {
-            Collection<DeviceInfo> allDevices = grpcServer.deviceService.getAllDevices();
-            Stream<DeviceInfo> deviceStream = allDevices.stream();
+                                     @QueryParam("filter") String filter,
+                                     @QueryParam("sort") String sort,
+                                     @QueryParam("limit") Integer limit,
+                                     @QueryParam("cursor") String cursor,
+                                     @QueryParam("since") String since,
+                                     @HeaderParam("If-None-Match") String ifNoneMatch) {
+        // Read before the devices, so a change made meanwhile at worst makes the next poll fetch again
+        long version = deviceService.getVersion();
+        String versionToken = deviceService.formatVersion(version);
+        // The epoch keeps an ETag saved before a restart from matching the new fleet
+        EntityTag etag = new EntityTag(
+                deviceService.formatVersion(ponPort != null ? deviceService.getPonPortVersion(ponPort) : version) + "-"
+                + Integer.toHexString(Objects.hash(vlanId, ponPort, onuId, uniId, gemPort, state, filter, sort,
+                limit, cursor, since))
+                + (deviceService.hasRunningDurations(ponPort) ? "-" + timeBucket() : ""), true);
+        if (matches(ifNoneMatch, etag)) {
+            return Response.notModified(etag).header("X-Version", versionToken).build();
+        }
 
-            // Apply specific filters
-            if (vlanId != null) {
-                deviceStream = deviceStream.filter(device -> device.getVlanId() == vlanId);
+        DeviceSort deviceSort;
+        DeviceIndex.Position after = null;
+        OptionalLong sinceVersion = null;
+        String sortParameter;
+        try {
+            deviceSort = DeviceSort.parse(sort);
+            sortParameter = (DeviceSort.isDescending(sort) ? "-" : "") + deviceSort.getParameter();
+            if (limit != null && limit < 1) {
+                throw new IllegalArgumentException("limit must be positive");
             }
-
-            if (ponPort != null) {
-                deviceStream = deviceStream.filter(device -> device.getPonPort() == ponPort);
+            if (cursor != null && !cursor.isBlank()) {
+                after = DeviceIndex.Position.decode(cursor.trim(), sortParameter);
             }
-
-            if (onuId != null) {
-                deviceStream = deviceStream.filter(device -> device.getOnuId() == onuId);
+            if (since != null && (limit != null || after != null)) {
+                throw new IllegalArgumentException("since cannot be combined with limit or cursor");
             }
-
-            if (uniId != null) {
-                deviceStream = deviceStream.filter(device -> device.getUniId() == uniId);
-            }
-
-            if (gemPort != null) {
-                deviceStream = deviceStream.filter(device -> device.getGemPort() == gemPort);
+            if (since != null) {
+                sinceVersion = deviceService.parseVersion(since);
             }
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("{\"error\": \"Invalid list parameters\", \"message\": \"" + e.getMessage() + "\"}")
+                    .build();
+        }
 
+        try {
+            // Every filter is answered by intersecting index bitmaps
+            DeviceFilter indexed = new DeviceFilter(ponPort, vlanId, null);
+            indexed.setOnuId(onuId);
+            indexed.setUniId(uniId);
+            indexed.setGemPort(gemPort);
+            indexed.setText(filter);
+            Predicate<DeviceInfo> predicate = device -> true;
+
+            // The state filter matches states containing the text; a single such state is looked up in the index
             if (state != null && !state.trim().isEmpty()) {
                 String normalizedState = state.trim().toUpperCase();
-                deviceStream = deviceStream.filter(device ->
-                        device.getState() != null && device.getState().toUpperCase().contains(normalizedState));
+                List<String> states = DeviceBinaryCodec.STATES.stream()
+                        .filter(known -> known.contains(normalizedState))
+                        .toList();
+                if (states.size() == 1) {
+                    indexed.setState(states.get(0));
+                } else {
+                    predicate = device ->
+                            device.getState() != null && device.getState().toUpperCase().contains(normalizedState);
+                }
             }
 
-            // Apply general text filter (searches in multiple fields)
-            if (filter != null && !filter.trim().isEmpty()) {
-                String normalizedFilter = filter.trim().toLowerCase();
-                deviceStream = deviceStream.filter(device ->
-                        matchesGeneralFilter(device, normalizedFilter));
+            if (sinceVersion != null) {
+                Predicate<DeviceInfo> statePredicate = predicate;
+                // A version of an earlier run says nothing about the current devices
+                Optional<DeviceService.DeviceChanges> changed = sinceVersion.isPresent()
+                        ? deviceService.getChangesSince(sinceVersion.getAsLong(),
+                                device -> indexed.matches(device) && statePredicate.test(device))
+                        : Optional.empty();
+                return changed
+                        .map(changes -> {
+                            String changesVersion = deviceService.formatVersion(changes.version());
+                            StringBuilder json = new StringBuilder("{\"version\":\"").append(changesVersion)
+                                    .append("\",\"devices\":[");
+                            DeviceEncodings.appendJson(json, changes.devices());
+                            json.append("],\"removed\":").append(changes.removed()
+                                    .stream().map(String::valueOf).collect(Collectors.joining(",", "[", "]"))).append('}');
+                            return Response.ok(json.toString()).tag(etag).header("X-Version", changesVersion).build();
+                        })
+                        .orElseGet(() -> Response.status(Response.Status.GONE)
+                                .entity(Map.of("error", "Changes no longer available", "message", "Changes after version "
+                                        + since + " are not in the change log, list the devices again"))
+                                .header("X-Version", versionToken)
+                                .build());
             }
 
-            List<DeviceInfo> filteredDevices = deviceStream.toList();
+            DeviceService.DevicePage page = grpcServer.deviceService.listDevices(deviceSort,
+                    DeviceSort.isDescending(sort), indexed, predicate, after, limit == null ? Integer.MAX_VALUE : limit);
 
-            return Response.ok(filteredDevices).build();
+            // Concatenation of the cached JSON of each device, shared with the WebSocket frames
+            Response.ResponseBuilder response = Response.ok(DeviceEncodings.jsonArray(page.devices()))
+                    .tag(etag)
+                    .header("X-Version", versionToken);
+            if (page.next() != null) {
+                response.header("X-Next-Cursor", page.next().encode(sortParameter));
+            }
+            return response.build();
 
         } catch (Exception e) {
             logger.error("Error retrieving DHCP sessions: {}", e.getMessage(), e);
@@ -169,27 +431,89 @@ public class DhcpRestApi {
     }
 
     /**
-     * General filter that searches across multiple fields
-     * @param device The device to check against the filter
-     * @param filter The filter string to search for
-     * @return true if device matches the filter, false otherwise
+     * Streams every device matching a filter as newline-delimited JSON or CSV, in device ID order.
+     * Devices are written as they are read from the ID index, so memory use does not depend on the fleet size.
+     * Devices are read without locking, so the row of a device changing while it is written may mix fields
+     * from before and after the change.
+     * @param format ndjson (default) or csv
+     * @param compress gzip to compress the output (optional)
+     * @param vlanId Filter by VLAN ID (optional)
+     * @param ponPort Filter by PON port (optional)
+     * @param state Filter by exact device state (optional)
+     * @return Streaming response
+     */
+    @GET
+    @Path("/export")
+    public Response exportDevices(@QueryParam("format") @DefaultValue("ndjson") String format,
+                                  @QueryParam("compress") String compress,
+                                  @QueryParam("vlanId") Integer vlanId,
+                                  @QueryParam("ponPort") Integer ponPort,
+                                  @QueryParam("state") String state) {
+        boolean csv = "csv".equalsIgnoreCase(format);
+        if (!csv && !"ndjson".equalsIgnoreCase(format)) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("{\"error\": \"Invalid export format\", \"message\": \"format must be ndjson or csv\"}")
+                    .type(MediaType.APPLICATION_JSON)
+                    .build();
+        }
+        boolean gzip = "gzip".equalsIgnoreCase(compress);
+        DeviceFilter filter = new DeviceFilter(ponPort, vlanId, state);
+
+        StreamingOutput body = output -> {
+            GZIPOutputStream compressed = gzip ? new GZIPOutputStream(output, 65536) : null;
+            Writer writer = new BufferedWriter(new OutputStreamWriter(gzip ? compressed : output, StandardCharsets.UTF_8), 65536);
+            if (csv) {
+                writer.write(DeviceEncodings.CSV_HEADER);
+                writer.write('\n');
+            }
+            long count = 0;
+            for (Iterator<DeviceInfo> devices = deviceService.streamDevices(filter).iterator(); devices.hasNext(); ) {
+                DeviceInfo device = devices.next();
+                writer.write(csv ? DeviceEncodings.csv(device) : DeviceEncodings.json(device));
+                writer.write('\n');
+                count++;
+            }
+            writer.flush();
+            if (compressed != null) {
+                compressed.finish();
+            }
+            logger.info("Exported {} devices as {}{}", count, csv ? "CSV" : "NDJSON", gzip ? " (gzip)" : "");
+        };
+
+        String fileName = "devices." + (csv ? "csv" : "ndjson") + (gzip ? ".gz" : "");
+        return Response.ok(body, gzip ? "application/gzip" : csv ? "text/csv" : "application/x-ndjson")
+                .header("Content-Disposition", "attachment; filename=\"" + fileName + "\"")
+                .build();
+    }
+
+    /**
+     * Gets fleet statistics: device counts by state, completions, IP pool utilization and, optionally,
+     * per-PON port and per-VLAN breakdowns and recent history. Served from counters, cheap to poll.
+     * @param breakdown Whether to include the per-PON port and per-VLAN breakdowns (optional, default true)
+     * @param history Number of latest history samples to include (optional, default 0)
+     * @param ifNoneMatch ETag of the statistics the client already has (optional)
+     * @return Statistics, or 304 if the client's statistics are current
      */
-    private boolean matchesGeneralFilter(DeviceInfo device, String filter) {
-        return (device.getClientMac() != null && device.getClientMac().toLowerCase().contains(filter)) ||
-                (device.getIpAddress() != null && device.getIpAddress().toLowerCase().contains(filter)) ||
-                (device.getState() != null && device.getState().toLowerCase().contains(filter)) ||
-                (device.getRequiredIp() != null && device.getRequiredIp().toLowerCase().contains(filter)) ||
-                String.valueOf(device.getId()).contains(filter) ||
-                String.valueOf(device.getVlanId()).contains(filter) ||
-                String.valueOf(device.getPonPort()).contains(filter) ||
-                String.valueOf(device.getOnuId()).contains(filter) ||
-                String.valueOf(device.getUniId()).contains(filter) ||
-                String.valueOf(device.getGemPort()).contains(filter);
+    @GET
+    @Path("/stats")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getStatistics(@QueryParam("breakdown") @DefaultValue("true") boolean breakdown,
+                                  @QueryParam("history") @DefaultValue("0") int history,
+                                  @HeaderParam("If-None-Match") String ifNoneMatch) {
+        // Figures only move with device changes, the rate and history with each recorded sample,
+        // and the timestamp with the clock
+        EntityTag etag = new EntityTag(deviceService.formatVersion(deviceService.getVersion()) + "-"
+                + statistics.getSampleCount() + "-" + timeBucket() + "-" + (breakdown ? "b" : "") + Math.max(0, history), true);
+        if (matches(ifNoneMatch, etag)) {
+            return Response.notModified(etag).build();
+        }
+        return Response.ok(statistics.snapshot(breakdown, Math.max(0, history))).tag(etag).build();
     }
 
     /**
-     * Simulates a DHCP storm by creating multiple DHCP requests rapidly
-     * @param request The storm configuration containing rate or interval parameters
+     * Starts a named DHCP storm. Storms with different names run concurrently, each limited
+     * to the devices matched by its target selector (PON range, ONU range, VLAN set, state).
+     * @param request The storm configuration containing rate or interval and target selector
      * @return Response indicating success or error status
      */
     @POST
@@ -199,34 +523,237 @@ public class DhcpRestApi {
     public Response simulateDhcpStorm(DhcpStormRequest request) {
         if (request == null || !request.isValid()) {
             return Response.status(Response.Status.BAD_REQUEST)
-                    .entity("{\"error\": \"Either rate or intervalSec must be provided and greater than zero\"}")
+                    .entity("{\"error\": \"Either rate or intervalSec must be provided and greater than zero, " +
+                            "selector ranges must not be inverted and type must be discover, renew or rebind\"}")
                     .build();
         }
 
         try {
-            // Check storm status
-            if (grpcServer.isStormInProgress()) {
-                return Response.status(Response.Status.CONFLICT)
-                        .entity("{\"error\": \"DHCP storm is already in progress. Please wait for completion or cancel the current storm.\"}")
-                        .build();
-            }
+            DhcpStorm storm = grpcServer.simulateDhcpStorm(request);
 
-            grpcServer.simulateDhcpStorm(request.getRate(), request.getIntervalSec());
+            // The storm name comes from the client, so the body is serialized rather than concatenated
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("status", "DHCP storm started successfully");
+            body.put("name", storm.getName());
+            body.put("targetCount", storm.getTargetCount());
+            return Response.ok().entity(body).build();
 
+        } catch (IllegalStateException e) {
+            return Response.status(Response.Status.CONFLICT)
+                    .entity(Map.of("error", String.valueOf(e.getMessage())))
+                    .build();
+        } catch (Exception e) {
+            logger.error("Error starting DHCP storm: {}", e.getMessage());
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity(Map.of("error", "Failed to start DHCP storm", "message", String.valueOf(e.getMessage())))
+                    .build();
+        }
+    }
+
+    /**
+     * Lists running and recently finished storms
+     * @return Response containing the status of every known storm
+     */
+    @GET
+    @Path("/storm")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response listStorms() {
+        return Response.ok(grpcServer.getStorms()).build();
+    }
+
+    /**
+     * Gets the status of a single storm
+     * @param name The storm name
+     * @return Response containing the storm status, or 404 if unknown
+     */
+    @GET
+    @Path("/storm/{name}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getStorm(@PathParam("name") String name) {
+        return grpcServer.getStorm(name)
+                .map(storm -> Response.ok(storm).build())
+                .orElseGet(() -> Response.status(Response.Status.NOT_FOUND)
+                        .entity(Map.of("error", "Storm not found: " + name))
+                        .build());
+    }
+
+    /**
+     * Gets the latency and throughput report of a storm
+     * @param name The storm name
+     * @return Response containing per-phase latency percentiles, PON/VLAN breakdown and rate timeline, or 404 if unknown
+     */
+    @GET
+    @Path("/storm/{name}/report")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getStormReport(@PathParam("name") String name) {
+        return grpcServer.getStormReport(name)
+                .map(report -> Response.ok(report).build())
+                .orElseGet(() -> Response.status(Response.Status.NOT_FOUND)
+                        .entity(Map.of("error", "Storm not found: " + name))
+                        .build());
+    }
+
+    /**
+     * Gets the connected indication streams with their queue depth and drop metrics
+     * @return Response containing one entry per stream
+     */
+    @GET
+    @Path("/streams")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getIndicationStreams() {
+        return Response.ok(indicationDispatcher.getSubscribers()).build();
+    }
+
+    /**
+     * Gets the connected WebSocket clients with their send queue depth, drop and latency metrics
+     * @return Response containing one entry per session
+     */
+    @GET
+    @Path("/websocket/sessions")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getWebSocketSessions() {
+        return Response.ok(DeviceWebSocket.getSendQueues()).build();
+    }
+
+    /**
+     * Gets the sequence range of packet indications that reconnecting streams can still resume from
+     * @return Response containing the replay ring status, or 404 if replay is disabled
+     */
+    @GET
+    @Path("/streams/replay")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getReplayStatus() {
+        Map<String, Object> status = indicationDispatcher.getReplayStatus();
+        if (status == null) {
+            return Response.status(Response.Status.NOT_FOUND)
+                    .entity("{\"error\": \"Indication replay is disabled\"}")
+                    .build();
+        }
+        return Response.ok(status).build();
+    }
+
+    /**
+     * Replays the OLT bring-up (OLT up, PON ports up, ONU discoveries) on every connected EnableIndication stream
+     * @param rate ONU discoveries per second, optional
+     * @return Response with the bring-up ID, 400 if the rate is not positive, or 409 if no indication stream is connected
+     */
+    @POST
+    @Path("/bringup")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response startBringUp(@QueryParam("rate") Integer rate) {
+        try {
+            OltBringUpGenerator.BringUp run = bringUpGenerator.startBringUp(rate);
             return Response.ok()
-                    .entity("{\"status\": \"DHCP storm started successfully\"}")
+                    .entity("{\"status\": \"Bring-up started\", \"id\": " + run.getId() +
+                            ", \"ponCount\": " + run.getPonCount() + ", \"onuCount\": " + run.getOnuCount() + "}")
+                    .build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("{\"error\": \"Invalid bring-up rate\", \"message\": \"" + e.getMessage() + "\"}")
                     .build();
+        } catch (IllegalStateException e) {
+            return Response.status(Response.Status.CONFLICT)
+                    .entity("{\"error\": \"" + e.getMessage() + "\"}")
+                    .build();
+        }
+    }
+
+    /**
+     * Gets the progress of recent bring-ups and the number of activated ONUs
+     * @return Response containing the bring-up status
+     */
+    @GET
+    @Path("/bringup")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getBringUpStatus() {
+        return Response.ok(bringUpGenerator.getStatus()).build();
+    }
+
+    /**
+     * Stops every running bring-up
+     * @return Response with the number of stopped bring-ups
+     */
+    @POST
+    @Path("/bringup/stop")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response stopBringUp() {
+        int stopped = bringUpGenerator.stopAll();
+        return Response.ok()
+                .entity("{\"status\": \"success\", \"stoppedCount\": " + stopped + "}")
+                .build();
+    }
 
-        } catch (RuntimeException e) {
+    /**
+     * Starts the built-in adapter stand-in that echoes DHCP packet indications back to the simulator
+     * @param channels Number of parallel gRPC channels, optional
+     * @param transport Channel transport (tcp, inprocess, uds), optional
+     * @return Response containing the driver status, 400 for an unknown transport or 409 if it is already running
+     */
+    @POST
+    @Path("/driver/start")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response startLoadDriver(@QueryParam("channels") Integer channels,
+                                    @QueryParam("transport") String transport) {
+        try {
+            return Response.ok(loadDriver.start(channels, transport)).build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("{\"error\": \"" + e.getMessage() + "\"}")
+                    .build();
+        } catch (IllegalStateException e) {
             return Response.status(Response.Status.CONFLICT)
                     .entity("{\"error\": \"" + e.getMessage() + "\"}")
                     .build();
-        } catch (Exception e) {
-            logger.error("Error starting DHCP storm: {}", e.getMessage());
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity("{\"error\": \"Failed to start DHCP storm\", \"message\": \"" + e.getMessage() + "\"}")
+        }
+    }
+
+    /**
+     * Stops the built-in adapter stand-in
+     * @return Response containing the final driver status, or 404 if it is not running
+     */
+    @POST
+    @Path("/driver/stop")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response stopLoadDriver() {
+        Map<String, Object> status = loadDriver.stop();
+        if (status == null) {
+            return Response.status(Response.Status.NOT_FOUND)
+                    .entity("{\"error\": \"Load driver is not running\"}")
+                    .build();
+        }
+        return Response.ok(status).build();
+    }
+
+    /**
+     * Gets the counters of the built-in adapter stand-in
+     * @return Response containing the driver status
+     */
+    @GET
+    @Path("/driver")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getLoadDriverStatus() {
+        return Response.ok(loadDriver.getStatus()).build();
+    }
+
+    /**
+     * Compares packet indication throughput of the gRPC transports
+     * @param transports Transports to run (tcp, inprocess, uds), optional, all available by default
+     * @param messages Indications per transport
+     * @param payload Packet size of each indication in bytes
+     * @return Response containing one result per transport
+     */
+    @POST
+    @Path("/benchmark/transport")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response benchmarkTransports(@QueryParam("transport") List<String> transports,
+                                        @QueryParam("messages") @DefaultValue("100000") int messages,
+                                        @QueryParam("payload") @DefaultValue("400") int payload) {
+        if (messages <= 0 || payload < 0) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("{\"error\": \"messages must be greater than zero and payload must not be negative\"}")
                     .build();
         }
+        return Response.ok(transportBenchmark.run(transports, messages, payload)).build();
     }
 
     /**
@@ -259,7 +786,7 @@ public class DhcpRestApi {
     }
 
     /**
-     * Cancels the currently running DHCP storm
+     * Cancels all running DHCP storms
      * @return Response indicating success or error status
      */
     @POST
@@ -267,16 +794,15 @@ public class DhcpRestApi {
     @Produces(MediaType.APPLICATION_JSON)
     public Response cancelStorm() {
         try {
-            if (!grpcServer.isStormInProgress()) {
+            int cancelled = grpcServer.cancelStorm();
+            if (cancelled == 0) {
                 return Response.ok()
                         .entity("{\"status\": \"No active storm to cancel\"}")
                         .build();
             }
 
-            grpcServer.cancelStorm();
-
             return Response.ok()
-                    .entity("{\"status\": \"Storm cancellation initiated\"}")
+                    .entity("{\"status\": \"Storm cancellation initiated\", \"cancelledCount\": " + cancelled + "}")
                     .build();
 
         } catch (Exception e) {
@@ -288,6 +814,41 @@ public class DhcpRestApi {
         }
     }
 
+    /**
+     * Cancels a single named DHCP storm
+     * @param name The storm name
+     * @return Response indicating success, or 404 if the storm is unknown
+     */
+    @POST
+    @Path("/storm/{name}/cancel")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response cancelStorm(@PathParam("name") String name) {
+        try {
+            if (grpcServer.getStorm(name).isEmpty()) {
+                return Response.status(Response.Status.NOT_FOUND)
+                        .entity(Map.of("error", "Storm not found: " + name))
+                        .build();
+            }
+
+            if (!grpcServer.cancelStorm(name)) {
+                return Response.ok()
+                        .entity(Map.of("status", "Storm '" + name + "' is not running"))
+                        .build();
+            }
+
+            return Response.ok()
+                    .entity(Map.of("status", "Storm '" + name + "' cancellation initiated"))
+                    .build();
+
+        } catch (Exception e) {
+            logger.error("Error cancelling storm {}: {}", name, e.getMessage(), e);
+
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity(Map.of("error", "Failed to cancel storm", "message", String.valueOf(e.getMessage())))
+                    .build();
+        }
+    }
+
     /**
      * Gets system configuration information
      * @return Response containing PON port count, ONU port count, and total device capacity
@@ -295,8 +856,15 @@ public class DhcpRestApi {
     @GET
     @Path("/info")
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getSystemInfo() {
+    public Response getSystemInfo(@HeaderParam("If-None-Match") String ifNoneMatch) {
         try {
+            // The configuration does not change while running
+            EntityTag etag = new EntityTag("info-" + Integer.toHexString(
+                    Objects.hash(ponPortCount, onuPortCount, uniPortCount)), true);
+            if (matches(ifNoneMatch, etag)) {
+                return Response.notModified(etag).build();
+            }
+
             Map<String, Object> info = new HashMap<>();
 
             info.put("ponPortCount", ponPortCount);
@@ -304,7 +872,7 @@ public class DhcpRestApi {
             info.put("uniPortCount", uniPortCount);
             info.put("totalDeviceCapacity", ponPortCount * onuPortCount * uniPortCount);
 
-            return Response.ok(info).build();
+            return Response.ok(info).tag(etag).build();
 
         } catch (Exception e) {
             logger.error("Error getting system info: {}", e.getMessage(), e);
@@ -0,0 +1,199 @@
+package com.argela;
+
+import io.netty.util.Timeout;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Simulates RFC 2131 (section 4.1) client retransmission: a DISCOVER or REQUEST that gets
+ * no answer is resent after 4s, 8s, 16s, ... up to 64s, each delay randomized by +/- 1s.
+ * When the retry cap is reached the device is moved to TIMEOUT and the address offered to it, never bound,
+ * goes back to the VLAN pool.
+ */
+@ApplicationScoped
+public class DhcpRetransmissionManager {
+    private static final Logger logger = LoggerFactory.getLogger(DhcpRetransmissionManager.class);
+
+    public static final String STATE_TIMEOUT = "TIMEOUT";
+
+    /**
+     * Client phases that wait for an answer, with the device states counted as "still waiting"
+     */
+    public enum Phase {
+        DISCOVER(Set.of("DISCOVERING", "OFFERING")),
+        REQUEST(Set.of("REQUESTING", "ACKNOWLEDGING"));
+
+        private final Set<String> waitingStates;
+
+        Phase(Set<String> waitingStates) {
+            this.waitingStates = waitingStates;
+        }
+
+        boolean isWaiting(String state) {
+            return waitingStates.contains(state);
+        }
+    }
+
+    @ConfigProperty(name = "dhcp.retransmit.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "dhcp.retransmit.initial.ms", defaultValue = "4000")
+    long initialDelayMs;
+
+    @ConfigProperty(name = "dhcp.retransmit.max.ms", defaultValue = "64000")
+    long maxDelayMs;
+
+    @ConfigProperty(name = "dhcp.retransmit.jitter.ms", defaultValue = "1000")
+    long jitterMs;
+
+    @ConfigProperty(name = "dhcp.retransmit.max.attempts", defaultValue = "4")
+    int maxAttempts;
+
+    @Inject
+    DhcpTimerWheel timerWheel;
+
+    @Inject
+    DeviceService deviceService;
+
+    @Inject
+    VlanIPPoolManager vlanIPPoolManager;
+
+    private final ConcurrentHashMap<Integer, RetransmitSession> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * Starts (or restarts) the retransmission timer of a device after it sent a DISCOVER or REQUEST.
+     * Any timer of a previous phase is cancelled.
+     * @param device The device waiting for an answer
+     * @param phase The phase the device is in
+     * @param storm The storm driving the device, used for counters (optional)
+     * @param resend Action that retransmits the packet
+     */
+    public void arm(DeviceInfo device, Phase phase, DhcpStorm storm, Runnable resend) {
+        if (!enabled) {
+            return;
+        }
+
+        RetransmitSession session = new RetransmitSession(device, phase, storm, resend);
+        RetransmitSession previous = sessions.put(device.getId(), session);
+        if (previous != null) {
+            previous.cancel();
+        }
+        session.timeout = timerWheel.schedule(() -> onTimeout(session), nextDelayMs(0));
+    }
+
+    /**
+     * Stops the retransmission timer of a device, typically because the awaited answer arrived
+     * @param deviceId The device ID
+     */
+    public void disarm(int deviceId) {
+        RetransmitSession session = sessions.remove(deviceId);
+        if (session != null) {
+            session.cancel();
+        }
+    }
+
+    /**
+     * Gets the number of devices currently waiting with an armed retransmission timer
+     * @return Number of armed sessions
+     */
+    public int getArmedCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Handles an expired retransmission timer
+     * @param session The expired session
+     */
+    private void onTimeout(RetransmitSession session) {
+        DeviceInfo device = session.device;
+        if (sessions.get(device.getId()) != session) {
+            return; // Superseded by a newer phase or disarmed
+        }
+
+        // Drop the session if the device moved on, was reset or was replaced
+        if (deviceService.getDevice(device.getId()) != device ||
+                device.getXid() != session.xid ||
+                !session.phase.isWaiting(device.getState())) {
+            sessions.remove(device.getId(), session);
+            return;
+        }
+
+        if (session.attempt >= maxAttempts) {
+            sessions.remove(device.getId(), session);
+            logger.debug("Device ID={} gave up after {} {} retransmissions",
+                    device.getId(), session.attempt, session.phase);
+            if (session.storm != null) {
+                session.storm.incrementTimeout();
+            }
+            if (device.getIpAddress() != null) {
+                logger.debug("Releasing offered IP: {} for VLAN: {}", device.getIpAddress(), device.getVlanId());
+                vlanIPPoolManager.releaseIP(device.getIpAddress(), device.getVlanId());
+                device.setIpAddress(null);
+                device.setRequiredIp(null);
+            }
+            device.setState(STATE_TIMEOUT);
+            deviceService.updateDevice(device);
+            return;
+        }
+
+        session.attempt++;
+        if (session.storm != null) {
+            session.storm.incrementRetransmission();
+        }
+        logger.debug("Retransmitting {} for device ID={} (attempt {}/{})",
+                session.phase, device.getId(), session.attempt, maxAttempts);
+
+        session.resend.run();
+        session.timeout = timerWheel.schedule(() -> onTimeout(session), nextDelayMs(session.attempt));
+    }
+
+    /**
+     * Calculates the RFC 2131 backoff delay: doubled per attempt, capped, randomized by +/- jitter
+     * @param attempt Number of retransmissions already sent
+     * @return Delay in milliseconds
+     */
+    private long nextDelayMs(int attempt) {
+        long base = initialDelayMs << Math.min(attempt, 30);
+        if (base <= 0 || base > maxDelayMs) {
+            base = maxDelayMs;
+        }
+        long jitter = jitterMs > 0 ? ThreadLocalRandom.current().nextLong(-jitterMs, jitterMs + 1) : 0;
+        return Math.max(base + jitter, 1);
+    }
+
+    /**
+     * Retransmission state of a single device
+     */
+    private static class RetransmitSession {
+        final DeviceInfo device;
+        final int xid;
+        final Phase phase;
+        final DhcpStorm storm;
+        final Runnable resend;
+        volatile int attempt;
+        volatile Timeout timeout;
+
+        RetransmitSession(DeviceInfo device, Phase phase, DhcpStorm storm, Runnable resend) {
+            this.device = device;
+            this.xid = device.getXid();
+            this.phase = phase;
+            this.storm = storm;
+            this.resend = resend;
+        }
+
+        void cancel() {
+            Timeout t = timeout;
+            if (t != null) {
+                t.cancel();
+            }
+        }
+    }
+}
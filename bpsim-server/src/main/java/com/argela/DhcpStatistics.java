@@ -0,0 +1,237 @@
+package com.argela;
+
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.quarkus.runtime.Startup;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Fleet statistics for {@code GET /dhcp/stats}: device counts by state, PON port and VLAN, DHCP completions
+ * and IP pool utilization. Every figure is read from counters maintained by {@link DeviceIndex} and
+ * {@link VlanIPPoolManager} on each transition and allocation, so a snapshot never scans the devices.
+ * <p>
+ * A sample of the totals is recorded every {@code dhcp.stats.history.interval.ms} into a ring of
+ * {@code dhcp.stats.history.size} samples from startup on, which also gives the completion rate of the
+ * latest interval. Sample listeners, such as {@link StatsWebSocket}, are told after each sample.
+ */
+@Startup
+@ApplicationScoped
+public class DhcpStatistics {
+    private static final Logger logger = LoggerFactory.getLogger(DhcpStatistics.class);
+
+    @ConfigProperty(name = "dhcp.stats.history.interval.ms", defaultValue = "1000")
+    long historyIntervalMs;
+
+    @ConfigProperty(name = "dhcp.stats.history.size", defaultValue = "300")
+    int historySize;
+
+    @Inject
+    DeviceService deviceService;
+
+    @Inject
+    VlanIPPoolManager vlanIPPoolManager;
+
+    // Oldest first, guarded by itself
+    private final ArrayDeque<Sample> history = new ArrayDeque<>();
+    private ScheduledExecutorService ticker;
+    private long lastCompleted;
+    private long lastSampleNanos;
+    private volatile long sampleCount;
+    private final List<Runnable> sampleListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Starts recording history samples
+     */
+    @PostConstruct
+    void startTicker() {
+        lastCompleted = deviceService.getCompletedExchangeCount();
+        lastSampleNanos = System.nanoTime();
+        ticker = Executors.newSingleThreadScheduledExecutor(new DefaultThreadFactory("dhcp-stats", true));
+        ticker.scheduleAtFixedRate(this::recordSample, historyIntervalMs, historyIntervalMs, TimeUnit.MILLISECONDS);
+        logger.info("Statistics history started - interval: {}ms, samples: {}", historyIntervalMs, historySize);
+    }
+
+    /**
+     * Stops recording history samples
+     */
+    @PreDestroy
+    void stopTicker() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+    }
+
+    /**
+     * Builds the current statistics
+     * @param breakdown Whether to include the per-PON port and per-VLAN breakdowns
+     * @param historySamples Number of latest history samples to include, 0 for none
+     * @return Statistics, ready to be serialized
+     */
+    public Map<String, Object> snapshot(boolean breakdown, int historySamples) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long completed = deviceService.getCompletedExchangeCount();
+        int usedIPs = vlanIPPoolManager.getTotalUsedIPCount();
+        int usableIPs = vlanIPPoolManager.getTotalUsableIPCount();
+
+        stats.put("timestamp", Instant.now().toString());
+        stats.put("totalDevices", deviceService.getDeviceCount());
+        stats.put("stateCount", deviceService.getStateCounts());
+        stats.put("completedExchanges", completed);
+        stats.put("completedPerSecond", latestRate());
+        Map<String, Object> pool = new LinkedHashMap<>();
+        pool.put("usedIPs", usedIPs);
+        pool.put("usableIPs", usableIPs);
+        pool.put("utilizationPercent", percent(usedIPs, usableIPs));
+        stats.put("pool", pool);
+
+        if (breakdown) {
+            Map<Integer, Object> ponPorts = new TreeMap<>();
+            Map<Integer, Integer> devicesByPon = deviceService.getPonPortCounts();
+            deviceService.getPonPortStateCounts().forEach((ponPort, states) -> {
+                Map<String, Object> pon = new LinkedHashMap<>();
+                pon.put("devices", devicesByPon.getOrDefault(ponPort, 0));
+                pon.put("stateCount", states);
+                ponPorts.put(ponPort, pon);
+            });
+            stats.put("ponPorts", ponPorts);
+
+            Map<Integer, Object> vlans = new TreeMap<>();
+            Map<Integer, Integer> devicesByVlan = deviceService.getVlanCounts();
+            Map<Integer, Map<String, Integer>> statesByVlan = deviceService.getVlanStateCounts();
+            Map<Integer, Integer> usedByVlan = vlanIPPoolManager.getUsedIPCounts();
+            Map<Integer, Integer> usableByVlan = vlanIPPoolManager.getUsableIPCounts();
+            Set<Integer> vlanIds = new TreeSet<>(statesByVlan.keySet());
+            vlanIds.addAll(usableByVlan.keySet());
+            for (Integer vlanId : vlanIds) {
+                int used = usedByVlan.getOrDefault(vlanId, 0);
+                int usable = usableByVlan.getOrDefault(vlanId, 0);
+                Map<String, Object> vlan = new LinkedHashMap<>();
+                vlan.put("devices", devicesByVlan.getOrDefault(vlanId, 0));
+                vlan.put("stateCount", statesByVlan.getOrDefault(vlanId, Map.of()));
+                vlan.put("usedIPs", used);
+                vlan.put("usableIPs", usable);
+                vlan.put("utilizationPercent", percent(used, usable));
+                vlans.put(vlanId, vlan);
+            }
+            stats.put("vlans", vlans);
+        }
+
+        if (historySamples > 0) {
+            stats.put("historyIntervalMs", historyIntervalMs);
+            stats.put("history", getHistory(historySamples));
+        }
+        return stats;
+    }
+
+    /**
+     * Gets the number of history samples recorded since startup
+     * @return Sample count, which moves on with every sample
+     */
+    public long getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * Registers a listener run on the ticker thread after every recorded sample
+     * @param listener Listener, which should not block
+     */
+    public void addSampleListener(Runnable listener) {
+        sampleListeners.add(listener);
+    }
+
+    /**
+     * Gets the latest history samples
+     * @param count Maximum number of samples
+     * @return Samples, oldest first
+     */
+    public List<Sample> getHistory(int count) {
+        synchronized (history) {
+            List<Sample> samples = new ArrayList<>(Math.min(count, history.size()));
+            Iterator<Sample> latest = history.descendingIterator();
+            while (latest.hasNext() && samples.size() < count) {
+                samples.add(latest.next());
+            }
+            return samples.reversed();
+        }
+    }
+
+    /**
+     * Records one history sample. Runs on the ticker thread.
+     */
+    private void recordSample() {
+        try {
+            long now = System.nanoTime();
+            long completed = deviceService.getCompletedExchangeCount();
+            double seconds = (now - lastSampleNanos) / 1e9;
+            double completedPerSecond = seconds > 0 ? Math.round((completed - lastCompleted) / seconds * 10) / 10.0 : 0;
+            lastCompleted = completed;
+            lastSampleNanos = now;
+
+            Sample sample = new Sample(Instant.now().toString(), deviceService.getDeviceCount(),
+                    deviceService.getStateCounts(), completed, completedPerSecond,
+                    vlanIPPoolManager.getTotalUsedIPCount());
+            synchronized (history) {
+                // The latest sample is always kept, it carries the current completion rate
+                while (history.size() >= Math.max(1, historySize)) {
+                    history.removeFirst();
+                }
+                history.addLast(sample);
+            }
+            sampleCount++;
+        } catch (Exception e) {
+            logger.error("Error while recording statistics sample", e);
+            return;
+        }
+        for (Runnable listener : sampleListeners) {
+            try {
+                listener.run();
+            } catch (Exception e) {
+                logger.error("Error in statistics sample listener", e);
+            }
+        }
+    }
+
+    private double latestRate() {
+        synchronized (history) {
+            return history.isEmpty() ? 0 : history.getLast().completedPerSecond();
+        }
+    }
+
+    private static double percent(int used, int usable) {
+        return usable == 0 ? 0 : Math.round(used * 10000.0 / usable) / 100.0;
+    }
+
+    /**
+     * Totals at one point in time
+     * @param timestamp Time of the sample
+     * @param totalDevices Number of devices
+     * @param stateCount Device count by state
+     * @param completedExchanges DHCP exchanges completed since startup
+     * @param completedPerSecond Completions per second since the previous sample
+     * @param usedIPs IP addresses in use
+     */
+    public record Sample(String timestamp, int totalDevices, Map<String, Integer> stateCount,
+                         long completedExchanges, double completedPerSecond, int usedIPs) {
+    }
+}
@@ -0,0 +1,177 @@
+package com.argela;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A named DHCP storm with its own target selector, rate, status and cancel handle.
+ * Several storms may run at the same time as long as their names differ.
+ * A storm either starts DORA on idle devices (discover) or makes bound devices
+ * renew (unicast REQUEST) or rebind (broadcast REQUEST) at once.
+ */
+public class DhcpStorm {
+    public static final String STATUS_RUNNING = "running";
+    public static final String STATUS_COMPLETED = "completed";
+    public static final String STATUS_CANCELLED = "cancelled";
+    public static final String STATUS_ERROR = "error";
+
+    private final String name;
+    private final String type;
+    private final Integer rate;
+    private final Double intervalSec;
+
+    // Target selector
+    private final Integer ponPortStart;
+    private final Integer ponPortEnd;
+    private final Integer onuIdStart;
+    private final Integer onuIdEnd;
+    private final Set<Integer> vlanIds;
+    private final String state;
+
+    private final AtomicInteger sentCount = new AtomicInteger();
+    private final AtomicInteger failureCount = new AtomicInteger();
+    private final AtomicInteger skippedCount = new AtomicInteger();
+    private final AtomicInteger completedCount = new AtomicInteger();
+    private final AtomicInteger retransmissionCount = new AtomicInteger();
+    private final AtomicInteger timeoutCount = new AtomicInteger();
+    private volatile int targetCount;
+    private volatile String status = STATUS_RUNNING;
+    private volatile String message;
+    private final Instant startTime = Instant.now();
+    private volatile Instant endTime;
+
+    private volatile CompletableFuture<Void> future;
+
+    private final DhcpStormMetrics metrics = new DhcpStormMetrics();
+
+    /**
+     * Creates a storm from the REST request
+     * @param name Unique storm name
+     * @param request The storm request containing rate and target selector
+     */
+    public DhcpStorm(String name, DhcpStormRequest request) {
+        this.name = name;
+        this.type = request.getType() == null || request.getType().isBlank()
+                ? DhcpStormRequest.TYPE_DISCOVER : request.getType().trim().toLowerCase();
+        this.rate = request.getRate() != null && request.getRate() > 0 ? request.getRate() : null;
+        this.intervalSec = this.rate == null ? request.getIntervalSec() : null;
+        this.ponPortStart = request.getPonPortStart();
+        this.ponPortEnd = request.getPonPortEnd();
+        this.onuIdStart = request.getOnuIdStart();
+        this.onuIdEnd = request.getOnuIdEnd();
+        List<Integer> vlans = request.getVlanIds();
+        this.vlanIds = vlans == null || vlans.isEmpty() ? null : Set.copyOf(vlans);
+        // Renewal storms target bound devices unless told otherwise
+        String defaultState = DhcpStormRequest.TYPE_DISCOVER.equals(type) ? "IDLE" : "ACKNOWLEDGED";
+        this.state = request.getState() == null || request.getState().isBlank()
+                ? defaultState : request.getState().trim().toUpperCase();
+    }
+
+    /**
+     * Checks whether the device is targeted by this storm's selector
+     * @param device The device to check
+     * @return true if the device matches PON range, ONU range, VLAN set and state
+     */
+    public boolean matches(DeviceInfo device) {
+        if (ponPortStart != null && device.getPonPort() < ponPortStart) return false;
+        if (ponPortEnd != null && device.getPonPort() > ponPortEnd) return false;
+        if (onuIdStart != null && device.getOnuId() < onuIdStart) return false;
+        if (onuIdEnd != null && device.getOnuId() > onuIdEnd) return false;
+        if (vlanIds != null && !vlanIds.contains(device.getVlanId())) return false;
+        return state.equals(device.getState());
+    }
+
+    /**
+     * Gets the delay between two devices
+     * @return Delay in milliseconds
+     */
+    long getDelayMs() {
+        if (rate != null) {
+            return 1000 / rate;
+        }
+        return (long) (intervalSec * 1000);
+    }
+
+    boolean isRunning() {
+        return STATUS_RUNNING.equals(status);
+    }
+
+    void setFuture(CompletableFuture<Void> future) {
+        this.future = future;
+    }
+
+    /**
+     * Marks the storm as cancelled and interrupts its worker
+     * @return true if the storm was running
+     */
+    boolean cancel() {
+        if (!finish(STATUS_CANCELLED, "Storm cancelled")) {
+            return false;
+        }
+        CompletableFuture<Void> f = future;
+        if (f != null) {
+            f.cancel(true);
+        }
+        return true;
+    }
+
+    /**
+     * Moves the storm to a terminal status, only the first call wins
+     * @param newStatus The terminal status
+     * @param newMessage Status message
+     * @return true if the status was changed
+     */
+    synchronized boolean finish(String newStatus, String newMessage) {
+        if (!isRunning()) {
+            return false;
+        }
+        status = newStatus;
+        message = newMessage;
+        endTime = Instant.now();
+        return true;
+    }
+
+    void setTargetCount(int targetCount) { this.targetCount = targetCount; }
+    void setMessage(String message) { this.message = message; }
+    void incrementSent() { sentCount.incrementAndGet(); metrics.recordSent(); }
+    void incrementCompleted() { completedCount.incrementAndGet(); }
+    void incrementFailure() { failureCount.incrementAndGet(); }
+    void incrementSkipped() { skippedCount.incrementAndGet(); }
+    void incrementRetransmission() { retransmissionCount.incrementAndGet(); }
+    void incrementTimeout() { timeoutCount.incrementAndGet(); }
+    DhcpStormMetrics metrics() { return metrics; }
+
+    /**
+     * Builds the latency and throughput report of this storm
+     * @return Report map
+     */
+    Map<String, Object> buildReport() {
+        return metrics.buildReport(this);
+    }
+
+    public String getName() { return name; }
+    public String getType() { return type; }
+    public Integer getRate() { return rate; }
+    public Double getIntervalSec() { return intervalSec; }
+    public Integer getPonPortStart() { return ponPortStart; }
+    public Integer getPonPortEnd() { return ponPortEnd; }
+    public Integer getOnuIdStart() { return onuIdStart; }
+    public Integer getOnuIdEnd() { return onuIdEnd; }
+    public Set<Integer> getVlanIds() { return vlanIds; }
+    public String getState() { return state; }
+    public String getStatus() { return status; }
+    public String getMessage() { return message; }
+    public int getTargetCount() { return targetCount; }
+    public int getSentCount() { return sentCount.get(); }
+    public int getCompletedCount() { return completedCount.get(); }
+    public int getFailureCount() { return failureCount.get(); }
+    public int getSkippedCount() { return skippedCount.get(); }
+    public int getRetransmissionCount() { return retransmissionCount.get(); }
+    public int getTimeoutCount() { return timeoutCount.get(); }
+    public Instant getStartTime() { return startTime; }
+    public Instant getEndTime() { return endTime; }
+}
@@ -0,0 +1,127 @@
+package com.argela;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Latency distributions and achieved throughput collected while a storm runs.
+ * Phase latencies are measured from the first transmission, so retransmission waits are included.
+ */
+public class DhcpStormMetrics {
+    // Timeline slots per second: packets sent, DORA/renewals completed
+    private static final int SENT = 0;
+    private static final int COMPLETED = 1;
+
+    private final long startNanos = System.nanoTime();
+
+    private final LatencyHistogram discoverToOffer = new LatencyHistogram();
+    private final LatencyHistogram offerToRequest = new LatencyHistogram();
+    private final LatencyHistogram requestToAck = new LatencyHistogram();
+    private final LatencyHistogram dora = new LatencyHistogram();
+    private final ConcurrentHashMap<Integer, LatencyHistogram> completionByPon = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, LatencyHistogram> completionByVlan = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, AtomicIntegerArray> timeline = new ConcurrentHashMap<>();
+
+    void recordSent() {
+        timelineSlot().incrementAndGet(SENT);
+    }
+
+    void recordDiscoverToOffer(long nanos) {
+        discoverToOffer.recordNanos(nanos);
+    }
+
+    void recordOfferToRequest(long nanos) {
+        offerToRequest.recordNanos(nanos);
+    }
+
+    void recordRequestToAck(long nanos) {
+        requestToAck.recordNanos(nanos);
+    }
+
+    /**
+     * Records a completed exchange (full DORA, or REQUEST/ACK for renewal storms)
+     * @param device The completed device, used for the PON and VLAN breakdown
+     * @param nanos Exchange duration in nanoseconds
+     * @param fullDora true if the exchange started with a DISCOVER
+     */
+    void recordCompleted(DeviceInfo device, long nanos, boolean fullDora) {
+        if (fullDora) {
+            dora.recordNanos(nanos);
+        }
+        completionByPon.computeIfAbsent(device.getPonPort(), k -> new LatencyHistogram()).recordNanos(nanos);
+        completionByVlan.computeIfAbsent(device.getVlanId(), k -> new LatencyHistogram()).recordNanos(nanos);
+        timelineSlot().incrementAndGet(COMPLETED);
+    }
+
+    private AtomicIntegerArray timelineSlot() {
+        long second = (System.nanoTime() - startNanos) / 1_000_000_000L;
+        return timeline.computeIfAbsent(second, k -> new AtomicIntegerArray(2));
+    }
+
+    /**
+     * Builds the storm report
+     * @param storm The storm the metrics belong to
+     * @return Report map with counters, rates, latency summaries, breakdowns and timeline
+     */
+    Map<String, Object> buildReport(DhcpStorm storm) {
+        double elapsedSec = (System.nanoTime() - startNanos) / 1e9;
+        if (storm.getEndTime() != null) {
+            // A finished storm spans until its sender stopped or its last answer arrived, whichever is later
+            long lastSecond = timeline.keySet().stream().mapToLong(Long::longValue).max().orElse(0);
+            double sendSec = Duration.between(storm.getStartTime(), storm.getEndTime()).toMillis() / 1000.0;
+            elapsedSec = Math.min(elapsedSec, Math.max(sendSec, lastSecond + 1));
+        }
+        elapsedSec = Math.max(elapsedSec, 0.001);
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("name", storm.getName());
+        report.put("type", storm.getType());
+        report.put("status", storm.getStatus());
+        report.put("startTime", storm.getStartTime());
+        report.put("endTime", storm.getEndTime());
+        report.put("durationSec", Math.round(elapsedSec * 1000) / 1000.0);
+        report.put("targetCount", storm.getTargetCount());
+        report.put("sentCount", storm.getSentCount());
+        report.put("completedCount", storm.getCompletedCount());
+        report.put("failureCount", storm.getFailureCount());
+        report.put("skippedCount", storm.getSkippedCount());
+        report.put("retransmissionCount", storm.getRetransmissionCount());
+        report.put("timeoutCount", storm.getTimeoutCount());
+        report.put("requestedRate", storm.getRate());
+        report.put("achievedSendRate", Math.round(storm.getSentCount() / elapsedSec * 100) / 100.0);
+        report.put("achievedCompletionRate", Math.round(storm.getCompletedCount() / elapsedSec * 100) / 100.0);
+
+        Map<String, Object> latency = new LinkedHashMap<>();
+        latency.put("discoverToOffer", discoverToOffer.summary());
+        latency.put("offerToRequest", offerToRequest.summary());
+        latency.put("requestToAck", requestToAck.summary());
+        latency.put("dora", dora.summary());
+        report.put("latency", latency);
+
+        report.put("byPon", summarize(completionByPon));
+        report.put("byVlan", summarize(completionByVlan));
+
+        List<Map<String, Object>> rateTimeline = new ArrayList<>();
+        new TreeMap<>(timeline).forEach((second, slot) -> {
+            Map<String, Object> point = new LinkedHashMap<>();
+            point.put("second", second);
+            point.put("sent", slot.get(SENT));
+            point.put("completed", slot.get(COMPLETED));
+            rateTimeline.add(point);
+        });
+        report.put("timeline", rateTimeline);
+        return report;
+    }
+
+    private Map<String, Object> summarize(Map<Integer, LatencyHistogram> histograms) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        new TreeMap<>(histograms).forEach((key, histogram) -> result.put(String.valueOf(key), histogram.summary()));
+        return result;
+    }
+}
@@ -0,0 +1,84 @@
+package com.argela;
+
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.context.ManagedExecutor;
+
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Shared hashed timer wheel for per-device DHCP client timers.
+ * A single wheel thread tracks all pending timers, so millions of devices cost
+ * one small timeout object each instead of one scheduled task per device.
+ * Expired tasks are handed off to the managed executor so the wheel thread never blocks.
+ */
+@ApplicationScoped
+public class DhcpTimerWheel {
+    private static final Logger logger = LoggerFactory.getLogger(DhcpTimerWheel.class);
+
+    @ConfigProperty(name = "dhcp.timer.tick.ms", defaultValue = "100")
+    long tickMs;
+
+    @ConfigProperty(name = "dhcp.timer.wheel.size", defaultValue = "512")
+    int wheelSize;
+
+    @Inject
+    ManagedExecutor managedExecutor;
+
+    private HashedWheelTimer timer;
+
+    /**
+     * Starts the timer wheel
+     */
+    @PostConstruct
+    public void start() {
+        timer = new HashedWheelTimer(new DefaultThreadFactory("dhcp-timer-wheel", true),
+                tickMs, TimeUnit.MILLISECONDS, wheelSize);
+        timer.start();
+        logger.info("DHCP timer wheel started - tick: {}ms, wheel size: {}", tickMs, wheelSize);
+    }
+
+    /**
+     * Stops the timer wheel and drops all pending timers
+     */
+    @PreDestroy
+    public void stop() {
+        if (timer != null) {
+            int pending = timer.stop().size();
+            logger.info("DHCP timer wheel stopped, {} pending timers dropped", pending);
+        }
+    }
+
+    /**
+     * Schedules a task to run on the managed executor after the given delay
+     * @param task The task to run
+     * @param delayMs Delay in milliseconds
+     * @return Timeout handle that can be used to cancel the task
+     */
+    public Timeout schedule(Runnable task, long delayMs) {
+        return timer.newTimeout(timeout -> managedExecutor.execute(() -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                logger.error("Error running DHCP timer task: {}", e.getMessage(), e);
+            }
+        }), Math.max(delayMs, 0), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Gets the number of timers waiting in the wheel
+     * @return Number of pending timers
+     */
+    public long getPendingTimers() {
+        return timer.pendingTimeouts();
+    }
+}
@@ -0,0 +1,91 @@
+package com.argela;
+
+import io.grpc.Drainable;
+import io.grpc.KnownLength;
+import io.grpc.MethodDescriptor;
+import org.opencord.voltha.openolt.VolthaOpenOLT.Indication;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * An {@link Indication} already serialized to its protobuf wire format.
+ * It is encoded once and the same bytes are handed to every subscribed stream;
+ * {@link #MARSHALLER} writes them to the transport without re-encoding.
+ */
+public final class EncodedIndication {
+
+    /**
+     * Response marshaller of indication streams that passes the pre-encoded bytes through
+     */
+    public static final MethodDescriptor.Marshaller<EncodedIndication> MARSHALLER =
+            new MethodDescriptor.Marshaller<>() {
+                @Override
+                public InputStream stream(EncodedIndication value) {
+                    return new EncodedStream(value.bytes);
+                }
+
+                @Override
+                public EncodedIndication parse(InputStream stream) {
+                    try {
+                        return new EncodedIndication(stream.readAllBytes());
+                    } catch (IOException e) {
+                        throw new IllegalArgumentException("Failed to read indication", e);
+                    }
+                }
+            };
+
+    private final byte[] bytes;
+
+    EncodedIndication(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    /**
+     * Serializes an indication
+     * @param indication The indication to encode
+     * @return The encoded indication
+     */
+    public static EncodedIndication of(Indication indication) {
+        return new EncodedIndication(indication.toByteArray());
+    }
+
+    /**
+     * Gets the serialized size
+     * @return Size in bytes
+     */
+    public int size() {
+        return bytes.length;
+    }
+
+    /**
+     * Decodes the indication, only needed for diagnostics
+     * @return The decoded indication
+     */
+    public Indication decode() {
+        try {
+            return Indication.parseFrom(bytes);
+        } catch (IOException e) {
+            throw new IllegalStateException("Invalid encoded indication", e);
+        }
+    }
+
+    /**
+     * Byte stream with a known length that gRPC can drain straight into its frame buffer
+     */
+    private static final class EncodedStream extends ByteArrayInputStream implements KnownLength, Drainable {
+        EncodedStream(byte[] bytes) {
+            super(bytes);
+        }
+
+        @Override
+        public int drainTo(OutputStream target) throws IOException {
+            int length = count - pos;
+            target.write(buf, pos, length);
+            pos = count;
+            return length;
+        }
+    }
+}
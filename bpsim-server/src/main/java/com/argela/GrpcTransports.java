@@ -0,0 +1,229 @@
+package com.argela;
+
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.ServerInterceptors;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.netty.NettyChannelBuilder;
+import io.grpc.netty.NettyServerBuilder;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollDomainSocketChannel;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerDomainSocketChannel;
+import io.netty.channel.unix.DomainSocketAddress;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.quarkus.grpc.GrpcService;
+import io.quarkus.runtime.Startup;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Additional transports serving the same {@link DhcpGrpcServer} instance as the main gRPC port,
+ * and channels to reach it through any of them. The in-process transport lets co-located clients
+ * (load driver, benchmarks, test harnesses) call the service without sockets; the Unix domain socket
+ * listener (Linux, Netty epoll) serves co-located adapters without the loopback TCP stack.
+ */
+@Startup
+@ApplicationScoped
+public class GrpcTransports {
+    private static final Logger logger = LoggerFactory.getLogger(GrpcTransports.class);
+
+    public static final String TRANSPORT_TCP = "tcp";
+    public static final String TRANSPORT_IN_PROCESS = "inprocess";
+    public static final String TRANSPORT_UDS = "uds";
+
+    @ConfigProperty(name = "dhcp.grpc.inprocess.enabled", defaultValue = "true")
+    boolean inProcessEnabled;
+
+    @ConfigProperty(name = "dhcp.grpc.inprocess.name", defaultValue = "bpsim")
+    String inProcessName;
+
+    @ConfigProperty(name = "dhcp.grpc.uds.enabled", defaultValue = "false")
+    boolean udsEnabled;
+
+    @ConfigProperty(name = "dhcp.grpc.uds.path", defaultValue = "/tmp/bpsim.sock")
+    String udsPath;
+
+    @ConfigProperty(name = "dhcp.grpc.uds.flow.control.window", defaultValue = "1048576")
+    int udsFlowControlWindow;
+
+    @ConfigProperty(name = "dhcp.grpc.uds.max.inbound.message.size", defaultValue = "4194304")
+    int udsMaxInboundMessageSize;
+
+    @ConfigProperty(name = "dhcp.grpc.uds.worker.threads", defaultValue = "0")
+    int udsWorkerThreads;
+
+    @ConfigProperty(name = "dhcp.driver.host", defaultValue = "localhost")
+    String tcpHost;
+
+    @ConfigProperty(name = "quarkus.grpc.server.port", defaultValue = "9000")
+    int tcpPort;
+
+    @Inject
+    @GrpcService
+    DhcpGrpcServer grpcServer;
+
+    @Inject
+    IndicationShardInterceptor shardInterceptor;
+
+    private Server inProcessServer;
+    private Server udsServer;
+    private EventLoopGroup udsBossGroup;
+    private EventLoopGroup udsWorkerGroup;
+    private EventLoopGroup udsClientGroup;
+
+    /**
+     * Starts the in-process and Unix domain socket servers if enabled
+     * @throws IOException if a server cannot be started
+     */
+    @PostConstruct
+    public void start() throws IOException {
+        if (inProcessEnabled) {
+            inProcessServer = InProcessServerBuilder.forName(inProcessName)
+                    .addService(ServerInterceptors.intercept(grpcServer, shardInterceptor))
+                    .build()
+                    .start();
+            logger.info("In-process gRPC server started - name: {}", inProcessName);
+        }
+        if (udsEnabled) {
+            startUdsServer();
+        }
+    }
+
+    private void startUdsServer() throws IOException {
+        if (!Epoll.isAvailable()) {
+            logger.warn("Unix domain socket gRPC listener disabled, native epoll transport unavailable: {}",
+                    Epoll.unavailabilityCause().getMessage());
+            return;
+        }
+        // A socket file left behind by a previous run would make the bind fail
+        Files.deleteIfExists(Path.of(udsPath));
+
+        udsBossGroup = new EpollEventLoopGroup(1, new DefaultThreadFactory("grpc-uds-boss", true));
+        udsWorkerGroup = new EpollEventLoopGroup(udsWorkerThreads, new DefaultThreadFactory("grpc-uds-worker", true));
+        udsServer = NettyServerBuilder.forAddress(new DomainSocketAddress(udsPath))
+                .channelType(EpollServerDomainSocketChannel.class)
+                .bossEventLoopGroup(udsBossGroup)
+                .workerEventLoopGroup(udsWorkerGroup)
+                .flowControlWindow(udsFlowControlWindow)
+                .maxInboundMessageSize(udsMaxInboundMessageSize)
+                .addService(ServerInterceptors.intercept(grpcServer, shardInterceptor))
+                .build()
+                .start();
+        logger.info("Unix domain socket gRPC server started - path: {}, flow control window: {}, max inbound message: {}",
+                udsPath, udsFlowControlWindow, udsMaxInboundMessageSize);
+    }
+
+    /**
+     * Stops the additional servers
+     */
+    @PreDestroy
+    public void stop() {
+        if (inProcessServer != null) {
+            inProcessServer.shutdownNow();
+        }
+        if (udsServer != null) {
+            udsServer.shutdownNow();
+            udsBossGroup.shutdownGracefully();
+            udsWorkerGroup.shutdownGracefully();
+            try {
+                Files.deleteIfExists(Path.of(udsPath));
+            } catch (IOException e) {
+                logger.warn("Could not remove socket file {}: {}", udsPath, e.getMessage());
+            }
+        }
+        synchronized (this) {
+            if (udsClientGroup != null) {
+                udsClientGroup.shutdownGracefully();
+            }
+        }
+    }
+
+    /**
+     * Gets the transports that are currently available
+     * @return Transport names
+     */
+    public List<String> getAvailableTransports() {
+        List<String> transports = new ArrayList<>();
+        transports.add(TRANSPORT_TCP);
+        if (inProcessServer != null) {
+            transports.add(TRANSPORT_IN_PROCESS);
+        }
+        if (udsServer != null) {
+            transports.add(TRANSPORT_UDS);
+        }
+        return transports;
+    }
+
+    /**
+     * Opens a plaintext channel to the simulator over the given transport
+     * @param transport Transport name, null for TCP
+     * @return The channel, to be shut down by the caller
+     * @throws IllegalArgumentException if the transport is unknown or not enabled
+     */
+    public ManagedChannel openChannel(String transport) {
+        String name = transport == null || transport.isBlank() ? TRANSPORT_TCP : transport.trim().toLowerCase();
+        switch (name) {
+            case TRANSPORT_TCP:
+                return NettyChannelBuilder.forAddress(tcpHost, tcpPort).usePlaintext().build();
+            case TRANSPORT_IN_PROCESS:
+                if (inProcessServer == null) {
+                    throw new IllegalArgumentException("In-process transport is disabled (dhcp.grpc.inprocess.enabled)");
+                }
+                return InProcessChannelBuilder.forName(inProcessName).build();
+            case TRANSPORT_UDS:
+                if (udsServer == null) {
+                    throw new IllegalArgumentException("Unix domain socket transport is not running (dhcp.grpc.uds.enabled)");
+                }
+                return NettyChannelBuilder.forAddress(new DomainSocketAddress(udsPath))
+                        .channelType(EpollDomainSocketChannel.class)
+                        .eventLoopGroup(udsClientGroup())
+                        .flowControlWindow(udsFlowControlWindow)
+                        .maxInboundMessageSize(udsMaxInboundMessageSize)
+                        .usePlaintext()
+                        .build();
+            default:
+                throw new IllegalArgumentException("Unknown transport: " + transport +
+                        ", expected one of " + getAvailableTransports());
+        }
+    }
+
+    /**
+     * Describes where a transport connects to
+     * @param transport Transport name, null for TCP
+     * @return Target address
+     */
+    public String describeTarget(String transport) {
+        String name = transport == null || transport.isBlank() ? TRANSPORT_TCP : transport.trim().toLowerCase();
+        return switch (name) {
+            case TRANSPORT_TCP -> tcpHost + ":" + tcpPort;
+            case TRANSPORT_IN_PROCESS -> "inprocess:" + inProcessName;
+            case TRANSPORT_UDS -> "unix:" + udsPath;
+            default -> name;
+        };
+    }
+
+    /**
+     * Gets the event loop group shared by client channels over the Unix domain socket
+     */
+    private synchronized EventLoopGroup udsClientGroup() {
+        if (udsClientGroup == null) {
+            udsClientGroup = new EpollEventLoopGroup(0, new DefaultThreadFactory("grpc-uds-client", true));
+        }
+        return udsClientGroup;
+    }
+}
@@ -0,0 +1,366 @@
+package com.argela;
+
+import io.grpc.stub.StreamObserver;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.context.ManagedExecutor;
+import org.opencord.voltha.openolt.VolthaOpenOLT.Indication;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.LongFunction;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Fans indications out to the connected indication streams.
+ * Every indication is serialized once and the same bytes are queued for every matching subscriber.
+ * Streams may subscribe to a shard of the OLT; ONU indications are routed through a routing table,
+ * precomputed for the configured PON/ONU space and rebuilt whenever a stream comes or goes.
+ * Each subscriber gets its own bounded queue and drainer (see {@link IndicationSubscriber}),
+ * so publishing never blocks on a slow stream. The BLOCK overflow policy is an explicit opt-in: it holds
+ * the publishing storm or packet-out thread up to the block timeout per indication.
+ * Packet indications are also kept in a replay ring with their sequence number in the cookie,
+ * so a packet stream that reconnects can resume where it left off. Whether indications that no stream
+ * receives are encoded and recorded anyway is set with {@code dhcp.indication.replay.unrouted}.
+ */
+@ApplicationScoped
+public class IndicationDispatcher {
+    private static final Logger logger = LoggerFactory.getLogger(IndicationDispatcher.class);
+
+    /** Stream kind of EnablePacketIndication subscribers (pkt_ind) */
+    public static final String KIND_PACKET = "packet";
+    /** Stream kind of EnableIndication subscribers (olt_ind, intf_ind, onu_disc_ind, onu_ind) */
+    public static final String KIND_INDICATION = "indication";
+
+    private static final IndicationSubscriber[] NONE = new IndicationSubscriber[0];
+
+    @ConfigProperty(name = "dhcp.indication.queue.capacity", defaultValue = "10000")
+    int queueCapacity;
+
+    @ConfigProperty(name = "dhcp.indication.overflow.policy", defaultValue = "DROP_OLDEST")
+    IndicationSubscriber.OverflowPolicy overflowPolicy;
+
+    @ConfigProperty(name = "dhcp.indication.block.timeout.ms", defaultValue = "1000")
+    long blockTimeoutMs;
+
+    @ConfigProperty(name = "dhcp.indication.replay.capacity", defaultValue = "65536")
+    int replayCapacity;
+
+    @ConfigProperty(name = "dhcp.indication.replay.max.age.ms", defaultValue = "30000")
+    long replayMaxAgeMs;
+
+    @ConfigProperty(name = "dhcp.indication.replay.unrouted", defaultValue = "true")
+    boolean replayUnrouted;
+
+    @ConfigProperty(name = "dhcp.pon.port.start", defaultValue = "0")
+    int ponPortStart;
+
+    @ConfigProperty(name = "dhcp.pon.port.count", defaultValue = "16")
+    int ponPortCount;
+
+    @ConfigProperty(name = "dhcp.onu.port.start", defaultValue = "0")
+    int onuPortStart;
+
+    @ConfigProperty(name = "dhcp.onu.port.count", defaultValue = "128")
+    int onuPortCount;
+
+    @Inject
+    ManagedExecutor managedExecutor;
+
+    private final ConcurrentHashMap<Long, IndicationSubscriber> subscribers = new ConcurrentHashMap<>();
+    private final AtomicLong subscriberCounter = new AtomicLong();
+    private volatile Map<String, RoutingTable> routingTables = Map.of();
+    private IndicationReplayRing packetReplay;
+
+    /**
+     * Allocates the packet replay ring, unless disabled with a zero capacity
+     */
+    @PostConstruct
+    void init() {
+        if (replayCapacity > 0) {
+            packetReplay = new IndicationReplayRing(replayCapacity, replayMaxAgeMs);
+            logger.info("Packet indication replay ring allocated - capacity: {}, max age: {}ms, unrouted: {}",
+                    packetReplay.getCapacity(), replayMaxAgeMs, replayUnrouted);
+        }
+    }
+
+    /**
+     * Registers an indication stream
+     * @param observer The gRPC response observer of the stream
+     * @param kind Stream kind, {@link #KIND_PACKET} or {@link #KIND_INDICATION}
+     * @param client Client name declared by the stream, may be null
+     * @param shard The slice of the OLT the stream consumes, null for everything
+     * @return The created subscriber
+     */
+    public IndicationSubscriber subscribe(StreamObserver<EncodedIndication> observer, String kind, String client,
+                                          IndicationShard shard) {
+        return subscribe(observer, kind, client, shard, null);
+    }
+
+    /**
+     * Registers an indication stream, replaying the packet indications it missed while disconnected
+     * @param observer The gRPC response observer of the stream
+     * @param kind Stream kind, {@link #KIND_PACKET} or {@link #KIND_INDICATION}
+     * @param client Client name declared by the stream, may be null
+     * @param shard The slice of the OLT the stream consumes, null for everything
+     * @param resumeFrom Last sequence number received before reconnecting, null for a fresh stream
+     * @return The created subscriber
+     */
+    public IndicationSubscriber subscribe(StreamObserver<EncodedIndication> observer, String kind, String client,
+                                          IndicationShard shard, Long resumeFrom) {
+        long id = subscriberCounter.incrementAndGet();
+        IndicationSubscriber subscriber = new IndicationSubscriber(id, kind, client, shard, observer, managedExecutor,
+                overflowPolicy, queueCapacity, blockTimeoutMs, this::unsubscribe);
+        boolean resume = resumeFrom != null && KIND_PACKET.equals(kind) && packetReplay != null;
+        if (resume) {
+            subscriber.awaitReplay(resumeFrom);
+        }
+        subscribers.put(id, subscriber);
+        rebuildRoutingTable();
+        logger.info("Indication stream {} ({}{}) subscribed - shard: {}, queue capacity: {}, overflow policy: {}",
+                id, kind, client == null ? "" : ", " + client, shard == null ? "all" : shard,
+                queueCapacity, overflowPolicy);
+
+        if (resume) {
+            // Read the ring only after the stream is routed: anything published before is in the ring,
+            // anything after reaches the live queue (an indication may arrive twice, never not at all)
+            long oldest = packetReplay.getOldestSequence();
+            List<EncodedIndication> missed = packetReplay.since(resumeFrom, shard);
+            int truncated = subscriber.replay(missed);
+            if (resumeFrom + 1 < oldest) {
+                logger.warn("Indication stream {} resumed from sequence {} but the oldest replayable is {}, " +
+                        "{} indications are lost", id, resumeFrom, oldest, oldest - resumeFrom - 1);
+            }
+            if (truncated > 0) {
+                logger.warn("Indication stream {} missed more indications than its queue capacity {}, " +
+                        "the oldest {} are not replayed", id, queueCapacity, truncated);
+            }
+            logger.info("Indication stream {} resumed from sequence {}, replaying {} indications",
+                    id, resumeFrom, missed.size());
+        }
+        return subscriber;
+    }
+
+    private void unsubscribe(IndicationSubscriber subscriber) {
+        if (subscribers.remove(subscriber.getId()) != null) {
+            rebuildRoutingTable();
+            logger.info("Indication stream {} ({}) removed - sent: {}, dropped: {}",
+                    subscriber.getId(), subscriber.getKind(), subscriber.getSentCount(), subscriber.getDroppedCount());
+        }
+    }
+
+    /**
+     * Recomputes the routes of every (PON, ONU) pair of the configured topology, per stream kind
+     */
+    private synchronized void rebuildRoutingTable() {
+        Map<String, List<IndicationSubscriber>> byKind = new HashMap<>();
+        for (IndicationSubscriber subscriber : getSubscribers()) {
+            byKind.computeIfAbsent(subscriber.getKind(), k -> new ArrayList<>()).add(subscriber);
+        }
+        Map<String, RoutingTable> tables = new HashMap<>();
+        byKind.forEach((kind, list) -> tables.put(kind, new RoutingTable(list.toArray(NONE),
+                ponPortStart, ponPortCount, onuPortStart, onuPortCount)));
+        routingTables = Map.copyOf(tables);
+    }
+
+    private RoutingTable routingTable(String kind) {
+        return routingTables.getOrDefault(kind, RoutingTable.EMPTY);
+    }
+
+    /**
+     * Encodes an indication once and queues it on every stream of the given kind
+     * @param kind Stream kind
+     * @param indication The indication to publish
+     */
+    public void publish(String kind, Indication indication) {
+        if (hasSubscribers(kind)) {
+            publish(kind, EncodedIndication.of(indication));
+        }
+    }
+
+    /**
+     * Queues an already encoded indication on every stream of the given kind
+     * @param kind Stream kind
+     * @param indication The encoded indication to publish
+     */
+    public void publish(String kind, EncodedIndication indication) {
+        for (IndicationSubscriber subscriber : routingTable(kind).all) {
+            subscriber.offer(indication);
+        }
+    }
+
+    /**
+     * Queues an encoded ONU indication on the streams of the given kind whose shard covers the ONU
+     * @param kind Stream kind
+     * @param indication The encoded indication to publish
+     * @param ponPort PON port of the ONU
+     * @param onuId ONU ID
+     */
+    public void publish(String kind, EncodedIndication indication, int ponPort, int onuId) {
+        for (IndicationSubscriber subscriber : routingTable(kind).route(ponPort, onuId)) {
+            subscriber.offer(indication);
+        }
+    }
+
+    /**
+     * Sequences, stores and routes an ONU packet indication. The sequence number is assigned by the replay ring
+     * and passed to the encoder, so it can travel in the indication itself.
+     * @param ponPort PON port of the ONU
+     * @param onuId ONU ID
+     * @param encoder Encodes the indication with the given sequence number (0 when replay is disabled)
+     */
+    public void publishPacket(int ponPort, int onuId, LongFunction<EncodedIndication> encoder) {
+        EncodedIndication indication = packetReplay != null
+                ? packetReplay.append(ponPort, onuId, encoder)
+                : encoder.apply(0);
+        publish(KIND_PACKET, indication, ponPort, onuId);
+    }
+
+    /**
+     * Checks whether a packet indication of the ONU has to be encoded at all: it is routed to a stream,
+     * or replay records unrouted indications for streams that are disconnected
+     * @param ponPort PON port of the ONU
+     * @param onuId ONU ID
+     * @return true if the indication should be published
+     */
+    public boolean acceptsPackets(int ponPort, int onuId) {
+        return (packetReplay != null && replayUnrouted) || hasSubscribers(KIND_PACKET, ponPort, onuId);
+    }
+
+    /**
+     * Gets the sequence number of the latest packet indication
+     * @return Last sequence, or null if replay is disabled
+     */
+    public Long getLastPacketSequence() {
+        return packetReplay == null ? null : packetReplay.getLastSequence();
+    }
+
+    /**
+     * Gets the status of the packet replay ring
+     * @return Status map, or null if replay is disabled
+     */
+    public Map<String, Object> getReplayStatus() {
+        return packetReplay == null ? null : packetReplay.getStatus();
+    }
+
+    /**
+     * Checks whether any stream of the given kind is subscribed, so callers can skip encoding
+     * @param kind Stream kind
+     * @return true if at least one stream is subscribed
+     */
+    public boolean hasSubscribers(String kind) {
+        return routingTable(kind).all.length > 0;
+    }
+
+    /**
+     * Checks whether any stream of the given kind would receive indications of the ONU
+     * @param kind Stream kind
+     * @param ponPort PON port of the ONU
+     * @param onuId ONU ID
+     * @return true if at least one stream's shard covers the ONU
+     */
+    public boolean hasSubscribers(String kind, int ponPort, int onuId) {
+        return routingTable(kind).route(ponPort, onuId).length > 0;
+    }
+
+    /**
+     * Gets the subscribed streams of a kind
+     * @param kind Stream kind
+     * @return Subscribers ordered by ID
+     */
+    public List<IndicationSubscriber> getSubscribers(String kind) {
+        return List.of(routingTable(kind).all);
+    }
+
+    /**
+     * Finds a subscribed stream by the client name it declared
+     * @param client Client name
+     * @return The newest stream with that name, if any
+     */
+    public Optional<IndicationSubscriber> findSubscriber(String client) {
+        return subscribers.values().stream()
+                .filter(subscriber -> client.equals(subscriber.getClient()))
+                .max(Comparator.comparingLong(IndicationSubscriber::getId));
+    }
+
+    /**
+     * Gets the number of subscribed streams
+     * @return Number of subscribers
+     */
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * Gets the subscribed streams with their queue metrics
+     * @return Subscribers ordered by ID
+     */
+    public List<IndicationSubscriber> getSubscribers() {
+        List<IndicationSubscriber> result = new ArrayList<>(subscribers.values());
+        result.sort(Comparator.comparingLong(IndicationSubscriber::getId));
+        return result;
+    }
+
+    /**
+     * Immutable (PON, ONU) to subscribers table. Pairs with the same set of subscribers share one array,
+     * pairs outside the configured topology are matched against the shards on the fly.
+     */
+    private static final class RoutingTable {
+        static final RoutingTable EMPTY = new RoutingTable(NONE, 0, 0, 0, 0);
+
+        final IndicationSubscriber[] all;
+        final IndicationSubscriber[][] routes;
+        final int ponStart;
+        final int ponCount;
+        final int onuStart;
+        final int onuCount;
+
+        RoutingTable(IndicationSubscriber[] all, int ponStart, int ponCount, int onuStart, int onuCount) {
+            this.all = all;
+            this.ponStart = ponStart;
+            this.ponCount = all.length == 0 ? 0 : ponCount;
+            this.onuStart = onuStart;
+            this.onuCount = all.length == 0 ? 0 : onuCount;
+            this.routes = new IndicationSubscriber[this.ponCount * this.onuCount][];
+
+            Map<List<IndicationSubscriber>, IndicationSubscriber[]> shared = new HashMap<>();
+            for (int pon = 0; pon < this.ponCount; pon++) {
+                for (int onu = 0; onu < this.onuCount; onu++) {
+                    IndicationSubscriber[] matching = match(ponStart + pon, onuStart + onu);
+                    routes[pon * this.onuCount + onu] = shared.computeIfAbsent(Arrays.asList(matching), k -> matching);
+                }
+            }
+        }
+
+        IndicationSubscriber[] route(int ponPort, int onuId) {
+            int pon = ponPort - ponStart;
+            int onu = onuId - onuStart;
+            if (pon >= 0 && pon < ponCount && onu >= 0 && onu < onuCount) {
+                return routes[pon * onuCount + onu];
+            }
+            return all.length == 0 ? NONE : match(ponPort, onuId);
+        }
+
+        private IndicationSubscriber[] match(int ponPort, int onuId) {
+            List<IndicationSubscriber> matching = new ArrayList<>();
+            for (IndicationSubscriber subscriber : all) {
+                IndicationShard shard = subscriber.getShard();
+                if (shard == null || shard.matches(ponPort, onuId)) {
+                    matching.add(subscriber);
+                }
+            }
+            return matching.isEmpty() ? NONE : matching.toArray(NONE);
+        }
+    }
+}
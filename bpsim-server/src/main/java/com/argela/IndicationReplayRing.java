@@ -0,0 +1,143 @@
+package com.argela;
+
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongFunction;
+
+/**
+ * Fixed-size ring of the most recent indications, each stamped with a monotonic sequence number,
+ * so a reconnecting stream can ask for everything after the last sequence it received.
+ * All slots are allocated up front; appending is lock-free and only stores references.
+ * A slot is valid for a sequence only while its sequence marker matches, so readers never
+ * return an entry that a concurrent writer has already overwritten.
+ */
+public class IndicationReplayRing {
+    private final int capacity;
+    private final int mask;
+    private final long maxAgeNanos;
+
+    private final AtomicLong lastSequence = new AtomicLong();
+    private final AtomicLongArray sequences;
+    private final AtomicReferenceArray<EncodedIndication> entries;
+    private final long[] timestamps;
+    private final int[] ponPorts;
+    private final int[] onuIds;
+
+    /**
+     * Creates a ring
+     * @param capacity Number of indications kept, rounded up to a power of two
+     * @param maxAgeMs Indications older than this are not replayed, 0 for no age limit
+     */
+    public IndicationReplayRing(int capacity, long maxAgeMs) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Replay ring capacity must be positive: " + capacity);
+        }
+        int size = 1;
+        while (size < capacity && size < 1 << 30) {
+            size <<= 1;
+        }
+        this.capacity = size;
+        this.mask = this.capacity - 1;
+        this.maxAgeNanos = maxAgeMs > 0 ? maxAgeMs * 1_000_000L : Long.MAX_VALUE;
+        this.sequences = new AtomicLongArray(this.capacity);
+        this.entries = new AtomicReferenceArray<>(this.capacity);
+        this.timestamps = new long[this.capacity];
+        this.ponPorts = new int[this.capacity];
+        this.onuIds = new int[this.capacity];
+    }
+
+    /**
+     * Assigns the next sequence number, encodes the indication with it and stores it
+     * @param ponPort PON port the indication belongs to
+     * @param onuId ONU ID the indication belongs to
+     * @param encoder Encodes the indication carrying the given sequence number
+     * @return The stored indication
+     */
+    public EncodedIndication append(int ponPort, int onuId, LongFunction<EncodedIndication> encoder) {
+        long sequence = lastSequence.incrementAndGet();
+        EncodedIndication indication = encoder.apply(sequence);
+        int slot = (int) (sequence & mask);
+
+        // Invalidate the slot first so readers cannot pair the old entry with the new metadata
+        sequences.set(slot, 0);
+        entries.set(slot, indication);
+        timestamps[slot] = System.nanoTime();
+        ponPorts[slot] = ponPort;
+        onuIds[slot] = onuId;
+        sequences.set(slot, sequence);
+        return indication;
+    }
+
+    /**
+     * Collects the stored indications after a sequence number that belong to a shard
+     * @param afterSequence Last sequence number the stream received
+     * @param shard The shard of the stream, null for everything
+     * @return Indications in sequence order
+     */
+    public List<EncodedIndication> since(long afterSequence, IndicationShard shard) {
+        long last = lastSequence.get();
+        long first = Math.max(afterSequence + 1, last - capacity + 1);
+        long now = System.nanoTime();
+        List<EncodedIndication> result = new ArrayList<>((int) Math.max(0, Math.min(capacity, last - first + 1)));
+        for (long sequence = Math.max(first, 1); sequence <= last; sequence++) {
+            int slot = (int) (sequence & mask);
+            if (sequences.get(slot) != sequence) {
+                continue;
+            }
+            EncodedIndication indication = entries.get(slot);
+            long timestamp = timestamps[slot];
+            int ponPort = ponPorts[slot];
+            int onuId = onuIds[slot];
+            // Re-check: the slot may have been reused while it was read
+            VarHandle.loadLoadFence();
+            if (sequences.get(slot) != sequence || now - timestamp > maxAgeNanos) {
+                continue;
+            }
+            if (shard == null || shard.matches(ponPort, onuId)) {
+                result.add(indication);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the oldest sequence number that can still be replayed
+     * @return Oldest replayable sequence, or last sequence + 1 if nothing is stored
+     */
+    public long getOldestSequence() {
+        long last = lastSequence.get();
+        long now = System.nanoTime();
+        for (long sequence = Math.max(1, last - capacity + 1); sequence <= last; sequence++) {
+            int slot = (int) (sequence & mask);
+            if (sequences.get(slot) == sequence && now - timestamps[slot] <= maxAgeNanos) {
+                return sequence;
+            }
+        }
+        return last + 1;
+    }
+
+    public long getLastSequence() { return lastSequence.get(); }
+    public int getCapacity() { return capacity; }
+
+    /**
+     * Gets the ring status
+     * @return Status map
+     */
+    public Map<String, Object> getStatus() {
+        long last = getLastSequence();
+        long oldest = getOldestSequence();
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("capacity", capacity);
+        status.put("maxAgeMs", maxAgeNanos == Long.MAX_VALUE ? 0 : maxAgeNanos / 1_000_000L);
+        status.put("lastSequence", last);
+        status.put("oldestSequence", oldest);
+        status.put("replayable", last - oldest + 1);
+        return status;
+    }
+}
@@ -0,0 +1,222 @@
+package com.argela;
+
+import io.grpc.Context;
+import io.grpc.Metadata;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * The slice of the OLT an indication stream subscribes to.
+ * A stream may restrict itself to a set of PON ports, an ONU ID range and/or one hash partition
+ * of the (PON, ONU) space; several streams with disjoint shards can consume a large OLT in parallel.
+ * Shards are declared with gRPC metadata headers when the stream is opened.
+ * <p>
+ * PON ports are kept as sorted, merged ranges rather than one entry per port, so the size of a shard
+ * depends on the header, not on the width of the ranges it declares.
+ */
+public class IndicationShard {
+    /** PON ports, e.g. "0,2,4-7" */
+    public static final Metadata.Key<String> PON_HEADER =
+            Metadata.Key.of("x-bpsim-pon", Metadata.ASCII_STRING_MARSHALLER);
+    /** ONU ID range, e.g. "0-63" */
+    public static final Metadata.Key<String> ONU_HEADER =
+            Metadata.Key.of("x-bpsim-onu", Metadata.ASCII_STRING_MARSHALLER);
+    /** Hash partition as index/count, e.g. "1/4" */
+    public static final Metadata.Key<String> PARTITION_HEADER =
+            Metadata.Key.of("x-bpsim-partition", Metadata.ASCII_STRING_MARSHALLER);
+
+    /** Shard of the current call, set by {@link IndicationShardInterceptor} */
+    static final Context.Key<IndicationShard> CONTEXT_KEY = Context.key("bpsim-indication-shard");
+
+    // Sorted, disjoint and non-adjacent {start, end} ranges; null for all ports
+    private final int[][] ponRanges;
+    private final Integer onuIdStart;
+    private final Integer onuIdEnd;
+    private final int partitionIndex;
+    private final int partitionCount;
+
+    /**
+     * Creates a shard
+     * @param ponRanges PON port ranges as inclusive {start, end} pairs, in any order; null or empty for all ports
+     * @param onuIdStart First ONU ID, null for no lower bound
+     * @param onuIdEnd Last ONU ID, null for no upper bound
+     * @param partitionIndex Hash partition of this shard
+     * @param partitionCount Number of hash partitions
+     */
+    public IndicationShard(List<int[]> ponRanges, Integer onuIdStart, Integer onuIdEnd,
+                           int partitionIndex, int partitionCount) {
+        if (partitionCount < 1 || partitionIndex < 0 || partitionIndex >= partitionCount) {
+            throw new IllegalArgumentException("Invalid partition " + partitionIndex + "/" + partitionCount);
+        }
+        if (onuIdStart != null && onuIdEnd != null && onuIdStart > onuIdEnd) {
+            throw new IllegalArgumentException("Invalid ONU range " + onuIdStart + "-" + onuIdEnd);
+        }
+        this.ponRanges = ponRanges == null || ponRanges.isEmpty() ? null : merge(ponRanges);
+        this.onuIdStart = onuIdStart;
+        this.onuIdEnd = onuIdEnd;
+        this.partitionIndex = partitionIndex;
+        this.partitionCount = partitionCount;
+    }
+
+    /**
+     * Builds the shard declared by the call headers
+     * @param headers The call headers
+     * @return The shard, or null if the call does not declare one
+     * @throws IllegalArgumentException if a header is malformed
+     */
+    public static IndicationShard fromHeaders(Metadata headers) {
+        String pon = headers.get(PON_HEADER);
+        String onu = headers.get(ONU_HEADER);
+        String partition = headers.get(PARTITION_HEADER);
+        if (pon == null && onu == null && partition == null) {
+            return null;
+        }
+
+        try {
+            List<int[]> ponRanges = null;
+            if (pon != null) {
+                ponRanges = new ArrayList<>();
+                for (String part : pon.split(",")) {
+                    ponRanges.add(parseRange(part));
+                }
+            }
+
+            Integer onuIdStart = null;
+            Integer onuIdEnd = null;
+            if (onu != null) {
+                int[] range = parseRange(onu);
+                onuIdStart = range[0];
+                onuIdEnd = range[1];
+            }
+
+            int partitionIndex = 0;
+            int partitionCount = 1;
+            if (partition != null) {
+                String[] parts = partition.trim().split("/");
+                if (parts.length != 2) {
+                    throw new IllegalArgumentException("Partition must be index/count: " + partition);
+                }
+                partitionIndex = Integer.parseInt(parts[0].trim());
+                partitionCount = Integer.parseInt(parts[1].trim());
+            }
+
+            return new IndicationShard(ponRanges, onuIdStart, onuIdEnd, partitionIndex, partitionCount);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid shard header: " + e.getMessage(), e);
+        }
+    }
+
+    private static int[] parseRange(String range) {
+        String[] parts = range.trim().split("-");
+        int start = Integer.parseInt(parts[0].trim());
+        int end = parts.length > 1 ? Integer.parseInt(parts[1].trim()) : start;
+        if (start > end) {
+            throw new IllegalArgumentException("Invalid range: " + range);
+        }
+        return new int[]{start, end};
+    }
+
+    private static int[][] merge(List<int[]> ranges) {
+        int[][] sorted = ranges.toArray(new int[0][]);
+        Arrays.sort(sorted, Comparator.comparingInt(range -> range[0]));
+        List<int[]> merged = new ArrayList<>();
+        for (int[] range : sorted) {
+            if (range[0] > range[1]) {
+                throw new IllegalArgumentException("Invalid range: " + range[0] + "-" + range[1]);
+            }
+            int[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && (long) range[0] <= (long) last[1] + 1) {
+                last[1] = Math.max(last[1], range[1]);
+            } else {
+                merged.add(new int[]{range[0], range[1]});
+            }
+        }
+        return merged.toArray(new int[0][]);
+    }
+
+    private boolean coversPon(int ponPort) {
+        int low = 0;
+        int high = ponRanges.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (ponPort < ponRanges[mid][0]) {
+                high = mid - 1;
+            } else if (ponPort > ponRanges[mid][1]) {
+                low = mid + 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether indications of the given ONU belong to this shard
+     * @param ponPort PON port
+     * @param onuId ONU ID
+     * @return true if the stream should receive them
+     */
+    public boolean matches(int ponPort, int onuId) {
+        if (ponRanges != null && !coversPon(ponPort)) return false;
+        if (onuIdStart != null && onuId < onuIdStart) return false;
+        if (onuIdEnd != null && onuId > onuIdEnd) return false;
+        return partitionCount == 1 || partition(ponPort, onuId, partitionCount) == partitionIndex;
+    }
+
+    /**
+     * Checks whether PON level indications (no ONU) of the given port belong to this shard
+     * @param ponPort PON port
+     * @return true if the shard covers the PON port
+     */
+    public boolean matchesPon(int ponPort) {
+        return ponRanges == null || coversPon(ponPort);
+    }
+
+    /**
+     * Gets the hash partition of an ONU, spreading neighbouring ONUs over all partitions
+     * @param ponPort PON port
+     * @param onuId ONU ID
+     * @param partitionCount Number of partitions
+     * @return Partition index between 0 and partitionCount - 1
+     */
+    public static int partition(int ponPort, int onuId, int partitionCount) {
+        int h = ponPort * 0x9E3779B1 + onuId;
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        return Math.floorMod(h, partitionCount);
+    }
+
+    /**
+     * Gets the PON ports of the shard in header syntax
+     * @return Merged ranges, e.g. "0,2,4-7", or null for all ports
+     */
+    public String getPonPorts() {
+        if (ponRanges == null) {
+            return null;
+        }
+        StringJoiner joiner = new StringJoiner(",");
+        for (int[] range : ponRanges) {
+            joiner.add(range[0] == range[1] ? String.valueOf(range[0]) : range[0] + "-" + range[1]);
+        }
+        return joiner.toString();
+    }
+    public Integer getOnuIdStart() { return onuIdStart; }
+    public Integer getOnuIdEnd() { return onuIdEnd; }
+    public int getPartitionIndex() { return partitionIndex; }
+    public int getPartitionCount() { return partitionCount; }
+
+    @Override
+    public String toString() {
+        return "IndicationShard{" +
+                "ponPorts=" + getPonPorts() +
+                ", onuIdStart=" + onuIdStart +
+                ", onuIdEnd=" + onuIdEnd +
+                ", partition=" + partitionIndex + "/" + partitionCount +
+                '}';
+    }
+}
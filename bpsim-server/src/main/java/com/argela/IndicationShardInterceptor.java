@@ -0,0 +1,90 @@
+package com.argela;
+
+import io.grpc.Context;
+import io.grpc.Contexts;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Reads the shard, client name and resume headers of indication stream calls and exposes them through
+ * the gRPC context. Calls with malformed shard or resume headers are rejected with INVALID_ARGUMENT, packet
+ * streams resuming from a sequence the simulator has not reached (it restarted and numbering started over)
+ * with OUT_OF_RANGE.
+ */
+@ApplicationScoped
+public class IndicationShardInterceptor implements ServerInterceptor {
+    /** Free-form client name shown in the stream list, e.g. "adapter-1" */
+    public static final Metadata.Key<String> CLIENT_HEADER =
+            Metadata.Key.of("x-bpsim-client", Metadata.ASCII_STRING_MARSHALLER);
+
+    /** Last sequence number (PacketIndication cookie) received before reconnecting, e.g. "123456" */
+    public static final Metadata.Key<String> RESUME_HEADER =
+            Metadata.Key.of("x-bpsim-resume-from", Metadata.ASCII_STRING_MARSHALLER);
+
+    /** Client name of the current call */
+    static final Context.Key<String> CLIENT_KEY = Context.key("bpsim-indication-client");
+
+    /** Sequence number the current call resumes from */
+    static final Context.Key<Long> RESUME_KEY = Context.key("bpsim-indication-resume");
+
+    @Inject
+    IndicationDispatcher indicationDispatcher;
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call, Metadata headers,
+                                                                 ServerCallHandler<ReqT, RespT> next) {
+        String method = call.getMethodDescriptor().getBareMethodName();
+        if (method == null || !method.startsWith("Enable") || !method.endsWith("Indication")) {
+            return next.startCall(call, headers);
+        }
+
+        IndicationShard shard;
+        Long resumeFrom;
+        try {
+            shard = IndicationShard.fromHeaders(headers);
+            resumeFrom = parseResume(headers.get(RESUME_HEADER));
+        } catch (IllegalArgumentException e) {
+            call.close(Status.INVALID_ARGUMENT.withDescription(e.getMessage()), new Metadata());
+            return new ServerCall.Listener<>() { };
+        }
+        Long lastSequence = indicationDispatcher.getLastPacketSequence();
+        if (resumeFrom != null && lastSequence != null && resumeFrom > lastSequence
+                && "EnablePacketIndication".equals(method)) {
+            call.close(Status.OUT_OF_RANGE.withDescription("Resume sequence " + resumeFrom
+                    + " is ahead of the last packet indication " + lastSequence
+                    + ", sequences started over; reconnect with x-bpsim-resume-from 0 to replay the stored ones"),
+                    new Metadata());
+            return new ServerCall.Listener<>() { };
+        }
+        String client = headers.get(CLIENT_HEADER);
+        if (shard == null && client == null && resumeFrom == null) {
+            return next.startCall(call, headers);
+        }
+
+        Context context = Context.current()
+                .withValue(IndicationShard.CONTEXT_KEY, shard)
+                .withValue(CLIENT_KEY, client)
+                .withValue(RESUME_KEY, resumeFrom);
+        return Contexts.interceptCall(context, call, headers, next);
+    }
+
+    private static Long parseResume(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            long sequence = Long.parseLong(value.trim());
+            if (sequence < 0) {
+                throw new IllegalArgumentException("Resume sequence must not be negative: " + value);
+            }
+            return sequence;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid resume sequence: " + value, e);
+        }
+    }
+}
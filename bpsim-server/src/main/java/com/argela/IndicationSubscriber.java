@@ -0,0 +1,316 @@
+package com.argela;
+
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A single indication stream subscriber with its own bounded queue and serial drainer.
+ * Queued indications are pre-encoded and shared with the other subscribers.
+ * Producers only enqueue (lock-free, never touching the stream); the drainer writes to the stream
+ * while gRPC reports it as ready and is re-triggered by the stream's onReady handler,
+ * so one slow consumer never stalls storm workers or other subscribers.
+ */
+public class IndicationSubscriber {
+    private static final Logger logger = LoggerFactory.getLogger(IndicationSubscriber.class);
+
+    /**
+     * What to do when the queue of a subscriber is full
+     */
+    public enum OverflowPolicy {
+        /** Wait for space up to the block timeout, then drop the new indication */
+        BLOCK,
+        /** Drop the oldest queued indication to make room */
+        DROP_OLDEST,
+        /** Close the stream with RESOURCE_EXHAUSTED */
+        DISCONNECT
+    }
+
+    private final long id;
+    private final String kind;
+    private final String client;
+    private final IndicationShard shard;
+    private final StreamObserver<EncodedIndication> observer;
+    private final ServerCallStreamObserver<EncodedIndication> callObserver;
+    private final Executor executor;
+    private final Consumer<IndicationSubscriber> onClosed;
+    private final OverflowPolicy policy;
+    private final int capacity;
+    private final long blockTimeoutMs;
+    private final Instant connectedAt = Instant.now();
+
+    // Multi-producer queue bounded by permits, the single drainer releases a permit per polled indication
+    private final Queue<EncodedIndication> queue = new ConcurrentLinkedQueue<>();
+    private final Semaphore space;
+    private final AtomicBoolean draining = new AtomicBoolean();
+    // Replayed backlog of a resumed stream, drained before the live queue; held back until it is set
+    private volatile Queue<EncodedIndication> backlog;
+    private volatile boolean awaitingBacklog;
+    private volatile Long resumedFrom;
+    private final AtomicLong replayedCount = new AtomicLong();
+    private final AtomicBoolean closing = new AtomicBoolean();
+    private volatile boolean closed;
+
+    private final AtomicLong enqueuedCount = new AtomicLong();
+    private final AtomicLong sentCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong maxQueueDepth = new AtomicLong();
+
+    IndicationSubscriber(long id, String kind, String client, IndicationShard shard,
+                         StreamObserver<EncodedIndication> observer,
+                         Executor executor,
+                         OverflowPolicy policy, int capacity, long blockTimeoutMs,
+                         Consumer<IndicationSubscriber> onClosed) {
+        this.id = id;
+        this.kind = kind;
+        this.client = client;
+        this.shard = shard;
+        this.observer = observer;
+        this.callObserver = observer instanceof ServerCallStreamObserver<EncodedIndication> serverObserver
+                ? serverObserver : null;
+        this.executor = executor;
+        this.policy = policy;
+        this.capacity = capacity;
+        this.blockTimeoutMs = blockTimeoutMs;
+        this.onClosed = onClosed;
+        this.space = new Semaphore(capacity);
+
+        if (callObserver != null) {
+            callObserver.setOnReadyHandler(this::scheduleDrain);
+            callObserver.setOnCancelHandler(() -> {
+                logger.info("Indication stream {} cancelled by client", id);
+                close();
+            });
+        }
+    }
+
+    /**
+     * Holds the drainer back until {@link #replay} hands over the backlog, so replayed indications
+     * go out before the live ones queued meanwhile. Must be called before the subscriber is registered.
+     * @param resumeFrom Last sequence number the stream received before reconnecting
+     */
+    void awaitReplay(long resumeFrom) {
+        this.resumedFrom = resumeFrom;
+        this.awaitingBacklog = true;
+    }
+
+    /**
+     * Hands over the replayed backlog and releases the drainer. The backlog is bounded by the queue capacity
+     * like the live queue: only the newest indications that fit are kept, the older ones count as dropped.
+     * @param indications Indications to send before the live queue, in order
+     * @return Number of indications left out of the backlog
+     */
+    int replay(List<EncodedIndication> indications) {
+        int truncated = Math.max(0, indications.size() - capacity);
+        if (truncated > 0) {
+            droppedCount.addAndGet(truncated);
+            indications = indications.subList(truncated, indications.size());
+        }
+        backlog = new ArrayDeque<>(indications);
+        awaitingBacklog = false;
+        scheduleDrain();
+        return truncated;
+    }
+
+    /**
+     * Queues an indication for this subscriber, applying the overflow policy when the queue is full
+     * @param indication The indication to send
+     * @return false if the indication was dropped or the subscriber is closed
+     */
+    boolean offer(EncodedIndication indication) {
+        if (closed || closing.get()) {
+            return false;
+        }
+
+        if (!space.tryAcquire()) {
+            switch (policy) {
+                case BLOCK -> {
+                    if (!acquireBlocking()) {
+                        droppedCount.incrementAndGet();
+                        return false;
+                    }
+                }
+                case DROP_OLDEST -> {
+                    // Take the slot of the oldest indication, or a slot freed by the drainer meanwhile
+                    while (!space.tryAcquire()) {
+                        if (queue.poll() != null) {
+                            droppedCount.incrementAndGet();
+                            break;
+                        }
+                    }
+                }
+                case DISCONNECT -> {
+                    droppedCount.incrementAndGet();
+                    if (closing.compareAndSet(false, true)) {
+                        logger.warn("Indication stream {} exceeded queue capacity {}, disconnecting", id, capacity);
+                        scheduleDrain();
+                    }
+                    return false;
+                }
+            }
+        }
+
+        enqueue(indication);
+        return true;
+    }
+
+    /**
+     * Queues an indication, waiting for space instead of applying the overflow policy. For producers that pace
+     * themselves to the stream, such as the bring-up and the transport benchmark.
+     * @param indication The indication to send
+     * @param timeoutMs Longest wait for space
+     * @return false if no space was freed in time or the subscriber is closed; the caller may try again
+     * @throws InterruptedException if interrupted while waiting
+     */
+    boolean offerPaced(EncodedIndication indication, long timeoutMs) throws InterruptedException {
+        if (closed || closing.get()) {
+            return false;
+        }
+        if (!space.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS)) {
+            return false;
+        }
+        enqueue(indication);
+        return true;
+    }
+
+    private void enqueue(EncodedIndication indication) {
+        queue.offer(indication);
+        enqueuedCount.incrementAndGet();
+        maxQueueDepth.accumulateAndGet(getQueueDepth(), Math::max);
+        scheduleDrain();
+    }
+
+    private boolean acquireBlocking() {
+        try {
+            return space.tryAcquire(blockTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Starts the drainer unless it is already running or the stream cannot take more messages
+     */
+    private void scheduleDrain() {
+        if (closed || awaitingBacklog || (!isReady() && !closing.get())) {
+            return;
+        }
+        if (draining.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    /**
+     * Writes queued indications to the stream while it is ready. Only one drain runs at a time,
+     * so the (not thread-safe) stream observer is never called concurrently.
+     */
+    private void drain() {
+        try {
+            while (!closed) {
+                if (closing.get()) {
+                    fail(Status.RESOURCE_EXHAUSTED
+                            .withDescription("Indication queue overflow (capacity " + capacity + ")"));
+                    return;
+                }
+                if (!isReady()) {
+                    break;
+                }
+                Queue<EncodedIndication> replayed = backlog;
+                if (replayed != null) {
+                    EncodedIndication indication = replayed.poll();
+                    if (indication != null) {
+                        observer.onNext(indication);
+                        replayedCount.incrementAndGet();
+                        sentCount.incrementAndGet();
+                        continue;
+                    }
+                    backlog = null;
+                }
+                EncodedIndication indication = queue.poll();
+                if (indication == null) {
+                    break;
+                }
+                space.release();
+                observer.onNext(indication);
+                sentCount.incrementAndGet();
+            }
+        } catch (Exception e) {
+            logger.warn("Indication stream {} error, removing: {}", id, e.getMessage());
+            fail(Status.fromThrowable(e));
+            return;
+        } finally {
+            draining.set(false);
+        }
+
+        // Items queued or readiness regained after the last check would otherwise wait for the next offer
+        if (!queue.isEmpty() || backlog != null || closing.get()) {
+            scheduleDrain();
+        }
+    }
+
+    private void fail(Status status) {
+        close();
+        try {
+            observer.onError(status.asRuntimeException());
+        } catch (Exception ignored) {}
+    }
+
+    /**
+     * Marks the subscriber closed, drops its queue and unregisters it
+     */
+    void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        int pending = queue.size();
+        queue.clear();
+        backlog = null;
+        droppedCount.addAndGet(pending);
+        onClosed.accept(this);
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    private boolean isReady() {
+        return callObserver == null || callObserver.isReady();
+    }
+
+    public long getId() { return id; }
+    public String getKind() { return kind; }
+    public String getClient() { return client; }
+    public IndicationShard getShard() { return shard; }
+    public OverflowPolicy getPolicy() { return policy; }
+    public int getCapacity() { return capacity; }
+    public int getQueueDepth() { return capacity - space.availablePermits(); }
+    public long getMaxQueueDepth() { return maxQueueDepth.get(); }
+    public long getEnqueuedCount() { return enqueuedCount.get(); }
+    public long getSentCount() { return sentCount.get(); }
+    public long getDroppedCount() { return droppedCount.get(); }
+    public boolean isStreamReady() { return !closed && isReady(); }
+    public Long getResumedFrom() { return resumedFrom; }
+    public long getReplayedCount() { return replayedCount.get(); }
+    public int getBacklogDepth() {
+        Queue<EncodedIndication> replayed = backlog;
+        return replayed == null ? 0 : replayed.size();
+    }
+    public Instant getConnectedAt() { return connectedAt; }
+}
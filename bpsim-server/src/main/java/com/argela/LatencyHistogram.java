@@ -0,0 +1,112 @@
+package com.argela;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free log-linear latency histogram in the style of HdrHistogram.
+ * Values are recorded in microseconds; every power of two is split into 32 linear
+ * sub-buckets, so percentiles are accurate to about 3% over a range of 1us to ~12 days.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;        // 32
+    private static final int LINEAR_LIMIT = SUB_BUCKET_COUNT << 1;           // 64, recorded exactly
+    private static final int MAX_SHIFT = 35;                                 // values up to 2^41 us
+    private static final long MAX_VALUE = (1L << (MAX_SHIFT + SUB_BUCKET_BITS + 1)) - 1;
+    private static final int BUCKET_COUNT = LINEAR_LIMIT + MAX_SHIFT * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong totalMicros = new AtomicLong();
+    private final AtomicLong minMicros = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    /**
+     * Records a latency measured with System.nanoTime()
+     * @param nanos Latency in nanoseconds
+     */
+    public void recordNanos(long nanos) {
+        record(nanos / 1000);
+    }
+
+    /**
+     * Records a latency
+     * @param micros Latency in microseconds, clamped to the histogram range
+     */
+    public void record(long micros) {
+        long value = Math.min(Math.max(micros, 0), MAX_VALUE);
+        counts.incrementAndGet(indexOf(value));
+        totalCount.incrementAndGet();
+        totalMicros.addAndGet(value);
+        minMicros.accumulateAndGet(value, Math::min);
+        maxMicros.accumulateAndGet(value, Math::max);
+    }
+
+    public long getCount() {
+        return totalCount.get();
+    }
+
+    /**
+     * Gets the value at the given percentile
+     * @param percentile Percentile between 0 and 100
+     * @return Value in microseconds (middle of the matching bucket), 0 if empty
+     */
+    public long getValueAtPercentile(double percentile) {
+        long count = totalCount.get();
+        if (count == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(Math.max(midValueOf(i), minMicros.get()), maxMicros.get());
+            }
+        }
+        return maxMicros.get();
+    }
+
+    /**
+     * Builds a JSON friendly summary with count, min, mean, percentiles and max in milliseconds
+     * @return Summary map
+     */
+    public Map<String, Object> summary() {
+        long count = totalCount.get();
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", count);
+        summary.put("minMs", count == 0 ? 0.0 : toMs(minMicros.get()));
+        summary.put("meanMs", count == 0 ? 0.0 : toMs((double) totalMicros.get() / count));
+        summary.put("p50Ms", toMs(getValueAtPercentile(50)));
+        summary.put("p90Ms", toMs(getValueAtPercentile(90)));
+        summary.put("p99Ms", toMs(getValueAtPercentile(99)));
+        summary.put("p999Ms", toMs(getValueAtPercentile(99.9)));
+        summary.put("maxMs", toMs(maxMicros.get()));
+        return summary;
+    }
+
+    private static double toMs(double micros) {
+        return Math.round(micros) / 1000.0;
+    }
+
+    private static int indexOf(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+        return LINEAR_LIMIT + (shift - 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    private static long midValueOf(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int shift = (index - LINEAR_LIMIT) / SUB_BUCKET_COUNT + 1;
+        long subBucket = (index - LINEAR_LIMIT) % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+        return (subBucket << shift) + (1L << (shift - 1));
+    }
+}
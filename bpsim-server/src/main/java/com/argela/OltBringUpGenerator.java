@@ -0,0 +1,388 @@
+package com.argela;
+
+import com.google.protobuf.ByteString;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.context.ManagedExecutor;
+import org.opencord.voltha.openolt.VolthaOpenOLT.Indication;
+import org.opencord.voltha.openolt.VolthaOpenOLT.IntfIndication;
+import org.opencord.voltha.openolt.VolthaOpenOLT.OltIndication;
+import org.opencord.voltha.openolt.VolthaOpenOLT.OnuDiscIndication;
+import org.opencord.voltha.openolt.VolthaOpenOLT.OnuIndication;
+import org.opencord.voltha.openolt.VolthaOpenOLT.SerialNumber;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Drives an OLT bring-up over EnableIndication streams: olt_ind up, intf_ind up for every PON port,
+ * then onu_disc_ind for every ONU of the simulated topology, paced at a configurable rate.
+ * ActivateOnu requests are answered with onu_ind. Every indication is encoded once and
+ * only queued on the streams whose shard covers the PON port or ONU. A full stream queue
+ * holds the run back until the adapter drains it.
+ */
+@ApplicationScoped
+public class OltBringUpGenerator {
+    private static final Logger logger = LoggerFactory.getLogger(OltBringUpGenerator.class);
+    // How long one wait for stream queue space lasts before the run re-checks for cancellation
+    private static final long SEND_WAIT_MS = 100;
+
+    @ConfigProperty(name = "dhcp.bringup.auto", defaultValue = "true")
+    boolean autoBringUp;
+
+    @ConfigProperty(name = "dhcp.bringup.rate", defaultValue = "1000")
+    int defaultRate;
+
+    @ConfigProperty(name = "dhcp.bringup.vendor.id", defaultValue = "BPSM")
+    String vendorId;
+
+    @ConfigProperty(name = "dhcp.pon.port.start", defaultValue = "0")
+    int ponPortStart;
+
+    @ConfigProperty(name = "dhcp.pon.port.count", defaultValue = "16")
+    int ponPortCount;
+
+    @ConfigProperty(name = "dhcp.onu.port.start", defaultValue = "0")
+    int onuPortStart;
+
+    @ConfigProperty(name = "dhcp.onu.port.count", defaultValue = "128")
+    int onuPortCount;
+
+    @Inject
+    DeviceService deviceService;
+
+    @Inject
+    IndicationDispatcher indicationDispatcher;
+
+    @Inject
+    ManagedExecutor managedExecutor;
+
+    private final AtomicInteger runCounter = new AtomicInteger();
+    private final ConcurrentHashMap<Integer, BringUp> runs = new ConcurrentHashMap<>();
+    private final Set<Long> activatedOnus = ConcurrentHashMap.newKeySet();
+    private final AtomicLong onuIndicationCount = new AtomicLong();
+
+    /**
+     * Checks whether new EnableIndication streams get a bring-up of their own
+     * @return true if bring-up starts on subscribe
+     */
+    public boolean isAutoBringUp() {
+        return autoBringUp;
+    }
+
+    /**
+     * Starts a bring-up towards a single, newly connected indication stream
+     * @param subscriber The stream to bring up
+     * @return The started bring-up
+     * @throws IllegalArgumentException if the configured rate is not greater than zero
+     */
+    public BringUp startBringUp(IndicationSubscriber subscriber) {
+        return start(List.of(subscriber), defaultRate);
+    }
+
+    /**
+     * Starts a bring-up towards every connected EnableIndication stream
+     * @param rate ONU discoveries per second, null for the configured default
+     * @return The started bring-up
+     * @throws IllegalArgumentException if the rate is not greater than zero
+     * @throws IllegalStateException if no indication stream is connected
+     */
+    public BringUp startBringUp(Integer rate) {
+        if (rate != null && rate <= 0) {
+            throw new IllegalArgumentException("rate must be greater than zero, got: " + rate);
+        }
+        List<IndicationSubscriber> targets = indicationDispatcher.getSubscribers(IndicationDispatcher.KIND_INDICATION);
+        if (targets.isEmpty()) {
+            throw new IllegalStateException("No EnableIndication stream is connected");
+        }
+        return start(targets, rate != null ? rate : defaultRate);
+    }
+
+    private BringUp start(List<IndicationSubscriber> targets, int rate) {
+        // The pacing interval is one second divided by the rate
+        if (rate <= 0) {
+            throw new IllegalArgumentException("dhcp.bringup.rate must be greater than zero, got: " + rate);
+        }
+        TreeMap<Integer, TreeSet<Integer>> topology = collectTopology();
+        int onuCount = topology.values().stream().mapToInt(Set::size).sum();
+        BringUp run = new BringUp(runCounter.incrementAndGet(), targets, rate, topology.size(), onuCount);
+        runs.put(run.id, run);
+        pruneFinishedRuns();
+
+        logger.info("Starting OLT bring-up {} towards streams {} - PON ports: {}, ONUs: {}, rate: {}/s",
+                run.id, run.streamIds, topology.size(), onuCount, rate);
+        managedExecutor.runAsync(() -> run(run, topology));
+        return run;
+    }
+
+    /**
+     * Gets the (PON port, ONU IDs) layout of the simulated devices, or the configured ranges when there are none
+     * @return ONU IDs per PON port, both in ascending order
+     */
+    private TreeMap<Integer, TreeSet<Integer>> collectTopology() {
+        TreeMap<Integer, TreeSet<Integer>> topology = new TreeMap<>();
+        for (DeviceInfo device : deviceService.getAllDevices()) {
+            topology.computeIfAbsent(device.getPonPort(), k -> new TreeSet<>()).add(device.getOnuId());
+        }
+        if (topology.isEmpty()) {
+            for (int pon = ponPortStart; pon < ponPortStart + ponPortCount; pon++) {
+                TreeSet<Integer> onus = topology.computeIfAbsent(pon, k -> new TreeSet<>());
+                for (int onu = onuPortStart; onu < onuPortStart + onuPortCount; onu++) {
+                    onus.add(onu);
+                }
+            }
+        }
+        return topology;
+    }
+
+    private void run(BringUp run, TreeMap<Integer, TreeSet<Integer>> topology) {
+        try {
+            run.oltSent = send(run, EncodedIndication.of(Indication.newBuilder()
+                    .setOltInd(OltIndication.newBuilder().setOperState("up"))
+                    .build()), null, null);
+
+            for (int pon : topology.keySet()) {
+                if (send(run, EncodedIndication.of(Indication.newBuilder()
+                        .setIntfInd(IntfIndication.newBuilder().setIntfId(pon).setOperState("up"))
+                        .build()), pon, null)) {
+                    run.ponSent.incrementAndGet();
+                }
+            }
+
+            // Paced against the start time so that sleep granularity does not lower high rates
+            long intervalNanos = 1_000_000_000L / run.rate;
+            long startNanos = System.nanoTime();
+            long sent = 0;
+            for (Map.Entry<Integer, TreeSet<Integer>> entry : topology.entrySet()) {
+                int pon = entry.getKey();
+                for (int onu : entry.getValue()) {
+                    if (run.isStopped()) {
+                        run.finish(BringUp.STATUS_CANCELLED);
+                        logger.info("OLT bring-up {} stopped after {} ONU discoveries", run.id, run.onuDiscSent.get());
+                        return;
+                    }
+                    long aheadNanos = startNanos + sent * intervalNanos - System.nanoTime();
+                    if (aheadNanos > 1_000_000L) {
+                        LockSupport.parkNanos(aheadNanos);
+                    }
+                    if (send(run, EncodedIndication.of(Indication.newBuilder()
+                            .setOnuDiscInd(OnuDiscIndication.newBuilder()
+                                    .setIntfId(pon)
+                                    .setSerialNumber(serialNumber(pon, onu)))
+                            .build()), pon, onu)) {
+                        run.onuDiscSent.incrementAndGet();
+                    }
+                    sent++;
+                }
+            }
+
+            run.finish(BringUp.STATUS_COMPLETED);
+            logger.info("OLT bring-up {} completed - PON ports: {}, ONU discoveries: {}, duration: {}ms",
+                    run.id, run.ponSent.get(), run.onuDiscSent.get(),
+                    run.endTime.toEpochMilli() - run.startTime.toEpochMilli());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            run.finish(BringUp.STATUS_CANCELLED);
+        } catch (Exception e) {
+            run.finish(BringUp.STATUS_ERROR);
+            logger.error("OLT bring-up {} failed: {}", run.id, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Queues an indication on the targeted streams whose shard covers it. A full stream is waited for
+     * rather than made to evict queued indications, so a slow adapter slows the bring-up down instead of
+     * losing discoveries.
+     * @param ponPort PON port, null for OLT level indications
+     * @param onuId ONU ID, null for PON level indications
+     * @return true if every covering stream took the indication
+     */
+    private boolean send(BringUp run, EncodedIndication indication, Integer ponPort, Integer onuId)
+            throws InterruptedException {
+        boolean delivered = true;
+        for (IndicationSubscriber subscriber : run.targets) {
+            IndicationShard shard = subscriber.getShard();
+            if (shard != null && ponPort != null
+                    && !(onuId == null ? shard.matchesPon(ponPort) : shard.matches(ponPort, onuId))) {
+                continue;
+            }
+            boolean queued = false;
+            while (!queued && !subscriber.isClosed() && !run.cancelled) {
+                queued = subscriber.offerPaced(indication, SEND_WAIT_MS);
+            }
+            if (!queued) {
+                run.rejected.incrementAndGet();
+                delivered = false;
+            }
+        }
+        return delivered;
+    }
+
+    /**
+     * Answers an ActivateOnu request with an onu_ind on the indication streams covering the ONU
+     * @param ponPort PON port of the ONU
+     * @param onuId ONU ID
+     * @param serialNumber Serial number from the request, generated if empty
+     */
+    public void activateOnu(int ponPort, int onuId, SerialNumber serialNumber) {
+        activatedOnus.add(((long) ponPort << 32) | (onuId & 0xFFFFFFFFL));
+        if (!indicationDispatcher.hasSubscribers(IndicationDispatcher.KIND_INDICATION, ponPort, onuId)) {
+            return;
+        }
+        SerialNumber serial = serialNumber == null || serialNumber.getVendorId().isEmpty()
+                ? serialNumber(ponPort, onuId) : serialNumber;
+        indicationDispatcher.publish(IndicationDispatcher.KIND_INDICATION, EncodedIndication.of(Indication.newBuilder()
+                .setOnuInd(OnuIndication.newBuilder()
+                        .setIntfId(ponPort)
+                        .setOnuId(onuId)
+                        .setOperState("up")
+                        .setAdminState("up")
+                        .setSerialNumber(serial))
+                .build()), ponPort, onuId);
+        onuIndicationCount.incrementAndGet();
+    }
+
+    /**
+     * Builds the serial number of a simulated ONU: the configured vendor ID followed by PON port and ONU ID
+     * @param ponPort PON port
+     * @param onuId ONU ID
+     * @return Serial number, unique per (PON port, ONU ID)
+     */
+    public SerialNumber serialNumber(int ponPort, int onuId) {
+        int specific = (ponPort << 16) | (onuId & 0xFFFF);
+        return SerialNumber.newBuilder()
+                .setVendorId(ByteString.copyFrom(vendorId, StandardCharsets.US_ASCII))
+                .setVendorSpecific(ByteString.copyFrom(new byte[]{
+                        (byte) (specific >>> 24), (byte) (specific >>> 16), (byte) (specific >>> 8), (byte) specific}))
+                .build();
+    }
+
+    /**
+     * Stops every running bring-up
+     * @return Number of stopped bring-ups
+     */
+    public int stopAll() {
+        int stopped = 0;
+        for (BringUp run : runs.values()) {
+            if (run.isRunning()) {
+                run.cancelled = true;
+                stopped++;
+            }
+        }
+        return stopped;
+    }
+
+    /**
+     * Gets the bring-up status: recent runs and ONU activations
+     * @return Status map
+     */
+    public Map<String, Object> getStatus() {
+        List<BringUp> recent = new ArrayList<>(runs.values());
+        recent.sort((a, b) -> Integer.compare(b.id, a.id));
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("autoBringUp", autoBringUp);
+        status.put("defaultRate", defaultRate);
+        status.put("activatedOnus", activatedOnus.size());
+        status.put("onuIndications", onuIndicationCount.get());
+        status.put("runs", recent);
+        return status;
+    }
+
+    private void pruneFinishedRuns() {
+        if (runs.size() <= 16) {
+            return;
+        }
+        runs.values().stream()
+                .filter(run -> !run.isRunning())
+                .sorted((a, b) -> Integer.compare(a.id, b.id))
+                .limit(runs.size() - 16)
+                .forEach(run -> runs.remove(run.id));
+    }
+
+    /**
+     * A single bring-up run and its progress
+     */
+    public static class BringUp {
+        public static final String STATUS_RUNNING = "running";
+        public static final String STATUS_COMPLETED = "completed";
+        public static final String STATUS_CANCELLED = "cancelled";
+        public static final String STATUS_ERROR = "error";
+
+        private final int id;
+        private final List<IndicationSubscriber> targets;
+        private final List<Long> streamIds;
+        private final int rate;
+        private final int ponCount;
+        private final int onuCount;
+        private final Instant startTime = Instant.now();
+        private volatile Instant endTime;
+        private volatile String status = STATUS_RUNNING;
+        private volatile boolean cancelled;
+        private volatile boolean oltSent;
+        private final AtomicInteger ponSent = new AtomicInteger();
+        private final AtomicInteger onuDiscSent = new AtomicInteger();
+        private final AtomicInteger rejected = new AtomicInteger();
+        // Dropped count of the target streams when the run started, and the drops during the run once finished
+        private final long droppedBefore;
+        private volatile Long droppedDuringRun;
+
+        BringUp(int id, List<IndicationSubscriber> targets, int rate, int ponCount, int onuCount) {
+            this.id = id;
+            this.targets = List.copyOf(targets);
+            this.streamIds = targets.stream().map(IndicationSubscriber::getId).toList();
+            this.rate = rate;
+            this.ponCount = ponCount;
+            this.onuCount = onuCount;
+            this.droppedBefore = streamDrops();
+        }
+
+        private long streamDrops() {
+            return targets.stream().mapToLong(IndicationSubscriber::getDroppedCount).sum();
+        }
+
+        boolean isStopped() {
+            return cancelled || targets.stream().allMatch(IndicationSubscriber::isClosed);
+        }
+
+        void finish(String status) {
+            this.droppedDuringRun = streamDrops() - droppedBefore;
+            this.status = status;
+            this.endTime = Instant.now();
+        }
+
+        public boolean isRunning() { return STATUS_RUNNING.equals(status); }
+        public int getId() { return id; }
+        public List<Long> getStreamIds() { return streamIds; }
+        public int getRate() { return rate; }
+        public int getPonCount() { return ponCount; }
+        public int getOnuCount() { return onuCount; }
+        public Instant getStartTime() { return startTime; }
+        public Instant getEndTime() { return endTime; }
+        public String getStatus() { return status; }
+        public boolean isOltSent() { return oltSent; }
+        public int getPonSent() { return ponSent.get(); }
+        public int getOnuDiscSent() { return onuDiscSent.get(); }
+        /** Indications not queued on a covering stream because it closed or the run was stopped */
+        public int getRejected() { return rejected.get(); }
+        /** Indications the target streams dropped while the run was going, e.g. evicted by other traffic */
+        public long getDropped() {
+            Long dropped = droppedDuringRun;
+            return dropped != null ? dropped : streamDrops() - droppedBefore;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.argela;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import org.opencord.voltha.openolt.VolthaOpenOLT.Indication;
+import org.opencord.voltha.openolt.VolthaOpenOLT.PacketIndication;
+
+import java.io.IOException;
+
+/**
+ * Pre-encoded per-device fields of a packet indication (interface, GEM port, flow, ONU, UNI).
+ * Sending a packet only appends the frame to the cached prefix and wraps it in the
+ * Indication envelope, instead of rebuilding the PacketIndication for every packet.
+ */
+final class PacketIndicationTemplate {
+    private static final int PKT_IND_TAG_SIZE = CodedOutputStream.computeTagSize(Indication.PKT_IND_FIELD_NUMBER);
+
+    private final int ponPort;
+    private final int gemPort;
+    private final int onuId;
+    private final int uniId;
+    private final int vlanId;
+    private final byte[] prefix;
+
+    private PacketIndicationTemplate(DeviceInfo device, byte[] prefix) {
+        this.ponPort = device.getPonPort();
+        this.gemPort = device.getGemPort();
+        this.onuId = device.getOnuId();
+        this.uniId = device.getUniId();
+        this.vlanId = device.getVlanId();
+        this.prefix = prefix;
+    }
+
+    /**
+     * Builds the template of a device
+     * @param device The device the packets belong to
+     * @return The template
+     */
+    static PacketIndicationTemplate of(DeviceInfo device) {
+        PacketIndication.Builder pktBuilder = PacketIndication.newBuilder()
+                .setIntfType("pon")
+                .setIntfId(device.getPonPort())
+                .setGemportId(device.getGemPort());
+
+        // Add optional fields with control
+        if (device.getOnuId() > 0) {
+            pktBuilder.setOnuId(device.getOnuId());
+        }
+        if (device.getUniId() >= 0) {
+            pktBuilder.setUniId(device.getUniId());
+        }
+        if (device.getPonPort() > 0) {
+            pktBuilder.setPortNo(device.getPonPort());
+        }
+
+        pktBuilder.setFlowId(1000 + device.getVlanId());
+
+        return new PacketIndicationTemplate(device, pktBuilder.build().toByteArray());
+    }
+
+    /**
+     * Checks whether the template still reflects the device's interface fields
+     * @param device The device to compare
+     * @return true if the template can be reused
+     */
+    boolean matches(DeviceInfo device) {
+        return ponPort == device.getPonPort() && gemPort == device.getGemPort() &&
+                onuId == device.getOnuId() && uniId == device.getUniId() && vlanId == device.getVlanId();
+    }
+
+    /**
+     * Encodes an Indication carrying the given frame in a single pass
+     * @param pkt The Ethernet frame
+     * @return The encoded indication
+     */
+    EncodedIndication encode(byte[] pkt) {
+        return encode(pkt, 0);
+    }
+
+    /**
+     * Encodes an Indication carrying the given frame, with the replay sequence number in the cookie
+     * @param pkt The Ethernet frame
+     * @param sequence Replay sequence number, 0 to leave the cookie unset
+     * @return The encoded indication
+     */
+    EncodedIndication encode(byte[] pkt, long sequence) {
+        int packetIndicationSize = prefix.length +
+                CodedOutputStream.computeByteArraySize(PacketIndication.PKT_FIELD_NUMBER, pkt) +
+                (sequence != 0 ? CodedOutputStream.computeFixed64Size(PacketIndication.COOKIE_FIELD_NUMBER, sequence) : 0);
+        byte[] buffer = new byte[PKT_IND_TAG_SIZE +
+                CodedOutputStream.computeUInt32SizeNoTag(packetIndicationSize) + packetIndicationSize];
+
+        try {
+            CodedOutputStream out = CodedOutputStream.newInstance(buffer);
+            out.writeTag(Indication.PKT_IND_FIELD_NUMBER, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+            out.writeUInt32NoTag(packetIndicationSize);
+            out.writeRawBytes(prefix);
+            if (sequence != 0) {
+                out.writeFixed64(PacketIndication.COOKIE_FIELD_NUMBER, sequence);
+            }
+            out.writeByteArray(PacketIndication.PKT_FIELD_NUMBER, pkt);
+            out.checkNoSpaceLeft();
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to encode packet indication", e);
+        }
+        return new EncodedIndication(buffer);
+    }
+}
@@ -0,0 +1,121 @@
+package com.argela;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.websocket.OnClose;
+import jakarta.websocket.OnError;
+import jakarta.websocket.OnOpen;
+import jakarta.websocket.Session;
+import jakarta.websocket.server.ServerEndpoint;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * WebSocket endpoint pushing the {@code GET /dhcp/stats} statistics, with breakdowns and the latest history
+ * sample, each time {@link DhcpStatistics} records a sample. The frame is the same document as the REST
+ * response plus {@code "type": "stats"}, so both report the same completion rate.
+ * <p>
+ * A snapshot is built once per sample and shared by all sessions. A session whose previous snapshot is still
+ * being written skips the sample, so a slow client only ever sees the latest figures.
+ */
+@ServerEndpoint("/ws/stats")
+@ApplicationScoped
+public class StatsWebSocket {
+    private static final Logger logger = LoggerFactory.getLogger(StatsWebSocket.class);
+
+    // Sessions and whether a snapshot is being written to them
+    private static final Map<Session, AtomicBoolean> sessions = new ConcurrentHashMap<>();
+
+    @Inject
+    DhcpStatistics statistics;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    /**
+     * Pushes the statistics after every recorded sample
+     */
+    @PostConstruct
+    void listen() {
+        statistics.addSampleListener(this::publish);
+    }
+
+    /**
+     * Handles new WebSocket connection and sends the current statistics right away
+     * @param session The WebSocket session that opened
+     */
+    @OnOpen
+    public void onOpen(Session session) {
+        AtomicBoolean sending = new AtomicBoolean();
+        sessions.put(session, sending);
+        try {
+            send(session, sending, createMessage());
+        } catch (Exception e) {
+            logger.error("Error while sending WebSocket statistics", e);
+        }
+        logger.debug("Statistics WebSocket client connected");
+    }
+
+    /**
+     * Handles WebSocket connection closure
+     * @param session The WebSocket session that closed
+     */
+    @OnClose
+    public void onClose(Session session) {
+        sessions.remove(session);
+        logger.debug("Statistics WebSocket client disconnected");
+    }
+
+    @OnError
+    public void onError(Session session, Throwable throwable) {
+        sessions.remove(session);
+        logger.error("Statistics WebSocket error for session: {}", throwable.getMessage(), throwable);
+    }
+
+    /**
+     * Builds one snapshot and sends it to every session that is not busy. Runs on the statistics ticker thread.
+     */
+    private void publish() {
+        if (sessions.isEmpty()) {
+            return;
+        }
+        try {
+            String json = createMessage();
+            sessions.forEach((session, sending) -> send(session, sending, json));
+        } catch (Exception e) {
+            logger.error("Error while sending WebSocket statistics", e);
+        }
+    }
+
+    private void send(Session session, AtomicBoolean sending, String json) {
+        if (!session.isOpen() || !sending.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            session.getAsyncRemote().sendText(json, result -> {
+                sending.set(false);
+                if (!result.isOK()) {
+                    logger.debug("Statistics send to session {} failed: {}", session.getId(), result.getException().getMessage());
+                }
+            });
+        } catch (Exception e) {
+            sending.set(false);
+            logger.debug("Statistics send to session {} failed: {}", session.getId(), e.getMessage());
+        }
+    }
+
+    private String createMessage() throws Exception {
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("type", "stats");
+        message.putAll(statistics.snapshot(true, 1));
+        return objectMapper.writeValueAsString(message);
+    }
+}
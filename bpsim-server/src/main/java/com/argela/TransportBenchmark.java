@@ -0,0 +1,173 @@
+package com.argela;
+
+import com.google.protobuf.ByteString;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+import io.grpc.stub.MetadataUtils;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.opencord.voltha.openolt.OpenoltGrpc;
+import org.opencord.voltha.openolt.VolthaOpenOLT.Empty;
+import org.opencord.voltha.openolt.VolthaOpenOLT.Indication;
+import org.opencord.voltha.openolt.VolthaOpenOLT.PacketIndication;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Measures packet indication throughput of each gRPC transport.
+ * For every transport a private EnablePacketIndication stream is opened and a burst of synthetic pkt_ind
+ * is queued directly on that stream's subscriber, so connected adapters are not disturbed. The burst waits for
+ * space in the subscriber's queue rather than going through its overflow policy, so nothing is evicted by
+ * the benchmark itself. The result is the rate at which the client received the whole burst.
+ */
+@ApplicationScoped
+public class TransportBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(TransportBenchmark.class);
+
+    private static final long SUBSCRIBE_TIMEOUT_MS = 5000;
+    private static final long RECEIVE_TIMEOUT_MS = 120_000;
+
+    @Inject
+    GrpcTransports transports;
+
+    @Inject
+    IndicationDispatcher indicationDispatcher;
+
+    /**
+     * Runs the benchmark on each transport, one after the other
+     * @param transportNames Transports to compare, null or empty for every available transport
+     * @param messages Number of indications per transport
+     * @param payloadBytes Size of the packet carried by each indication
+     * @return One result per transport
+     */
+    public synchronized List<Map<String, Object>> run(List<String> transportNames, int messages, int payloadBytes) {
+        List<String> names = transportNames == null || transportNames.isEmpty()
+                ? transports.getAvailableTransports() : transportNames;
+        EncodedIndication indication = EncodedIndication.of(Indication.newBuilder()
+                .setPktInd(PacketIndication.newBuilder()
+                        .setIntfType("pon")
+                        .setIntfId(0)
+                        .setGemportId(1024)
+                        .setPkt(ByteString.copyFrom(new byte[payloadBytes])))
+                .build());
+
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (String name : names) {
+            results.add(runTransport(name, indication, messages));
+        }
+        return results;
+    }
+
+    private Map<String, Object> runTransport(String transport, EncodedIndication indication, int messages) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("transport", transport);
+        result.put("target", transports.describeTarget(transport));
+        result.put("messages", messages);
+        result.put("indicationBytes", indication.size());
+
+        ManagedChannel channel;
+        try {
+            channel = transports.openChannel(transport);
+        } catch (IllegalArgumentException e) {
+            result.put("error", e.getMessage());
+            return result;
+        }
+
+        String client = "benchmark-" + UUID.randomUUID();
+        AtomicLong received = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(1);
+        ClientCallStreamObserver<?>[] call = new ClientCallStreamObserver<?>[1];
+        try {
+            Metadata headers = new Metadata();
+            headers.put(IndicationShardInterceptor.CLIENT_HEADER, client);
+            OpenoltGrpc.newStub(channel)
+                    .withInterceptors(MetadataUtils.newAttachHeadersInterceptor(headers))
+                    .enablePacketIndication(Empty.getDefaultInstance(), new ClientResponseObserver<Empty, Indication>() {
+                        @Override
+                        public void beforeStart(ClientCallStreamObserver<Empty> requestStream) {
+                            call[0] = requestStream;
+                        }
+
+                        @Override
+                        public void onNext(Indication value) {
+                            if (received.incrementAndGet() == messages) {
+                                done.countDown();
+                            }
+                        }
+
+                        @Override
+                        public void onError(Throwable t) {
+                            done.countDown();
+                        }
+
+                        @Override
+                        public void onCompleted() {
+                            done.countDown();
+                        }
+                    });
+
+            Optional<IndicationSubscriber> subscriber = awaitSubscriber(client);
+            if (subscriber.isEmpty()) {
+                result.put("error", "Stream did not subscribe within " + SUBSCRIBE_TIMEOUT_MS + "ms");
+                return result;
+            }
+
+            IndicationSubscriber stream = subscriber.get();
+            long start = System.nanoTime();
+            long deadline = start + TimeUnit.MILLISECONDS.toNanos(RECEIVE_TIMEOUT_MS);
+            boolean queued = true;
+            for (int i = 0; i < messages && queued; i++) {
+                queued = stream.offerPaced(indication, RECEIVE_TIMEOUT_MS);
+            }
+            // Wait until every indication was received or is known to be lost, e.g. evicted by live traffic
+            while (queued && done.getCount() > 0 && received.get() + stream.getDroppedCount() < messages
+                    && System.nanoTime() < deadline) {
+                done.await(10, TimeUnit.MILLISECONDS);
+            }
+            double durationSec = (System.nanoTime() - start) / 1e9;
+
+            result.put("received", received.get());
+            result.put("dropped", stream.getDroppedCount());
+            result.put("completed", received.get() == messages);
+            result.put("durationMs", Math.round(durationSec * 1000));
+            result.put("messagesPerSec", Math.round(received.get() / durationSec));
+            result.put("megabytesPerSec", Math.round(received.get() * (double) indication.size() / durationSec / 1e4) / 100.0);
+            logger.info("Transport benchmark {} - {} of {} indications in {}ms ({}/s)", transport,
+                    received.get(), messages, result.get("durationMs"), result.get("messagesPerSec"));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.put("error", "Interrupted");
+        } finally {
+            if (call[0] != null) {
+                call[0].cancel("Benchmark finished", null);
+            }
+            channel.shutdownNow();
+        }
+        return result;
+    }
+
+    private Optional<IndicationSubscriber> awaitSubscriber(String client) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + SUBSCRIBE_TIMEOUT_MS;
+        while (System.currentTimeMillis() < deadline) {
+            Optional<IndicationSubscriber> subscriber = indicationDispatcher.findSubscriber(client);
+            if (subscriber.isPresent()) {
+                return subscriber;
+            }
+            Thread.sleep(10);
+        }
+        return Optional.empty();
+    }
+}
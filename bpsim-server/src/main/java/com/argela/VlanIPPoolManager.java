@@ -5,7 +5,10 @@ import jakarta.annotation.PostConstruct;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 import java.util.BitSet;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -42,6 +45,10 @@ public class VlanIPPoolManager {
     private final ConcurrentHashMap<Integer, VlanSubnet> vlanSubnets = new ConcurrentHashMap<>();
     private final ReadWriteLock poolLock = new ReentrantReadWriteLock();
 
+    // Maintained on every allocation, release and subnet creation, so totals need no scan
+    private final AtomicInteger totalUsedIPs = new AtomicInteger();
+    private final AtomicInteger totalUsableIPs = new AtomicInteger();
+
     private int[] baseOctets;
     private int subnetMask;
     private int hostBits;
@@ -326,6 +333,42 @@ public class VlanIPPoolManager {
         }
     }
 
+    /**
+     * Returns the number of used IPs across all VLANs, from a counter
+     * @return Number of used IP addresses
+     */
+    public int getTotalUsedIPCount() {
+        return totalUsedIPs.get();
+    }
+
+    /**
+     * Returns the number of usable IPs in the subnets of all active VLANs, from a counter
+     * @return Number of usable IP addresses
+     */
+    public int getTotalUsableIPCount() {
+        return totalUsableIPs.get();
+    }
+
+    /**
+     * Returns the number of used IPs of every active VLAN, from per-subnet counters
+     * @return Used IP count by VLAN ID
+     */
+    public Map<Integer, Integer> getUsedIPCounts() {
+        Map<Integer, Integer> counts = new TreeMap<>();
+        vlanSubnets.forEach((vlanId, subnet) -> counts.put(vlanId, subnet.getUsedIPCount()));
+        return counts;
+    }
+
+    /**
+     * Returns the number of usable IPs of every active VLAN
+     * @return Usable IP count by VLAN ID
+     */
+    public Map<Integer, Integer> getUsableIPCounts() {
+        Map<Integer, Integer> counts = new TreeMap<>();
+        vlanSubnets.forEach((vlanId, subnet) -> counts.put(vlanId, subnet.usableIPCount));
+        return counts;
+    }
+
     /**
      * Returns statistics for all active VLANs
      * @return VlanPoolStatistics object containing all VLAN statistics
@@ -378,8 +421,9 @@ public class VlanIPPoolManager {
                 subnet = vlanSubnets.get(vlanId);
                 if (subnet == null) {
                     SubnetInfo subnetInfo = calculateSubnetForVlan(vlanId);
-                    subnet = new VlanSubnet(vlanId, subnetInfo);
+                    subnet = new VlanSubnet(vlanId, subnetInfo, totalUsedIPs);
                     vlanSubnets.put(vlanId, subnet);
+                    totalUsableIPs.addAndGet(subnet.usableIPCount);
                 }
                 poolLock.readLock().lock();
             } finally {
@@ -480,7 +524,11 @@ public class VlanIPPoolManager {
 
         poolLock.writeLock().lock();
         try {
-            vlanSubnets.remove(vlanId);
+            VlanSubnet subnet = vlanSubnets.remove(vlanId);
+            if (subnet != null) {
+                totalUsedIPs.addAndGet(-subnet.getUsedIPCount());
+                totalUsableIPs.addAndGet(-subnet.usableIPCount);
+            }
         } finally {
             poolLock.writeLock().unlock();
         }
@@ -493,6 +541,8 @@ public class VlanIPPoolManager {
         poolLock.writeLock().lock();
         try {
             vlanSubnets.clear();
+            totalUsedIPs.set(0);
+            totalUsableIPs.set(0);
         } finally {
             poolLock.writeLock().unlock();
         }
@@ -554,15 +604,19 @@ public class VlanIPPoolManager {
         private final SubnetInfo subnetInfo;
         private final int usableIPStart;
         private final int usableIPCount;
+        private final AtomicInteger totalUsed;
+        private volatile int usedCount;
 
         /**
          * Constructor for VlanSubnet
          * @param vlanId The VLAN ID
          * @param subnetInfo Subnet information
+         * @param totalUsed Counter of used IPs across all subnets
          */
-        public VlanSubnet(int vlanId, SubnetInfo subnetInfo) {
+        public VlanSubnet(int vlanId, SubnetInfo subnetInfo, AtomicInteger totalUsed) {
             this.vlanId = vlanId;
             this.subnetInfo = subnetInfo;
+            this.totalUsed = totalUsed;
 
             // Calculate usable IP range (skip reserved IPs)
             this.usableIPStart = subnetInfo.reservedStart;
@@ -583,6 +637,8 @@ public class VlanIPPoolManager {
             }
 
             ipPool.set(nextAvailable);
+            usedCount++;
+            totalUsed.incrementAndGet();
 
             // Convert index to IP address
             int hostOffset = usableIPStart + nextAvailable;
@@ -610,8 +666,10 @@ public class VlanIPPoolManager {
                 int hostOffset = (int)(ipLong - subnetInfo.networkAddressInt);
                 int index = hostOffset - usableIPStart;
 
-                if (index >= 0 && index < usableIPCount) {
+                if (index >= 0 && index < usableIPCount && ipPool.get(index)) {
                     ipPool.clear(index);
+                    usedCount--;
+                    totalUsed.decrementAndGet();
                 }
             } catch (Exception e) {
                 logger.error("Failed to release IP for VLAN {}: {} - {}", vlanId, ip, e.getMessage());
@@ -645,7 +703,7 @@ public class VlanIPPoolManager {
          * @return Number of used IPs
          */
         public int getUsedIPCount() {
-            return ipPool.cardinality();
+            return usedCount;
         }
 
         /**
@@ -653,7 +711,7 @@ public class VlanIPPoolManager {
          * @return Number of available IPs
          */
         public int getAvailableIPCount() {
-            return usableIPCount - ipPool.cardinality();
+            return usableIPCount - usedCount;
         }
     }
 
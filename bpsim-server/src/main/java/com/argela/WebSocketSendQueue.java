@@ -0,0 +1,329 @@
+package com.argela;
+
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.SendHandler;
+import jakarta.websocket.SendResult;
+import jakarta.websocket.Session;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded outbound queue of one WebSocket session. Frames are written one at a time and the next one is
+ * only handed to the container when the previous write completed, so the queue depth is the real backlog
+ * of the client. Only device update frames count against the capacity and are subject to the overflow
+ * policy; snapshot chunks and notifications (reset, clear) are few and always queued. Status notifications
+ * that supersede each other, like the progress of a storm, carry a key and only the latest one per key stays
+ * queued, so a slow client never accumulates them.
+ * <p>
+ * Device updates are not queued while a snapshot is being sent: the caller merges them per device and queues
+ * the merged frames like snapshot chunks once the snapshot is complete.
+ */
+public class WebSocketSendQueue implements SendHandler {
+    private static final Logger logger = LoggerFactory.getLogger(WebSocketSendQueue.class);
+
+    /**
+     * What to do when device updates do not fit in the queue of a session
+     */
+    public enum OverflowPolicy {
+        /** Drop all queued device updates and send a fresh snapshot once the client has caught up */
+        RESYNC,
+        /** Drop the oldest queued device update to make room; the client may miss changes */
+        DROP_OLDEST,
+        /** Close the session */
+        DISCONNECT
+    }
+
+    private record Frame(Object payload, boolean deviceUpdate, long enqueuedNanos, Runnable onSent, String key) {
+    }
+
+    private final Session session;
+    private final OverflowPolicy policy;
+    private final int capacity;
+    private final Runnable resync;
+    private final Instant connectedAt = Instant.now();
+
+    // Guarded by this
+    private final ArrayDeque<Frame> queue = new ArrayDeque<>();
+    private final Map<String, Frame> latestByKey = new HashMap<>();
+    private Frame inFlight;
+    private int queuedUpdates;
+    private boolean resyncPending;
+    private boolean closed;
+    private int maxQueueDepth;
+    private long sentCount;
+    private long droppedCount;
+    private long resyncCount;
+    private long lastLatencyNanos;
+    private long maxLatencyNanos;
+    private long totalLatencyNanos;
+
+    /**
+     * Creates the queue of a session
+     * @param session The session to write to
+     * @param policy Overflow policy for device updates
+     * @param capacity Maximum number of queued device update frames
+     * @param resync Starts a new snapshot, called under the RESYNC policy once the dropped backlog has drained
+     */
+    WebSocketSendQueue(Session session, OverflowPolicy policy, int capacity, Runnable resync) {
+        this.session = session;
+        this.policy = policy;
+        this.capacity = capacity;
+        this.resync = resync;
+    }
+
+    /**
+     * Queues a notification frame
+     * @param text The frame text
+     */
+    public void sendText(String text) {
+        enqueue(new Frame(text, false, System.nanoTime(), null, null));
+    }
+
+    /**
+     * Queues a status notification, replacing a queued one with the same key that was not sent yet.
+     * The new frame goes to the end of the queue, behind the frames queued before it.
+     * @param text The frame text
+     * @param key Identifies the status the frame describes, e.g. the storm name
+     */
+    public void sendText(String text, String key) {
+        enqueue(new Frame(text, false, System.nanoTime(), null, key));
+    }
+
+    /**
+     * Queues a snapshot chunk
+     * @param payload The chunk, a String for a text frame or a ByteBuffer for a binary frame
+     * @param onSent Called once the chunk was written
+     */
+    void sendChunk(Object payload, Runnable onSent) {
+        enqueue(new Frame(payload, false, System.nanoTime(), onSent, null));
+    }
+
+    /**
+     * Queues device update frames, applying the overflow policy when they do not fit
+     * @param frames Frames in order, Strings for text frames or ByteBuffers for binary frames
+     */
+    public void sendDeviceUpdates(List<?> frames) {
+        boolean disconnect = false;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            if (resyncPending) {
+                // A snapshot will be sent anyway
+                droppedCount += frames.size();
+                return;
+            }
+            if (queuedUpdates + frames.size() > capacity) {
+                switch (policy) {
+                    case RESYNC -> {
+                        droppedCount += frames.size() + dropUpdates(queue);
+                        resyncPending = true;
+                        logger.debug("WebSocket session {} exceeded queue capacity {}, resynchronizing", session.getId(), capacity);
+                        frames = List.of();
+                    }
+                    case DROP_OLDEST -> {
+                        while (queuedUpdates + frames.size() > capacity && queuedUpdates > 0) {
+                            dropOldestUpdate();
+                        }
+                        if (frames.size() > capacity) {
+                            droppedCount += frames.size() - capacity;
+                            frames = frames.subList(frames.size() - capacity, frames.size());
+                        }
+                    }
+                    case DISCONNECT -> {
+                        droppedCount += frames.size() + queuedUpdates;
+                        closed = true;
+                        clear();
+                        disconnect = true;
+                        frames = List.of();
+                    }
+                }
+            }
+            long now = System.nanoTime();
+            for (Object frame : frames) {
+                queue.add(new Frame(frame, true, now, null, null));
+                queuedUpdates++;
+            }
+            maxQueueDepth = Math.max(maxQueueDepth, getQueueDepth());
+        }
+        if (disconnect) {
+            logger.warn("WebSocket session {} exceeded queue capacity {}, disconnecting", session.getId(), capacity);
+            close(new CloseReason(CloseReason.CloseCodes.TRY_AGAIN_LATER, "Client too slow"));
+            return;
+        }
+        pump();
+    }
+
+    /**
+     * Writes the next queued frame unless one is in flight
+     */
+    private void pump() {
+        Frame next;
+        Runnable resyncNow = null;
+        synchronized (this) {
+            if (inFlight != null || closed) {
+                return;
+            }
+            next = queue.poll();
+            if (next == null) {
+                if (resyncPending) {
+                    resyncPending = false;
+                    resyncCount++;
+                    resyncNow = resync;
+                }
+            } else {
+                inFlight = next;
+                if (next.key() != null) {
+                    latestByKey.remove(next.key(), next);
+                }
+            }
+        }
+        if (resyncNow != null) {
+            resyncNow.run();
+            return;
+        }
+        if (next == null) {
+            return;
+        }
+        try {
+            if (next.payload() instanceof ByteBuffer data) {
+                // Binary frames may be shared by several sessions, each write needs its own position
+                session.getAsyncRemote().sendBinary(data.duplicate(), this);
+            } else {
+                session.getAsyncRemote().sendText((String) next.payload(), this);
+            }
+        } catch (Exception e) {
+            onResult(new SendResult(e));
+        }
+    }
+
+    @Override
+    public void onResult(SendResult result) {
+        Frame sent;
+        synchronized (this) {
+            sent = inFlight;
+            inFlight = null;
+            if (sent == null) {
+                return;
+            }
+            if (sent.deviceUpdate()) {
+                queuedUpdates--;
+            }
+            if (!result.isOK()) {
+                closed = true;
+                clear();
+            } else {
+                long latency = System.nanoTime() - sent.enqueuedNanos();
+                sentCount++;
+                lastLatencyNanos = latency;
+                maxLatencyNanos = Math.max(maxLatencyNanos, latency);
+                totalLatencyNanos += latency;
+            }
+        }
+        if (!result.isOK()) {
+            logger.debug("WebSocket send to session {} failed: {}", session.getId(), result.getException().getMessage());
+            return;
+        }
+        if (sent.onSent() != null) {
+            sent.onSent().run();
+        }
+        pump();
+    }
+
+    private void enqueue(Frame frame) {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            if (frame.key() != null) {
+                Frame superseded = latestByKey.put(frame.key(), frame);
+                if (superseded != null) {
+                    removeFrame(superseded);
+                    droppedCount++;
+                }
+            }
+            queue.add(frame);
+            maxQueueDepth = Math.max(maxQueueDepth, getQueueDepth());
+        }
+        pump();
+    }
+
+    /**
+     * Removes a queued frame, compared by identity
+     */
+    private void removeFrame(Frame frame) {
+        for (Iterator<Frame> it = queue.iterator(); it.hasNext(); ) {
+            if (it.next() == frame) {
+                it.remove();
+                return;
+            }
+        }
+    }
+
+    private void clear() {
+        queue.clear();
+        latestByKey.clear();
+        queuedUpdates = 0;
+    }
+
+    /**
+     * Removes the device updates from a queue, keeping the other frames
+     * @return Number of removed updates
+     */
+    private int dropUpdates(ArrayDeque<Frame> frames) {
+        int dropped = 0;
+        for (Iterator<Frame> it = frames.iterator(); it.hasNext(); ) {
+            if (it.next().deviceUpdate()) {
+                it.remove();
+                dropped++;
+            }
+        }
+        queuedUpdates -= dropped;
+        return dropped;
+    }
+
+    private void dropOldestUpdate() {
+        for (Iterator<Frame> it = queue.iterator(); it.hasNext(); ) {
+            if (it.next().deviceUpdate()) {
+                it.remove();
+                queuedUpdates--;
+                droppedCount++;
+                return;
+            }
+        }
+    }
+
+    private void close(CloseReason reason) {
+        try {
+            session.close(reason);
+        } catch (IOException e) {
+            logger.debug("Could not close WebSocket session {}: {}", session.getId(), e.getMessage());
+        }
+    }
+
+    public String getSessionId() { return session.getId(); }
+    public OverflowPolicy getPolicy() { return policy; }
+    public int getCapacity() { return capacity; }
+    public synchronized int getQueueDepth() { return queue.size() + (inFlight != null ? 1 : 0); }
+    public synchronized int getQueuedUpdates() { return queuedUpdates; }
+    public synchronized int getMaxQueueDepth() { return maxQueueDepth; }
+    public synchronized long getSentCount() { return sentCount; }
+    public synchronized long getDroppedCount() { return droppedCount; }
+    public synchronized long getResyncCount() { return resyncCount; }
+    public synchronized double getLastSendLatencyMs() { return lastLatencyNanos / 1e6; }
+    public synchronized double getMaxSendLatencyMs() { return maxLatencyNanos / 1e6; }
+    public synchronized double getAverageSendLatencyMs() {
+        return sentCount == 0 ? 0 : totalLatencyNanos / 1e6 / sentCount;
+    }
+    public Instant getConnectedAt() { return connectedAt; }
+}